@@ -17,6 +17,7 @@ package com.pokegoapi.api;
 
 import POGOProtos.Networking.Envelopes.RequestEnvelopeOuterClass.RequestEnvelope.AuthInfo;
 import com.pokegoapi.api.inventory.Inventories;
+import com.pokegoapi.api.inventory.InventoryStore;
 import com.pokegoapi.api.map.Map;
 import com.pokegoapi.api.player.PlayerProfile;
 import com.pokegoapi.api.settings.Settings;
@@ -34,6 +35,7 @@ import okhttp3.OkHttpClient;
 public class PokemonGo {
 
 	private static final java.lang.String TAG = PokemonGo.class.getSimpleName();
+	@Getter
 	private final Time time;
 	@Getter
 	RequestHandler requestHandler;
@@ -42,6 +44,10 @@ public class PokemonGo {
 	@Getter
 	private PlayerProfile playerProfile;
 	private Inventories inventories;
+	// restores and saves inventory snapshots, must be set before the inventories are first used
+	@Getter
+	@Setter
+	private InventoryStore inventoryStore;
 	@Getter
 	@Setter
 	private double latitude;
@@ -117,6 +123,9 @@ public class PokemonGo {
 		setLatitude(latitude);
 		setLongitude(longitude);
 		setAltitude(altitude);
+		if (inventories != null) {
+			inventories.getHatchery().updateLocation(latitude, longitude);
+		}
 	}
 
 	public long currentTimeMillis() {
@@ -132,7 +141,7 @@ public class PokemonGo {
 	 */
 	public Inventories getInventories() throws LoginFailedException, RemoteServerException {
 		if (inventories == null) {
-			inventories = new Inventories(this);
+			inventories = new Inventories(this, inventoryStore);
 		}
 		return inventories;
 	}
@@ -20,23 +20,19 @@ import POGOProtos.Data.PokemonDataOuterClass.PokemonData;
 import POGOProtos.Enums.PokemonIdOuterClass;
 import POGOProtos.Enums.TeamColorOuterClass;
 import POGOProtos.Map.Fort.FortDataOuterClass.FortData;
-import POGOProtos.Networking.Requests.Messages.GetGymDetailsMessageOuterClass.GetGymDetailsMessage;
-import POGOProtos.Networking.Requests.RequestTypeOuterClass.RequestType;
 import POGOProtos.Networking.Responses.GetGymDetailsResponseOuterClass.GetGymDetailsResponse;
-import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.ProtocolStringList;
 import com.pokegoapi.api.PokemonGo;
+import com.pokegoapi.api.map.fort.FortDetailsCache;
 import com.pokegoapi.api.pokemon.Pokemon;
 import com.pokegoapi.exceptions.LoginFailedException;
 import com.pokegoapi.exceptions.RemoteServerException;
-import com.pokegoapi.main.ServerRequest;
 
 import java.util.ArrayList;
 import java.util.List;
 
 public class Gym {
 	private FortData proto;
-	private GetGymDetailsResponse details;
 	private PokemonGo api;
 
 	/**
@@ -47,7 +43,6 @@ public class Gym {
 	public Gym(PokemonGo api, FortData proto) {
 		this.api = api;
 		this.proto = proto;
-		this.details = null;
 	}
 
 	public String getId() {
@@ -95,42 +90,23 @@ public class Gym {
 	}
 
 
-	private GetGymDetailsResponse details() throws LoginFailedException, RemoteServerException {
-		if (details == null) {
-			GetGymDetailsMessage reqMsg = GetGymDetailsMessage
-											.newBuilder()
-											.setGymId(this.getId())
-											.setGymLatitude(this.getLatitude())
-											.setGymLongitude(this.getLongitude())
-											.setPlayerLatitude(api.getLatitude())
-											.setPlayerLongitude(api.getLongitude())
-											.build();
-
-
-			ServerRequest serverRequest = new ServerRequest(RequestType.GET_GYM_DETAILS, reqMsg);
-			api.getRequestHandler().sendServerRequests(serverRequest);
-
-			try {
-				details = GetGymDetailsResponse.parseFrom(serverRequest.getData());
-			} catch (InvalidProtocolBufferException e) {
-				throw new RemoteServerException();
-			}
-
-		}
-
-		return details;
+	/**
+	 * Returns the details of this gym, fetching them if the cached details are older than the given age.
+	 */
+	private GetGymDetailsResponse details(long maxAgeMs) throws LoginFailedException, RemoteServerException {
+		return api.getMap().getDetailsCache().getGymDetails(getId(), getLatitude(), getLongitude(), maxAgeMs);
 	}
 
 	public String getName() throws LoginFailedException, RemoteServerException {
-		return details().getName();
+		return details(FortDetailsCache.STATIC_TTL_MS).getName();
 	}
 
 	public ProtocolStringList getUrlsList() throws LoginFailedException, RemoteServerException {
-		return details().getUrlsList();
+		return details(FortDetailsCache.STATIC_TTL_MS).getUrlsList();
 	}
 
 	public GetGymDetailsResponse.Result getResult() throws LoginFailedException, RemoteServerException {
-		return details().getResult();
+		return details(FortDetailsCache.GYM_STATE_TTL_MS).getResult();
 	}
 
 	public boolean inRange() throws LoginFailedException, RemoteServerException {
@@ -139,12 +115,12 @@ public class Gym {
 	}
 
 	public String getDescription() throws LoginFailedException, RemoteServerException {
-		return details().getDescription();
+		return details(FortDetailsCache.STATIC_TTL_MS).getDescription();
 	}
 
 
 	public List<GymMembership> getGymMembers() throws LoginFailedException, RemoteServerException {
-		return details().getGymState().getMembershipsList();
+		return details(FortDetailsCache.GYM_STATE_TTL_MS).getGymState().getMembershipsList();
 	}
 
 	/**
@@ -17,14 +17,14 @@ package com.pokegoapi.api.inventory;
 
 import POGOProtos.Enums.PokemonFamilyIdOuterClass.PokemonFamilyId;
 import com.pokegoapi.api.PokemonGo;
+import com.pokegoapi.util.EnumCounters;
 import lombok.ToString;
 
-import java.util.HashMap;
-
 @ToString
 public class CandyJar {
 	private PokemonGo pgo;
-	private HashMap<PokemonFamilyId, Integer> candies;
+	// indexed by family id number
+	private final EnumCounters<PokemonFamilyId> candies = new EnumCounters<>(PokemonFamilyId.class);
 
 	public CandyJar(PokemonGo pgo) {
 		reset(pgo);
@@ -32,7 +32,7 @@ public class CandyJar {
 
 	public void reset(PokemonGo pgo) {
 		this.pgo = pgo;
-		candies = new HashMap<>();
+		candies.clear();
 	}
 
 	/**
@@ -41,7 +41,7 @@ public class CandyJar {
 	 * @param candies Amount to set it to
 	 */
 	public void setCandy(PokemonFamilyId family, int candies) {
-		this.candies.put(family, candies);
+		this.candies.set(family, candies);
 	}
 
 	/**
@@ -50,11 +50,7 @@ public class CandyJar {
 	 * @param amount Amount of candies to add
 	 */
 	public void addCandy(PokemonFamilyId family, int amount) {
-		if (candies.containsKey(family)) {
-			candies.put(family, candies.get(family) + amount);
-		} else {
-			candies.put(family, amount);
-		}
+		candies.add(family, amount);
 	}
 
 	/**
@@ -63,15 +59,7 @@ public class CandyJar {
 	 * @param amount Amount of candies to remove
 	 */
 	public void removeCandy(PokemonFamilyId family, int amount) {
-		if (candies.containsKey(family)) {
-			if (candies.get(family) - amount < 0) {
-				candies.put(family, 0);
-			} else {
-				candies.put(family, candies.get(family) - amount);
-			}
-		} else {
-			candies.put(family, 0);
-		}
+		candies.add(family, -amount);
 	}
 
 	/**
@@ -80,10 +68,10 @@ public class CandyJar {
 	 * @return number of candies in jar
 	 */
 	public int getCandies(PokemonFamilyId family) {
-		if (candies.containsKey(family)) {
-			return this.candies.get(family);
-		} else {
-			return 0;
-		}
+		return candies.get(family);
+	}
+
+	int[] copyCandies() {
+		return candies.toArray();
 	}
 }
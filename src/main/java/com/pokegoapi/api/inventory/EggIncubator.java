@@ -17,6 +17,7 @@ package com.pokegoapi.api.inventory;
 
 import POGOProtos.Inventory.EggIncubatorOuterClass;
 import POGOProtos.Inventory.EggIncubatorTypeOuterClass.EggIncubatorType;
+import POGOProtos.Inventory.Item.ItemIdOuterClass.ItemId;
 import POGOProtos.Networking.Requests.Messages.UseItemEggIncubatorMessageOuterClass.UseItemEggIncubatorMessage;
 import POGOProtos.Networking.Requests.RequestTypeOuterClass;
 import POGOProtos.Networking.Responses.UseItemEggIncubatorResponseOuterClass.UseItemEggIncubatorResponse;
@@ -26,8 +27,11 @@ import com.pokegoapi.api.pokemon.EggPokemon;
 import com.pokegoapi.exceptions.LoginFailedException;
 import com.pokegoapi.exceptions.RemoteServerException;
 import com.pokegoapi.main.ServerRequest;
+import lombok.AccessLevel;
+import lombok.Getter;
 
 public class EggIncubator {
+	@Getter(AccessLevel.PACKAGE)
 	private final EggIncubatorOuterClass.EggIncubator proto;
 	private final PokemonGo pgo;
 
@@ -68,17 +72,19 @@ public class EggIncubator {
 				.build();
 
 		ServerRequest serverRequest = new ServerRequest(RequestTypeOuterClass.RequestType.USE_ITEM_EGG_INCUBATOR, reqMsg);
-		pgo.getRequestHandler().sendServerRequests(serverRequest);
+		// the egg and incubator changes come back with the inventory delta sent in the same envelope
+		ServerRequest inventoryRequest = new ServerRequest(RequestTypeOuterClass.RequestType.GET_INVENTORY,
+				pgo.getInventories().getDeltaMessage());
+		pgo.getRequestHandler().sendServerRequests(serverRequest, inventoryRequest);
 
 		UseItemEggIncubatorResponse response;
 		try {
 			response = UseItemEggIncubatorResponse.parseFrom(serverRequest.getData());
+			pgo.getInventories().applyInventoryResponse(inventoryRequest.getData());
 		} catch (InvalidProtocolBufferException e) {
 			throw new RemoteServerException(e);
 		}
 
-		pgo.getInventories().updateInventories(true);
-
 		return response.getResult();
 	}
 	
@@ -118,12 +124,30 @@ public class EggIncubator {
 		return proto.getStartKmWalked();
 	}
 	
+	/**
+	 * Get the id of the egg in this incubator.
+	 *
+	 * @return the egg id, 0 if the incubator is free
+	 */
+	public long getEggId() {
+		return proto.getPokemonId();
+	}
+
+	/**
+	 * Is the incubator unlimited, as opposed to breaking after a number of uses.
+	 *
+	 * @return unlimited or not
+	 */
+	public boolean isUnlimited() {
+		return proto.getItemId() == ItemId.ITEM_INCUBATOR_BASIC_UNLIMITED;
+	}
+
 	/**
 	 * Is the incubator currently being used
 	 * 
 	 * @return currently used or not
 	 */
 	public boolean isInUse() throws LoginFailedException, RemoteServerException {
-		return getKmTarget() > pgo.getPlayerProfile().getStats().getKmWalked();
+		return proto.getPokemonId() != 0;
 	}
 }
@@ -0,0 +1,55 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.pokegoapi.api.inventory;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Keeps the inventory snapshot of one account in a file. The file is replaced atomically on save.
+ */
+public class FileInventoryStore implements InventoryStore {
+	private final File file;
+
+	public FileInventoryStore(File file) {
+		this.file = file;
+	}
+
+	@Override
+	public byte[] load() throws IOException {
+		if (!file.isFile()) {
+			return null;
+		}
+		try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+			byte[] snapshot = new byte[(int) in.length()];
+			in.readFully(snapshot);
+			return snapshot;
+		}
+	}
+
+	@Override
+	public synchronized void save(byte[] snapshot) throws IOException {
+		File temp = new File(file.getPath() + ".tmp");
+		try (FileOutputStream out = new FileOutputStream(temp)) {
+			out.write(snapshot);
+		}
+		Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+	}
+}
@@ -16,8 +16,10 @@
 package com.pokegoapi.api.inventory;
 
 import POGOProtos.Networking.Requests.Messages.GetHatchedEggsMessageOuterClass.GetHatchedEggsMessage;
+import POGOProtos.Networking.Requests.Messages.UseItemEggIncubatorMessageOuterClass.UseItemEggIncubatorMessage;
 import POGOProtos.Networking.Requests.RequestTypeOuterClass.RequestType;
 import POGOProtos.Networking.Responses.GetHatchedEggsResponseOuterClass.GetHatchedEggsResponse;
+import POGOProtos.Networking.Responses.UseItemEggIncubatorResponseOuterClass.UseItemEggIncubatorResponse;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.pokegoapi.api.PokemonGo;
 import com.pokegoapi.api.pokemon.EggPokemon;
@@ -25,34 +27,204 @@ import com.pokegoapi.api.pokemon.HatchedEgg;
 import com.pokegoapi.exceptions.LoginFailedException;
 import com.pokegoapi.exceptions.RemoteServerException;
 import com.pokegoapi.main.ServerRequest;
+import com.pokegoapi.util.Geodesy;
 import lombok.Getter;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+/**
+ * The eggs and incubators of the player, joined by incubator id.
+ * The hatchery also projects the kilometers walked from location updates, so hatched eggs are only polled for
+ * when an egg should be due.
+ */
 public class Hatchery {
-	@Getter
-	Set<EggPokemon> eggs = new HashSet<EggPokemon>();
 	@Getter
 	PokemonGo instance;
+	// replaced on every change so readers never see it being modified
+	private volatile Index index = new Index(Collections.<EggPokemon>emptySet(),
+			Collections.<EggIncubator>emptyList());
+
+	private float statsKmWalked;
+	private double walkedSinceStats;
+	private double lastLatitude = Double.NaN;
+	private double lastLongitude = Double.NaN;
 
 	public Hatchery(PokemonGo pgo) {
 		reset(pgo);
 	}
 
-	public void reset(PokemonGo pgo) {
+	/**
+	 * Removes all eggs and incubators.
+	 *
+	 * @param pgo the api
+	 */
+	public synchronized void reset(PokemonGo pgo) {
 		this.instance = pgo;
-		eggs = new HashSet<>();
+		index = new Index(Collections.<EggPokemon>emptySet(), Collections.<EggIncubator>emptyList());
+	}
+
+	public Set<EggPokemon> getEggs() {
+		return index.eggs;
+	}
+
+	public List<EggIncubator> getIncubators() {
+		return index.incubators;
+	}
+
+	/**
+	 * Gets an incubator by id.
+	 *
+	 * @param id the incubator id
+	 * @return the incubator, or null if there is none with that id
+	 */
+	public EggIncubator getIncubator(String id) {
+		return index.incubatorsById.get(id);
+	}
+
+	/**
+	 * Gets the egg in an incubator.
+	 *
+	 * @param incubator the incubator
+	 * @return the egg, or null if the incubator is free
+	 */
+	public EggPokemon getEgg(EggIncubator incubator) {
+		return index.eggsByIncubator.get(incubator.getId());
+	}
+
+	/**
+	 * Gets the incubators without an egg.
+	 *
+	 * @return the free incubators
+	 */
+	public List<EggIncubator> getFreeIncubators() {
+		List<EggIncubator> free = new ArrayList<>();
+		for (EggIncubator incubator : index.incubators) {
+			if (incubator.getEggId() == 0) {
+				free.add(incubator);
+			}
+		}
+		return free;
 	}
 
-	public void addEgg(EggPokemon egg) {
+	/**
+	 * Gets the eggs not being incubated.
+	 *
+	 * @return the free eggs
+	 */
+	public List<EggPokemon> getFreeEggs() {
+		List<EggPokemon> free = new ArrayList<>();
+		for (EggPokemon egg : index.eggs) {
+			if (!egg.isIncubate()) {
+				free.add(egg);
+			}
+		}
+		return free;
+	}
+
+	/**
+	 * Adds an egg to the hatchery.
+	 *
+	 * @param egg the egg
+	 */
+	public synchronized void addEgg(EggPokemon egg) {
 		egg.setPgo(instance);
+		Set<EggPokemon> eggs = new HashSet<>(index.eggs);
 		eggs.add(egg);
+		index = new Index(eggs, index.incubators);
+	}
+
+	/**
+	 * Removes the egg with the given id.
+	 *
+	 * @param id the egg id
+	 * @return true if an egg was removed
+	 */
+	public synchronized boolean removeEgg(long id) {
+		Set<EggPokemon> eggs = new HashSet<>(index.eggs);
+		for (EggPokemon egg : index.eggs) {
+			if (egg.getId() == id) {
+				eggs.remove(egg);
+				index = new Index(eggs, index.incubators);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Replaces the incubators.
+	 *
+	 * @param incubators the complete list of incubators
+	 */
+	public synchronized void setIncubators(List<EggIncubator> incubators) {
+		index = new Index(index.eggs, incubators);
+	}
+
+	/**
+	 * Sets the kilometers walked reported by the server, dropping the distance projected since the last report.
+	 *
+	 * @param kmWalked the kilometers walked from the player stats
+	 */
+	public synchronized void setKmWalked(float kmWalked) {
+		statsKmWalked = kmWalked;
+		walkedSinceStats = 0;
+	}
+
+	/**
+	 * Adds the distance to a new player location to the projected kilometers walked.
+	 *
+	 * @param latitude the latitude
+	 * @param longitude the longitude
+	 */
+	public synchronized void updateLocation(double latitude, double longitude) {
+		if (!Double.isNaN(lastLatitude)) {
+			walkedSinceStats += Geodesy.haversine(lastLatitude, lastLongitude, latitude, longitude) / 1000;
+		}
+		lastLatitude = latitude;
+		lastLongitude = longitude;
 	}
-	
-	
+
+	/**
+	 * Gets the kilometers walked, as last reported by the server plus the distance moved since.
+	 * The server may count less, for example when moving too fast, so this can run ahead of it.
+	 *
+	 * @return the projected kilometers walked
+	 */
+	public synchronized double getProjectedKmWalked() {
+		return statsKmWalked + walkedSinceStats;
+	}
+
+	/**
+	 * Gets the kilometers walked at which the next egg hatches.
+	 *
+	 * @return the target of the closest incubator in use, or infinity if no egg is being incubated
+	 */
+	public double getNextHatchKm() {
+		double next = Double.POSITIVE_INFINITY;
+		for (EggIncubator incubator : index.incubators) {
+			if (incubator.getEggId() != 0) {
+				next = Math.min(next, incubator.getKmTarget());
+			}
+		}
+		return next;
+	}
+
+	/**
+	 * Checks if an egg should have hatched by the projected kilometers walked.
+	 *
+	 * @return true if an egg is due
+	 */
+	public boolean isHatchDue() {
+		return getProjectedKmWalked() >= getNextHatchKm();
+	}
+
 	/**
 	 * Get if eggs has hatched.
 	 * 
@@ -63,15 +235,18 @@ public class Hatchery {
 	public List<HatchedEgg> queryHatchedEggs() throws RemoteServerException, LoginFailedException {
 		GetHatchedEggsMessage msg = GetHatchedEggsMessage.newBuilder().build(); 
 		ServerRequest serverRequest = new ServerRequest(RequestType.GET_HATCHED_EGGS, msg);
-		instance.getRequestHandler().sendServerRequests(serverRequest);
+		// the hatched pokemon only come with the inventory, so fetch its delta in the same envelope
+		ServerRequest inventoryRequest = new ServerRequest(RequestType.GET_INVENTORY,
+				instance.getInventories().getDeltaMessage());
+		instance.getRequestHandler().sendServerRequests(serverRequest, inventoryRequest);
 		
 		GetHatchedEggsResponse response = null;
 		try {
 			response = GetHatchedEggsResponse.parseFrom(serverRequest.getData());
+			instance.getInventories().applyInventoryResponse(inventoryRequest.getData());
 		} catch (InvalidProtocolBufferException e) {
 			throw new RemoteServerException(e);
 		}
-		instance.getInventories().updateInventories();
 		List<HatchedEgg> eggs = new ArrayList<HatchedEgg>();
 		for (int i = 0; i < response.getPokemonIdCount(); i++) {
 			eggs.add(new HatchedEgg(response.getPokemonId(i), 
@@ -82,4 +257,95 @@ public class Hatchery {
 		return eggs;
 	}
 
+	/**
+	 * Queries the hatched eggs only when {@link #isHatchDue()}, without a request otherwise.
+	 *
+	 * @return list of hatched eggs
+	 * @throws RemoteServerException e
+	 * @throws LoginFailedException e
+	 */
+	public List<HatchedEgg> queryHatchedEggsIfDue() throws RemoteServerException, LoginFailedException {
+		if (!isHatchDue()) {
+			return new ArrayList<>();
+		}
+		return queryHatchedEggs();
+	}
+
+	/**
+	 * Fills the free incubators using {@link IncubationPolicy#LONGEST_IN_LIMITED}.
+	 *
+	 * @return the result for each incubator that was given an egg
+	 * @throws RemoteServerException e
+	 * @throws LoginFailedException e
+	 */
+	public Map<EggIncubator, UseItemEggIncubatorResponse.Result> autoIncubate()
+			throws RemoteServerException, LoginFailedException {
+		return autoIncubate(IncubationPolicy.LONGEST_IN_LIMITED);
+	}
+
+	/**
+	 * Fills the free incubators with the eggs chosen by a policy. All eggs go out in one envelope, together with
+	 * the inventory delta that brings back the updated eggs and incubators.
+	 *
+	 * @param policy the policy
+	 * @return the result for each incubator that was given an egg
+	 * @throws RemoteServerException e
+	 * @throws LoginFailedException e
+	 */
+	public Map<EggIncubator, UseItemEggIncubatorResponse.Result> autoIncubate(IncubationPolicy policy)
+			throws RemoteServerException, LoginFailedException {
+		Map<EggIncubator, UseItemEggIncubatorResponse.Result> results = new LinkedHashMap<>();
+		Map<EggIncubator, EggPokemon> assignments = policy.assign(getFreeIncubators(), getFreeEggs());
+		if (assignments.isEmpty()) {
+			return results;
+		}
+
+		List<EggIncubator> incubators = new ArrayList<>(assignments.keySet());
+		ServerRequest[] requests = new ServerRequest[incubators.size() + 1];
+		for (int i = 0; i < incubators.size(); i++) {
+			UseItemEggIncubatorMessage reqMsg = UseItemEggIncubatorMessage.newBuilder()
+					.setItemId(incubators.get(i).getId())
+					.setPokemonId(assignments.get(incubators.get(i)).getId())
+					.build();
+			requests[i] = new ServerRequest(RequestType.USE_ITEM_EGG_INCUBATOR, reqMsg);
+		}
+		ServerRequest inventoryRequest = new ServerRequest(RequestType.GET_INVENTORY,
+				instance.getInventories().getDeltaMessage());
+		requests[incubators.size()] = inventoryRequest;
+		instance.getRequestHandler().sendServerRequests(requests);
+
+		try {
+			for (int i = 0; i < incubators.size(); i++) {
+				results.put(incubators.get(i),
+						UseItemEggIncubatorResponse.parseFrom(requests[i].getData()).getResult());
+			}
+			instance.getInventories().applyInventoryResponse(inventoryRequest.getData());
+		} catch (InvalidProtocolBufferException e) {
+			throw new RemoteServerException(e);
+		}
+		return results;
+	}
+
+	/**
+	 * Eggs and incubators with the lookups between them, never modified after creation.
+	 */
+	private static final class Index {
+		private final Set<EggPokemon> eggs;
+		private final List<EggIncubator> incubators;
+		private final Map<String, EggIncubator> incubatorsById = new HashMap<>();
+		private final Map<String, EggPokemon> eggsByIncubator = new HashMap<>();
+
+		Index(Set<EggPokemon> eggs, List<EggIncubator> incubators) {
+			this.eggs = Collections.unmodifiableSet(eggs);
+			this.incubators = Collections.unmodifiableList(incubators);
+			for (EggIncubator incubator : incubators) {
+				incubatorsById.put(incubator.getId(), incubator);
+			}
+			for (EggPokemon egg : eggs) {
+				if (egg.isIncubate()) {
+					eggsByIncubator.put(egg.getEggIncubatorId(), egg);
+				}
+			}
+		}
+	}
 }
@@ -0,0 +1,69 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.pokegoapi.api.inventory;
+
+import com.pokegoapi.api.pokemon.EggPokemon;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Chooses which eggs go into free incubators, see {@link Hatchery#autoIncubate(IncubationPolicy)}.
+ */
+public interface IncubationPolicy {
+	/**
+	 * Puts the shortest eggs into the unlimited incubators, which hatch them fastest, and the longest of the
+	 * remaining eggs into the limited use incubators, so every use hatches as many kilometers as possible.
+	 */
+	IncubationPolicy LONGEST_IN_LIMITED = new IncubationPolicy() {
+		@Override
+		public Map<EggIncubator, EggPokemon> assign(List<EggIncubator> incubators, List<EggPokemon> eggs) {
+			List<EggPokemon> sorted = new ArrayList<>(eggs);
+			Collections.sort(sorted, new Comparator<EggPokemon>() {
+				@Override
+				public int compare(EggPokemon first, EggPokemon second) {
+					return Double.compare(first.getEggKmWalkedTarget(), second.getEggKmWalkedTarget());
+				}
+			});
+			Map<EggIncubator, EggPokemon> assignments = new LinkedHashMap<>();
+			// unlimited incubators first, so a limited use is only spent when there are eggs left for it
+			for (EggIncubator incubator : incubators) {
+				if (incubator.isUnlimited() && !sorted.isEmpty()) {
+					assignments.put(incubator, sorted.remove(0));
+				}
+			}
+			for (EggIncubator incubator : incubators) {
+				if (!incubator.isUnlimited() && !sorted.isEmpty()) {
+					assignments.put(incubator, sorted.remove(sorted.size() - 1));
+				}
+			}
+			return assignments;
+		}
+	};
+
+	/**
+	 * Assigns eggs to incubators.
+	 *
+	 * @param incubators the free incubators
+	 * @param eggs the eggs that are not being incubated
+	 * @return the egg to put in each incubator, incubators without an entry stay free
+	 */
+	Map<EggIncubator, EggPokemon> assign(List<EggIncubator> incubators, List<EggPokemon> eggs);
+}
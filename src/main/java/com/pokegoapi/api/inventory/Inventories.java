@@ -18,6 +18,8 @@ package com.pokegoapi.api.inventory;
 import POGOProtos.Enums.PokemonFamilyIdOuterClass;
 import POGOProtos.Enums.PokemonIdOuterClass.PokemonId;
 import POGOProtos.Inventory.EggIncubatorOuterClass;
+import POGOProtos.Inventory.EggIncubatorsOuterClass.EggIncubators;
+import POGOProtos.Inventory.InventoryDeltaOuterClass.InventoryDelta;
 import POGOProtos.Inventory.InventoryItemDataOuterClass;
 import POGOProtos.Inventory.InventoryItemOuterClass;
 import POGOProtos.Inventory.Item.ItemDataOuterClass.ItemData;
@@ -25,6 +27,8 @@ import POGOProtos.Inventory.Item.ItemIdOuterClass.ItemId;
 import POGOProtos.Networking.Requests.Messages.GetInventoryMessageOuterClass.GetInventoryMessage;
 import POGOProtos.Networking.Requests.RequestTypeOuterClass;
 import POGOProtos.Networking.Responses.GetInventoryResponseOuterClass.GetInventoryResponse;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Descriptors.FieldDescriptor;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.pokegoapi.api.PokemonGo;
 import com.pokegoapi.api.pokemon.EggPokemon;
@@ -32,15 +36,30 @@ import com.pokegoapi.api.pokemon.Pokemon;
 import com.pokegoapi.exceptions.LoginFailedException;
 import com.pokegoapi.exceptions.RemoteServerException;
 import com.pokegoapi.main.ServerRequest;
+import com.pokegoapi.util.Log;
 import lombok.Getter;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 
 public class Inventories {
+	private static final String TAG = Inventories.class.getSimpleName();
+	private static final int SNAPSHOT_VERSION = 1;
 
 	private final PokemonGo api;
+	private final InventoryStore store;
 	@Getter
 	private ItemBag itemBag;
 	@Getter
@@ -50,11 +69,14 @@ public class Inventories {
 	@Getter
 	private Pokedex pokedex;
 	@Getter
-	private List<EggIncubator> incubators;
-	@Getter
 	private Hatchery hatchery;
 
 	private long lastInventoryUpdate = 0;
+	// the raw items by identity, kept for snapshots
+	private final Map<String, InventoryItemOuterClass.InventoryItem> items = new LinkedHashMap<>();
+	@Getter
+	private volatile InventorySnapshot snapshot;
+	private final List<InventoryListener> listeners = new CopyOnWriteArrayList<>();
 
 	/**
 	 * Creates Inventories and initializes content.
@@ -64,16 +86,60 @@ public class Inventories {
 	 * @throws RemoteServerException the remote server exception
 	 */
 	public Inventories(PokemonGo api) throws LoginFailedException, RemoteServerException {
+		this(api, null);
+	}
+
+	/**
+	 * Creates Inventories, restoring the snapshot of the store if there is one, and requests the items changed
+	 * since then. The store receives a new snapshot after every update.
+	 *
+	 * @param api PokemonGo api
+	 * @param store the snapshot store, or null to always start with a full inventory
+	 * @throws LoginFailedException  the login failed exception
+	 * @throws RemoteServerException the remote server exception
+	 */
+	public Inventories(PokemonGo api, InventoryStore store) throws LoginFailedException, RemoteServerException {
 		this.api = api;
+		this.store = store;
 		itemBag = new ItemBag(api);
 		pokebank = new PokeBank(api);
 		candyjar = new CandyJar(api);
 		pokedex = new Pokedex(api);
-		incubators = new ArrayList<>();
 		hatchery = new Hatchery(api);
+		publish();
+		if (store != null) {
+			restoreSnapshot();
+		}
 		updateInventories();
 	}
 
+	/**
+	 * Registers a listener that is notified about the changes of every inventory delta applied from now on.
+	 *
+	 * @param listener the listener to add
+	 */
+	public void addInventoryListener(InventoryListener listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Removes a previously registered listener.
+	 *
+	 * @param listener the listener to remove
+	 */
+	public void removeInventoryListener(InventoryListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Gets the egg incubators, kept by the {@link Hatchery}.
+	 *
+	 * @return the incubators
+	 */
+	public List<EggIncubator> getIncubators() {
+		return hatchery.getIncubators();
+	}
+
 	/**
 	 * Updates the inventories with latest data.
 	 *
@@ -85,67 +151,192 @@ public class Inventories {
 	}
 
 	/**
-	 * Updates the inventories with the latest data.
+	 * Updates the inventories with the latest data. Unless forced, only the items changed since the last update
+	 * are requested and applied. A forced update replaces the content only once the full inventory arrived, so
+	 * readers keep seeing the previous content until then.
 	 *
 	 * @param forceUpdate For a full update if true
 	 * @throws LoginFailedException  the login failed exception
 	 * @throws RemoteServerException the remote server exception
 	 */
 	public void updateInventories(boolean forceUpdate) throws LoginFailedException, RemoteServerException {
+		GetInventoryMessage message = forceUpdate ? GetInventoryMessage.newBuilder().setLastTimestampMs(0).build()
+				: getDeltaMessage();
+		ServerRequest inventoryRequest = new ServerRequest(RequestTypeOuterClass.RequestType.GET_INVENTORY, message);
+		api.getRequestHandler().sendServerRequests(inventoryRequest);
+
+		GetInventoryResponse response;
+		try {
+			response = GetInventoryResponse.parseFrom(inventoryRequest.getData());
+		} catch (InvalidProtocolBufferException e) {
+			throw new RemoteServerException(e);
+		}
 		if (forceUpdate) {
-			lastInventoryUpdate = 0;
-			itemBag.reset(api);
-			pokebank.reset(api);
-			candyjar.reset(api);
-			pokedex.reset(api);
-			incubators = new ArrayList<>();
-			hatchery.reset(api);
-		}
-		GetInventoryMessage invReqMsg = GetInventoryMessage.newBuilder()
+			applyFullInventory(response.getInventoryDelta());
+		} else {
+			applyInventoryDelta(response.getInventoryDelta());
+		}
+	}
+
+	/**
+	 * Replaces the content with a full inventory in one step. Listeners get the differences to the items the
+	 * server sent before, including removals for items missing from the full inventory.
+	 */
+	private synchronized void applyFullInventory(InventoryDelta delta) {
+		Map<String, InventoryItemOuterClass.InventoryItem> previous = new LinkedHashMap<>(items);
+		resetContent();
+		items.putAll(previous);
+		Set<String> gone = new HashSet<>(previous.keySet());
+		for (InventoryItemOuterClass.InventoryItem inventoryItem : delta.getInventoryItemsList()) {
+			gone.remove(keyOf(inventoryItem.getInventoryItemData()));
+		}
+		for (String key : gone) {
+			InventoryItemOuterClass.InventoryItem removed = items.remove(key);
+			if (!listeners.isEmpty()) {
+				notifyRemoved(removed.getInventoryItemData());
+			}
+		}
+		applyInventoryDelta(delta);
+	}
+
+	/**
+	 * Builds a GET_INVENTORY message asking for the items changed since the last applied update.
+	 * Actions whose effects are not known locally can send it in the same envelope as their own request and pass
+	 * the response to {@link #applyInventoryResponse(ByteString)}, avoiding a separate round trip.
+	 *
+	 * @return the delta message
+	 */
+	public synchronized GetInventoryMessage getDeltaMessage() {
+		return GetInventoryMessage.newBuilder()
 				.setLastTimestampMs(lastInventoryUpdate)
 				.build();
-		ServerRequest inventoryRequest = new ServerRequest(RequestTypeOuterClass.RequestType.GET_INVENTORY, invReqMsg);
-		api.getRequestHandler().sendServerRequests(inventoryRequest);
+	}
 
-		GetInventoryResponse response = null;
+	/**
+	 * Applies a serialized GET_INVENTORY response to the inventories.
+	 *
+	 * @param data the response bytes
+	 * @throws RemoteServerException if the response could not be parsed
+	 */
+	public void applyInventoryResponse(ByteString data) throws RemoteServerException {
+		GetInventoryResponse response;
 		try {
-			response = GetInventoryResponse.parseFrom(inventoryRequest.getData());
+			response = GetInventoryResponse.parseFrom(data);
 		} catch (InvalidProtocolBufferException e) {
 			throw new RemoteServerException(e);
 		}
+		applyInventoryDelta(response.getInventoryDelta());
+	}
+
+	/**
+	 * Applies an inventory delta. Items are upserted by identity, deleted items are removed, and the
+	 * server timestamps of the delta are kept for the next delta request.
+	 *
+	 * @param delta the delta sent by the server
+	 */
+	public synchronized void applyInventoryDelta(InventoryDelta delta) {
+		apply(delta);
+		publish();
+		if (store != null && delta.getInventoryItemsCount() > 0) {
+			try {
+				store.save(createSnapshot());
+			} catch (IOException e) {
+				Log.w(TAG, "Failed to save the inventory snapshot", e);
+			}
+		}
+	}
+
+	private void apply(InventoryDelta delta) {
+		long timestamp = delta.getNewTimestampMs();
+		for (InventoryItemOuterClass.InventoryItem inventoryItem : delta.getInventoryItemsList()) {
+			timestamp = Math.max(timestamp, inventoryItem.getModifiedTimestampMs());
+
+			if (inventoryItem.getDeletedItemKey() != 0) {
+				// only pokemon and eggs are deleted, both keyed by their id
+				Pokemon removed = pokebank.removePokemonById(inventoryItem.getDeletedItemKey());
+				hatchery.removeEgg(inventoryItem.getDeletedItemKey());
+				InventoryItemOuterClass.InventoryItem deleted = items.remove("pokemon:" + inventoryItem.getDeletedItemKey());
+				if (deleted != null && !deleted.getInventoryItemData().getPokemonData().getIsEgg()) {
+					// actions like transfers already removed the pokemon from the bank locally
+					Pokemon pokemon = removed != null ? removed
+							: new Pokemon(api, deleted.getInventoryItemData().getPokemonData());
+					for (InventoryListener listener : listeners) {
+						listener.onPokemonRemoved(pokemon);
+					}
+				}
+				continue;
+			}
 
-		for (InventoryItemOuterClass.InventoryItem inventoryItem
-				: response.getInventoryDelta().getInventoryItemsList()) {
 			InventoryItemDataOuterClass.InventoryItemData itemData = inventoryItem.getInventoryItemData();
+			InventoryItemOuterClass.InventoryItem previousItem = items.put(keyOf(itemData), inventoryItem);
+			// changes are reported against the state the server sent before, not the local state, which actions
+			// already changed ahead of the server
+			InventoryItemDataOuterClass.InventoryItemData previousData =
+					previousItem == null ? null : previousItem.getInventoryItemData();
+			// items the server repeats without changes are applied again but not reported
+			boolean notify = !listeners.isEmpty() && !itemData.equals(previousData);
 
 			// hatchery
 			if (itemData.getPokemonData().getPokemonId() == PokemonId.MISSINGNO && itemData.getPokemonData().getIsEgg()) {
+				hatchery.removeEgg(itemData.getPokemonData().getId());
 				hatchery.addEgg(new EggPokemon(itemData.getPokemonData()));
 			}
 
 			// pokebank
 			if (itemData.getPokemonData().getPokemonId() != PokemonId.MISSINGNO) {
-				pokebank.addPokemon(new Pokemon(api, inventoryItem.getInventoryItemData().getPokemonData()));
+				pokebank.removePokemonById(itemData.getPokemonData().getId());
+				Pokemon pokemon = new Pokemon(api, itemData.getPokemonData());
+				pokebank.addPokemon(pokemon);
+				if (notify) {
+					Pokemon previous = previousData == null ? null : new Pokemon(api, previousData.getPokemonData());
+					for (InventoryListener listener : listeners) {
+						if (previous == null) {
+							listener.onPokemonAdded(pokemon);
+						} else {
+							listener.onPokemonUpdated(previous, pokemon);
+						}
+					}
+				}
 			}
 
 			// items
 			if (itemData.getItem().getItemId() != ItemId.UNRECOGNIZED
 					&& itemData.getItem().getItemId() != ItemId.ITEM_UNKNOWN) {
 				ItemData item = itemData.getItem();
+				int previousCount = previousData == null ? 0 : previousData.getItem().getCount();
 				itemBag.addItem(new Item(item));
+				if (notify && previousCount != item.getCount()) {
+					for (InventoryListener listener : listeners) {
+						listener.onItemCountChanged(item.getItemId(), previousCount, item.getCount());
+					}
+				}
 			}
 
 			// candyjar
 			if (itemData.getCandy().getFamilyId() != PokemonFamilyIdOuterClass.PokemonFamilyId.UNRECOGNIZED
 					&& itemData.getCandy().getFamilyId() != PokemonFamilyIdOuterClass.PokemonFamilyId.FAMILY_UNSET) {
+				int previousCandies = previousData == null ? 0 : previousData.getCandy().getCandy();
 				candyjar.setCandy(
 						itemData.getCandy().getFamilyId(),
 						itemData.getCandy().getCandy()
 				);
+				if (notify && previousCandies != itemData.getCandy().getCandy()) {
+					for (InventoryListener listener : listeners) {
+						listener.onCandyChanged(itemData.getCandy().getFamilyId(), previousCandies,
+								itemData.getCandy().getCandy());
+					}
+				}
 			}
 			// player stats
 			if (itemData.hasPlayerStats()) {
-				api.getPlayerProfile().setStats(new Stats(itemData.getPlayerStats()));
+				Stats stats = new Stats(itemData.getPlayerStats());
+				api.getPlayerProfile().setStats(stats);
+				hatchery.setKmWalked(itemData.getPlayerStats().getKmWalked());
+				if (notify) {
+					for (InventoryListener listener : listeners) {
+						listener.onStatsChanged(stats);
+					}
+				}
 			}
 
 			// pokedex
@@ -153,13 +344,151 @@ public class Inventories {
 				pokedex.add(itemData.getPokedexEntry());
 			}
 
+			// the incubators item always carries the complete list
 			if (itemData.hasEggIncubators()) {
+				List<EggIncubator> updated = new ArrayList<>();
 				for (EggIncubatorOuterClass.EggIncubator incubator : itemData.getEggIncubators().getEggIncubatorList()) {
-					incubators.add(new EggIncubator(api, incubator));
+					updated.add(new EggIncubator(api, incubator));
+				}
+				hatchery.setIncubators(updated);
+				if (notify) {
+					notifyIncubatorChanges(previousData == null ? null : previousData.getEggIncubators(), updated);
+				}
+			}
+		}
+		if (timestamp > lastInventoryUpdate) {
+			lastInventoryUpdate = timestamp;
+		}
+	}
+
+	/**
+	 * Reports an item that is missing from a full inventory.
+	 */
+	private void notifyRemoved(InventoryItemDataOuterClass.InventoryItemData itemData) {
+		for (InventoryListener listener : listeners) {
+			if (itemData.hasPokemonData() && !itemData.getPokemonData().getIsEgg()) {
+				listener.onPokemonRemoved(new Pokemon(api, itemData.getPokemonData()));
+			}
+			if (itemData.hasItem() && itemData.getItem().getItemId() != ItemId.UNRECOGNIZED
+					&& itemData.getItem().getCount() != 0) {
+				listener.onItemCountChanged(itemData.getItem().getItemId(), itemData.getItem().getCount(), 0);
+			}
+			if (itemData.hasCandy()
+					&& itemData.getCandy().getFamilyId() != PokemonFamilyIdOuterClass.PokemonFamilyId.UNRECOGNIZED
+					&& itemData.getCandy().getCandy() != 0) {
+				listener.onCandyChanged(itemData.getCandy().getFamilyId(), itemData.getCandy().getCandy(), 0);
+			}
+			if (itemData.hasEggIncubators()) {
+				for (EggIncubatorOuterClass.EggIncubator incubator
+						: itemData.getEggIncubators().getEggIncubatorList()) {
+					listener.onIncubatorChanged(new EggIncubator(api, incubator), null);
+				}
+			}
+		}
+	}
+
+	private void notifyIncubatorChanges(EggIncubators previous, List<EggIncubator> updated) {
+		Map<String, EggIncubator> gone = new LinkedHashMap<>();
+		if (previous != null) {
+			for (EggIncubatorOuterClass.EggIncubator incubator : previous.getEggIncubatorList()) {
+				gone.put(incubator.getId(), new EggIncubator(api, incubator));
+			}
+		}
+		for (EggIncubator incubator : updated) {
+			EggIncubator before = gone.remove(incubator.getId());
+			if (before == null || !before.getProto().equals(incubator.getProto())) {
+				for (InventoryListener listener : listeners) {
+					listener.onIncubatorChanged(before, incubator);
 				}
 			}
+		}
+		for (EggIncubator incubator : gone.values()) {
+			for (InventoryListener listener : listeners) {
+				listener.onIncubatorChanged(incubator, null);
+			}
+		}
+	}
+
+	/**
+	 * Publishes a new {@link InventorySnapshot} of the current content. Called after every applied delta, and by
+	 * actions that change the inventories locally.
+	 */
+	public synchronized void publish() {
+		long version = snapshot == null ? 1 : snapshot.getVersion() + 1;
+		snapshot = new InventorySnapshot(version, lastInventoryUpdate, pokebank.getPokemons(),
+				hatchery.getEggs(), hatchery.getIncubators(), itemBag.copyCounts(), candyjar.copyCandies(),
+				pokedex.copyEntries());
+	}
 
-			lastInventoryUpdate = api.currentTimeMillis();
+	/**
+	 * Identity of an inventory item: pokemon and eggs by id, items, candy and pokedex entries by their type,
+	 * and every other kind of item by the field it sets.
+	 */
+	private static String keyOf(InventoryItemDataOuterClass.InventoryItemData itemData) {
+		if (itemData.hasPokemonData()) {
+			return "pokemon:" + itemData.getPokemonData().getId();
+		}
+		if (itemData.hasItem()) {
+			return "item:" + itemData.getItem().getItemIdValue();
+		}
+		if (itemData.hasCandy()) {
+			return "candy:" + itemData.getCandy().getFamilyIdValue();
 		}
+		if (itemData.hasPokedexEntry()) {
+			return "pokedex:" + itemData.getPokedexEntry().getPokemonIdValue();
+		}
+		Iterator<FieldDescriptor> fields = itemData.getAllFields().keySet().iterator();
+		return fields.hasNext() ? fields.next().getName() : "";
+	}
+
+	/**
+	 * Serializes the last server timestamp followed by the length-delimited raw items.
+	 */
+	private byte[] createSnapshot() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(SNAPSHOT_VERSION);
+		out.writeLong(lastInventoryUpdate);
+		for (InventoryItemOuterClass.InventoryItem item : items.values()) {
+			item.writeDelimitedTo(out);
+		}
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Applies the snapshot of the store, a missing or damaged snapshot leaves the inventories empty.
+	 */
+	private synchronized void restoreSnapshot() {
+		try {
+			byte[] snapshot = store.load();
+			if (snapshot == null) {
+				return;
+			}
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(snapshot));
+			if (in.readInt() != SNAPSHOT_VERSION) {
+				Log.w(TAG, "Ignoring inventory snapshot with unknown version");
+				return;
+			}
+			InventoryDelta.Builder delta = InventoryDelta.newBuilder().setNewTimestampMs(in.readLong());
+			InventoryItemOuterClass.InventoryItem item;
+			while ((item = InventoryItemOuterClass.InventoryItem.parseDelimitedFrom(in)) != null) {
+				delta.addInventoryItems(item);
+			}
+			apply(delta.build());
+		} catch (IOException e) {
+			Log.w(TAG, "Failed to restore the inventory snapshot", e);
+			resetContent();
+		}
+	}
+
+	private void resetContent() {
+		lastInventoryUpdate = 0;
+		items.clear();
+		itemBag.reset(api);
+		pokebank.reset(api);
+		candyjar.reset(api);
+		pokedex.reset(api);
+		hatchery.reset(api);
 	}
 }
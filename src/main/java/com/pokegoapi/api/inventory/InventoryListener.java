@@ -0,0 +1,87 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.pokegoapi.api.inventory;
+
+import POGOProtos.Enums.PokemonFamilyIdOuterClass.PokemonFamilyId;
+import POGOProtos.Inventory.Item.ItemIdOuterClass.ItemId;
+import com.pokegoapi.api.pokemon.Pokemon;
+
+/**
+ * Receives incremental changes of the inventories, computed item by item while an inventory delta is applied.
+ * Every item is compared with the version the server sent before, so changes that actions such as transfers,
+ * evolutions and power ups apply locally are reported once the server confirms them, with the previous values of
+ * the server. Items the delta repeats without changes are not reported. A forced full update is compared the same
+ * way, and items missing from it are reported as removed or dropping to 0. Listeners are called on the thread applying
+ * the delta while the inventories are locked; the {@link InventorySnapshot} containing the changes is published
+ * once the whole delta is applied.
+ */
+public interface InventoryListener {
+
+	/**
+	 * Called when a pokemon is added to the bank.
+	 *
+	 * @param pokemon the new pokemon
+	 */
+	void onPokemonAdded(Pokemon pokemon);
+
+	/**
+	 * Called when the server sends a changed version of a pokemon it sent before.
+	 *
+	 * @param previous the pokemon as the server sent it before, not part of the bank
+	 * @param pokemon  the updated pokemon
+	 */
+	void onPokemonUpdated(Pokemon previous, Pokemon pokemon);
+
+	/**
+	 * Called when the server deletes a pokemon, for example after a transfer or an evolution.
+	 *
+	 * @param pokemon the removed pokemon, as the server sent it before if the bank no longer held it
+	 */
+	void onPokemonRemoved(Pokemon pokemon);
+
+	/**
+	 * Called when the count of an item changed.
+	 *
+	 * @param id            the item
+	 * @param previousCount the count the server sent before
+	 * @param count         the new count
+	 */
+	void onItemCountChanged(ItemId id, int previousCount, int count);
+
+	/**
+	 * Called when the candy of a family changed.
+	 *
+	 * @param family          the family
+	 * @param previousCandies the candies the server sent before
+	 * @param candies         the new candies
+	 */
+	void onCandyChanged(PokemonFamilyId family, int previousCandies, int candies);
+
+	/**
+	 * Called when the player stats changed.
+	 *
+	 * @param stats the new stats
+	 */
+	void onStatsChanged(Stats stats);
+
+	/**
+	 * Called when an incubator was added, changed or used up.
+	 *
+	 * @param previous  the incubator as the server sent it before, null if it is new
+	 * @param incubator the updated incubator, null if it is gone
+	 */
+	void onIncubatorChanged(EggIncubator previous, EggIncubator incubator);
+}
@@ -0,0 +1,136 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.pokegoapi.api.inventory;
+
+import POGOProtos.Data.PokedexEntryOuterClass.PokedexEntry;
+import POGOProtos.Data.PokemonDataOuterClass.PokemonData;
+import POGOProtos.Enums.PokemonFamilyIdOuterClass.PokemonFamilyId;
+import POGOProtos.Enums.PokemonIdOuterClass.PokemonId;
+import POGOProtos.Inventory.Item.ItemIdOuterClass.ItemId;
+import com.pokegoapi.api.pokemon.EggPokemon;
+import com.pokegoapi.api.pokemon.Pokemon;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable view of the inventories at one point in time. {@link Inventories} publishes a new snapshot after
+ * every applied change, so readers on any thread see a consistent inventory without locking.
+ * Pokemon and eggs are kept as their protos, because the {@link Pokemon} objects of the bank change in place.
+ */
+public final class InventorySnapshot {
+	/**
+	 * Increases by one with every published snapshot.
+	 */
+	@Getter
+	private final long version;
+	/**
+	 * The server timestamp of the last applied inventory delta.
+	 */
+	@Getter
+	private final long timestamp;
+	@Getter
+	private final List<PokemonData> pokemons;
+	@Getter
+	private final List<PokemonData> eggs;
+	@Getter
+	private final List<EggIncubator> incubators;
+	// indexed by enum number
+	private final int[] items;
+	private final int[] candies;
+	private final PokedexEntry[] pokedex;
+	/**
+	 * The total count of all items.
+	 */
+	@Getter
+	private final int itemsCount;
+
+	InventorySnapshot(long version, long timestamp, List<Pokemon> pokemons, Set<EggPokemon> eggs,
+			List<EggIncubator> incubators, int[] items, int[] candies, PokedexEntry[] pokedex) {
+		this.version = version;
+		this.timestamp = timestamp;
+		List<PokemonData> pokemonProtos = new ArrayList<>(pokemons.size());
+		for (Pokemon pokemon : pokemons) {
+			pokemonProtos.add(pokemon.getProto());
+		}
+		this.pokemons = Collections.unmodifiableList(pokemonProtos);
+		List<PokemonData> eggProtos = new ArrayList<>(eggs.size());
+		for (EggPokemon egg : eggs) {
+			eggProtos.add(egg.getProto());
+		}
+		this.eggs = Collections.unmodifiableList(eggProtos);
+		this.incubators = Collections.unmodifiableList(incubators);
+		this.items = items;
+		int total = 0;
+		for (int count : items) {
+			total += count;
+		}
+		this.itemsCount = total;
+		this.candies = candies;
+		this.pokedex = pokedex;
+	}
+
+	/**
+	 * Gets the count of an item.
+	 *
+	 * @param id the item
+	 * @return the count, 0 if the player has none
+	 */
+	public int getItemCount(ItemId id) {
+		return items[id.getNumber()];
+	}
+
+	/**
+	 * Gets the count of every item the player has.
+	 *
+	 * @return a new map with the non zero item counts
+	 */
+	public Map<ItemId, Integer> getItemCounts() {
+		Map<ItemId, Integer> counts = new EnumMap<>(ItemId.class);
+		for (ItemId id : ItemId.values()) {
+			if (id != ItemId.UNRECOGNIZED && items[id.getNumber()] > 0) {
+				counts.put(id, items[id.getNumber()]);
+			}
+		}
+		return counts;
+	}
+
+
+	/**
+	 * Gets the candies of a family.
+	 *
+	 * @param family the family
+	 * @return the candies, 0 if the player has none
+	 */
+	public int getCandies(PokemonFamilyId family) {
+		return candies[family.getNumber()];
+	}
+
+	/**
+	 * Gets a pokedex entry.
+	 *
+	 * @param id the pokemon
+	 * @return the entry, or null if the pokemon is not in the pokedex
+	 */
+	public PokedexEntry getPokedexEntry(PokemonId id) {
+		return pokedex[id.getNumber()];
+	}
+}
@@ -0,0 +1,40 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.pokegoapi.api.inventory;
+
+import java.io.IOException;
+
+/**
+ * Storage for inventory snapshots, so a restarted session only needs the inventory delta since the snapshot.
+ * The snapshot is opaque to the store; {@link Inventories} writes it after every update.
+ */
+public interface InventoryStore {
+	/**
+	 * Loads the last saved snapshot.
+	 *
+	 * @return the snapshot, or null if none was saved
+	 * @throws IOException if the snapshot could not be read
+	 */
+	byte[] load() throws IOException;
+
+	/**
+	 * Saves a snapshot, replacing the previous one.
+	 *
+	 * @param snapshot the snapshot
+	 * @throws IOException if the snapshot could not be written
+	 */
+	void save(byte[] snapshot) throws IOException;
+}
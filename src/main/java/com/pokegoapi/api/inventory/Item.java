@@ -17,20 +17,43 @@ package com.pokegoapi.api.inventory;
 
 import POGOProtos.Inventory.Item.ItemDataOuterClass;
 import POGOProtos.Inventory.Item.ItemIdOuterClass.ItemId;
+import lombok.AccessLevel;
 import lombok.Getter;
-import lombok.Setter;
 
 public class Item {
-	private ItemDataOuterClass.ItemData proto;
-	@Getter
-	@Setter
+	@Getter(AccessLevel.PACKAGE)
+	private final ItemDataOuterClass.ItemData proto;
+	// the bag holding the count of this item, null for an item outside of a bag
+	private final ItemBag bag;
 	private int count;
 
 	public Item(ItemDataOuterClass.ItemData proto) {
+		this(proto, null);
+	}
+
+	Item(ItemDataOuterClass.ItemData proto, ItemBag bag) {
 		this.proto = proto;
+		this.bag = bag;
 		this.count = proto.getCount();
 	}
 
+	public int getCount() {
+		return bag == null ? count : bag.getItemCount(getItemId());
+	}
+
+	/**
+	 * Sets the count of this item, updating the bag it belongs to.
+	 *
+	 * @param count the new count
+	 */
+	public void setCount(int count) {
+		if (bag == null) {
+			this.count = count;
+		} else {
+			bag.setItemCount(getItemId(), count);
+		}
+	}
+
 	public ItemId getItemId() {
 		return proto.getItemId();
 	}
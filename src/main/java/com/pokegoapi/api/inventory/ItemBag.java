@@ -28,29 +28,79 @@ import com.pokegoapi.api.PokemonGo;
 import com.pokegoapi.exceptions.LoginFailedException;
 import com.pokegoapi.exceptions.RemoteServerException;
 import com.pokegoapi.main.ServerRequest;
+import com.pokegoapi.util.EnumCounters;
 import com.pokegoapi.util.Log;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * The type Bag.
+ * Counts are kept in an array indexed by item id number, the Item objects of the bag read their count from it.
  */
 public class ItemBag {
 	private PokemonGo pgo;
-	private HashMap<ItemId, Item> items;
+	private final EnumCounters<ItemId> counts = new EnumCounters<>(ItemId.class);
+	private final AtomicReferenceArray<Item> items = new AtomicReferenceArray<>(EnumCounters.sizeOf(ItemId.class));
 
 	public ItemBag(PokemonGo pgo) {
 		reset(pgo);
 	}
 
-	public void reset(PokemonGo pgo) {
+	/**
+	 * Removes all items.
+	 *
+	 * @param pgo the api
+	 */
+	public synchronized void reset(PokemonGo pgo) {
 		this.pgo = pgo;
-		items = new HashMap<>();
+		counts.clear();
+		for (int i = 0; i < items.length(); i++) {
+			items.set(i, null);
+		}
 	}
 
+	/**
+	 * Adds an item to the bag, replacing the item with the same id.
+	 *
+	 * @param item the item
+	 */
 	public void addItem(Item item) {
-		items.put(item.getItemId(), item);
+		items.set(item.getItemId().getNumber(), new Item(item.getProto(), this));
+		counts.set(item.getItemId(), item.getCount());
+	}
+
+	/**
+	 * Gets the count of an item.
+	 *
+	 * @param id the item id
+	 * @return the count, 0 if the bag holds none
+	 */
+	public int getItemCount(ItemId id) {
+		return counts.get(id);
+	}
+
+	/**
+	 * Sets the count of an item.
+	 *
+	 * @param id the item id
+	 * @param count the new count
+	 */
+	public void setItemCount(ItemId id, int count) {
+		counts.set(id, count);
+	}
+
+	/**
+	 * Adds to the count of an item.
+	 *
+	 * @param id the item id
+	 * @param amount the amount to add, negative to remove
+	 * @return the new count
+	 */
+	public int addItemCount(ItemId id, int amount) {
+		return counts.add(id, amount);
 	}
 
 	/**
@@ -67,8 +117,7 @@ public class ItemBag {
 	 *             the login failed exception
 	 */
 	public Result removeItem(ItemId id, int quantity) throws RemoteServerException, LoginFailedException {
-		Item item = getItem(id);
-		if (item.getCount() < quantity) {
+		if (getItemCount(id) < quantity) {
 			throw new IllegalArgumentException("You cannont remove more quantity than you have");
 		}
 
@@ -88,7 +137,8 @@ public class ItemBag {
 
 		if (response
 				.getResult() == RecycleInventoryItemResponseOuterClass.RecycleInventoryItemResponse.Result.SUCCESS) {
-			item.setCount(response.getNewCount());
+			setItemCount(id, response.getNewCount());
+			pgo.getInventories().publish();
 		}
 		return response.getResult();
 	}
@@ -105,16 +155,30 @@ public class ItemBag {
 			throw new IllegalArgumentException("You cannot get item for UNRECOGNIZED");
 		}
 
-		// prevent returning null
-		if (!items.containsKey(type)) {
-			return new Item(ItemData.newBuilder().setCount(0).setItemId(type).build());
+		// prevent returning null, the empty item is kept so later calls do not allocate
+		Item item = items.get(type.getNumber());
+		if (item == null) {
+			items.compareAndSet(type.getNumber(), null,
+					new Item(ItemData.newBuilder().setCount(0).setItemId(type).build(), this));
+			item = items.get(type.getNumber());
 		}
-
-		return items.get(type);
+		return item;
 	}
 
+	/**
+	 * Gets the items the bag holds at least one of.
+	 *
+	 * @return a new collection with the items
+	 */
 	public Collection<Item> getItems() {
-		return items.values();
+		List<Item> list = new ArrayList<>();
+		for (int i = 0; i < items.length(); i++) {
+			Item item = items.get(i);
+			if (item != null && item.getCount() > 0) {
+				list.add(item);
+			}
+		}
+		return list;
 	}
 
 	/**
@@ -127,11 +191,29 @@ public class ItemBag {
 	 *             the login failed exception
 	 */
 	public int getItemsCount() {
-		int ct = 0;
-		for (Item item : items.values()) {
-			ct += item.getCount();
-		}
-		return ct;
+		return counts.total();
+	}
+
+	/**
+	 * Gets the free space of the bag, from the item storage of the player.
+	 *
+	 * @return the number of items that still fit in the bag
+	 * @throws RemoteServerException
+	 *             the remote server exception
+	 * @throws LoginFailedException
+	 *             the login failed exception
+	 */
+	public int getFreeSpace() throws RemoteServerException, LoginFailedException {
+		return pgo.getPlayerProfile().getPlayerData().getMaxItemStorage() - counts.total();
+	}
+
+	/**
+	 * Copies the item counts.
+	 *
+	 * @return the counts indexed by item id number
+	 */
+	int[] copyCounts() {
+		return counts.toArray();
 	}
 
 	/**
@@ -15,22 +15,44 @@
 
 package com.pokegoapi.api.inventory;
 
+import POGOProtos.Enums.PokemonFamilyIdOuterClass.PokemonFamilyId;
 import POGOProtos.Enums.PokemonIdOuterClass;
-import com.annimon.stream.Collectors;
-import com.annimon.stream.Stream;
-import com.annimon.stream.function.Predicate;
+import POGOProtos.Networking.Requests.Messages.ReleasePokemonMessageOuterClass.ReleasePokemonMessage;
+import POGOProtos.Networking.Requests.RequestTypeOuterClass.RequestType;
+import POGOProtos.Networking.Responses.ReleasePokemonResponseOuterClass.ReleasePokemonResponse;
+import com.google.protobuf.InvalidProtocolBufferException;
 import com.pokegoapi.api.PokemonGo;
 import com.pokegoapi.api.pokemon.Pokemon;
+import com.pokegoapi.api.pokemon.PokemonMeta;
+import com.pokegoapi.exceptions.LoginFailedException;
+import com.pokegoapi.exceptions.RemoteServerException;
+import com.pokegoapi.main.ServerRequest;
+import com.pokegoapi.util.LongHashMap;
 import lombok.Getter;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 
+/**
+ * The player's pokemon, indexed by id, by species and by family so lookups and mutations do not scan the bank.
+ */
 public class PokeBank {
-	@Getter
-	List<Pokemon> pokemons = Collections.synchronizedList(new ArrayList<Pokemon>());
+	/**
+	 * Maximum number of release requests packed into one envelope.
+	 */
+	public static final int MAX_RELEASES_PER_ENVELOPE = 50;
+
+	private final LongHashMap<Pokemon> pokemonsById = new LongHashMap<>(256);
+	private final Map<PokemonIdOuterClass.PokemonId, LongHashMap<Pokemon>> pokemonsBySpecies =
+			new EnumMap<>(PokemonIdOuterClass.PokemonId.class);
+	private final Map<PokemonFamilyId, LongHashMap<Pokemon>> pokemonsByFamily = new EnumMap<>(PokemonFamilyId.class);
+	private final PokemonTable table = new PokemonTable();
 	@Getter
 	PokemonGo instance;
 
@@ -38,40 +60,65 @@ public class PokeBank {
 		reset(pgo);
 	}
 
-	public void reset(PokemonGo pgo) {
+	/**
+	 * Removes all pokemon from the bank.
+	 *
+	 * @param pgo the api
+	 */
+	public synchronized void reset(PokemonGo pgo) {
 		this.instance = pgo;
-		pokemons = new ArrayList<>();
+		pokemonsById.clear();
+		pokemonsBySpecies.clear();
+		pokemonsByFamily.clear();
+		table.clear();
 	}
 
 	/**
 	 * Add a pokemon to the pokebank inventory.  Will not add duplicates (pokemon with same id).
 	 * @param pokemon Pokemon to add to the inventory
 	 */
-	public void addPokemon(final Pokemon pokemon) {
-		List<Pokemon> alreadyAdded = Stream.of(pokemons).filter(new Predicate<Pokemon>() {
-			@Override
-			public boolean test(Pokemon testPokemon) {
-				return pokemon.getId() == testPokemon.getId();
-			}
-		}).collect(Collectors.<Pokemon>toList());
-		if (alreadyAdded.size() < 1) {
-			pokemons.add(pokemon);
+	public synchronized void addPokemon(final Pokemon pokemon) {
+		if (pokemonsById.containsKey(pokemon.getId())) {
+			return;
+		}
+		pokemonsById.put(pokemon.getId(), pokemon);
+		table.add(pokemon);
+		index(pokemonsBySpecies, pokemon.getPokemonId(), pokemon);
+		PokemonFamilyId family = getFamily(pokemon);
+		if (family != null) {
+			index(pokemonsByFamily, family, pokemon);
 		}
 	}
 
+	/**
+	 * Gets all pokemon in the bank.
+	 *
+	 * @return a new list with the pokemon
+	 */
+	public synchronized List<Pokemon> getPokemons() {
+		return pokemonsById.values();
+	}
+
 	/**
 	 * Gets pokemon by pokemon id.
 	 *
 	 * @param id the id
 	 * @return the pokemon by pokemon id
 	 */
-	public List<Pokemon> getPokemonByPokemonId(final PokemonIdOuterClass.PokemonId id) {
-		return Stream.of(pokemons).filter(new Predicate<Pokemon>() {
-			@Override
-			public boolean test(Pokemon pokemon) {
-				return pokemon.getPokemonId().equals(id);
-			}
-		}).collect(Collectors.<Pokemon>toList());
+	public synchronized List<Pokemon> getPokemonByPokemonId(final PokemonIdOuterClass.PokemonId id) {
+		LongHashMap<Pokemon> pokemons = pokemonsBySpecies.get(id);
+		return pokemons == null ? new ArrayList<Pokemon>() : pokemons.values();
+	}
+
+	/**
+	 * Gets the pokemon of a family.
+	 *
+	 * @param family the family
+	 * @return the pokemon of the family
+	 */
+	public synchronized List<Pokemon> getPokemonByFamily(final PokemonFamilyId family) {
+		LongHashMap<Pokemon> pokemons = pokemonsByFamily.get(family);
+		return pokemons == null ? new ArrayList<Pokemon>() : pokemons.values();
 	}
 
 	/**
@@ -80,12 +127,28 @@ public class PokeBank {
 	 * @param pokemon the pokemon
 	 */
 	public void removePokemon(final Pokemon pokemon) {
-		pokemons = Stream.of(pokemons).filter(new Predicate<Pokemon>() {
-			@Override
-			public boolean test(Pokemon pokemn) {
-				return pokemn.getId() != pokemon.getId();
-			}
-		}).collect(Collectors.<Pokemon>toList());
+		removePokemonById(pokemon.getId());
+	}
+
+	/**
+	 * Remove the pokemon with the given id.
+	 *
+	 * @param id the pokemon id
+	 * @return the removed pokemon, or null if it was not in the bank
+	 */
+	public synchronized Pokemon removePokemonById(long id) {
+		// the stored instance may differ from the one a caller holds, so the secondary indices use the stored one
+		Pokemon removed = pokemonsById.remove(id);
+		if (removed == null) {
+			return null;
+		}
+		table.remove(id);
+		unindex(pokemonsBySpecies, removed.getPokemonId(), removed);
+		PokemonFamilyId family = getFamily(removed);
+		if (family != null) {
+			unindex(pokemonsByFamily, family, removed);
+		}
+		return removed;
 	}
 
 	/**
@@ -94,12 +157,158 @@ public class PokeBank {
 	 * @param id the id
 	 * @return the pokemon
 	 */
-	public Pokemon getPokemonById(final Long id) {
+	public synchronized Pokemon getPokemonById(final Long id) {
+		return pokemonsById.get(id);
+	}
+
+	/**
+	 * Gets the number of pokemon in the bank.
+	 *
+	 * @return the number of pokemon
+	 */
+	public synchronized int size() {
+		return pokemonsById.size();
+	}
+
+	/**
+	 * Recomputes the stats of a pokemon after it changed, such as after a power up.
+	 * Instances that are not the one stored in the bank, such as one replaced by a later inventory delta, are
+	 * ignored, so the table always describes the stored pokemon.
+	 *
+	 * @param pokemon the pokemon
+	 */
+	public synchronized void refresh(Pokemon pokemon) {
+		if (pokemonsById.get(pokemon.getId()) == pokemon) {
+			table.update(pokemon);
+		}
+	}
+
+	/**
+	 * Runs a query over the precomputed stats of the pokemon, without allocating.
+	 *
+	 * @param query the query
+	 * @param out the array receiving the selected pokemon, the selection stops when it is full
+	 * @return the number of pokemon written to the array
+	 */
+	public synchronized int select(PokemonQuery query, Pokemon[] out) {
+		return table.select(query, out);
+	}
+
+	/**
+	 * Runs a query over the precomputed stats of the pokemon.
+	 *
+	 * @param query the query
+	 * @return the selected pokemon
+	 */
+	public synchronized List<Pokemon> select(PokemonQuery query) {
+		Pokemon[] out = new Pokemon[pokemonsById.size()];
+		return new ArrayList<>(Arrays.asList(out).subList(0, table.select(query, out)));
+	}
+
+	/**
+	 * Gets the free space of the bank, from the pokemon storage of the player. Eggs take space too.
+	 *
+	 * @return the number of pokemon that still fit in the bank
+	 * @throws LoginFailedException  the login failed exception
+	 * @throws RemoteServerException the remote server exception
+	 */
+	public int getFreeSpace() throws LoginFailedException, RemoteServerException {
+		return instance.getPlayerProfile().getPlayerData().getMaxPokemonStorage() - size()
+				- instance.getInventories().getHatchery().getEggs().size();
+	}
+
+	/**
+	 * Transfers many pokemon, packing up to {@link #MAX_RELEASES_PER_ENVELOPE} releases into each envelope.
+	 * The bank and the candy jar are updated after every envelope, so when a later envelope fails the releases
+	 * already answered are still applied locally.
+	 *
+	 * @param pokemons the pokemon to transfer
+	 * @return the result of each transfer, in iteration order of the given pokemon
+	 * @throws LoginFailedException  the login failed exception
+	 * @throws RemoteServerException the remote server exception
+	 */
+	public Map<Pokemon, ReleasePokemonResponse.Result> transferPokemons(Collection<Pokemon> pokemons)
+			throws LoginFailedException, RemoteServerException {
+		Map<Pokemon, ReleasePokemonResponse.Result> results = new LinkedHashMap<>();
+		List<Pokemon> transferred = new ArrayList<>(MAX_RELEASES_PER_ENVELOPE);
+		Map<PokemonFamilyId, Integer> candies = new EnumMap<>(PokemonFamilyId.class);
+
+		List<Pokemon> batch = new ArrayList<>(MAX_RELEASES_PER_ENVELOPE);
+		List<ServerRequest> requests = new ArrayList<>(MAX_RELEASES_PER_ENVELOPE);
+		int remaining = pokemons.size();
 		for (Pokemon pokemon : pokemons) {
-			if (pokemon.getId() == id) {
-				return pokemon;
+			ReleasePokemonMessage reqMsg = ReleasePokemonMessage.newBuilder().setPokemonId(pokemon.getId()).build();
+			batch.add(pokemon);
+			requests.add(new ServerRequest(RequestType.RELEASE_POKEMON, reqMsg));
+			remaining--;
+			if (batch.size() < MAX_RELEASES_PER_ENVELOPE && remaining > 0) {
+				continue;
+			}
+
+			instance.getRequestHandler().sendServerRequests(requests.toArray(new ServerRequest[requests.size()]));
+			for (int i = 0; i < batch.size(); i++) {
+				Pokemon released = batch.get(i);
+				ReleasePokemonResponse response;
+				try {
+					response = ReleasePokemonResponse.parseFrom(requests.get(i).getData());
+				} catch (InvalidProtocolBufferException e) {
+					results.put(released, ReleasePokemonResponse.Result.FAILED);
+					continue;
+				}
+				results.put(released, response.getResult());
+				if (response.getResult() == ReleasePokemonResponse.Result.SUCCESS) {
+					transferred.add(released);
+					PokemonFamilyId family = getFamily(released);
+					if (family != null && response.getCandyAwarded() > 0) {
+						Integer candy = candies.get(family);
+						candies.put(family, (candy == null ? 0 : candy) + response.getCandyAwarded());
+					}
+				}
+			}
+			applyTransfers(transferred, candies);
+			batch.clear();
+			requests.clear();
+			transferred.clear();
+			candies.clear();
+		}
+		return results;
+	}
+
+	private void applyTransfers(List<Pokemon> transferred, Map<PokemonFamilyId, Integer> candies)
+			throws LoginFailedException, RemoteServerException {
+		synchronized (this) {
+			for (Pokemon pokemon : transferred) {
+				removePokemonById(pokemon.getId());
+			}
+		}
+		CandyJar candyjar = instance.getInventories().getCandyjar();
+		for (Map.Entry<PokemonFamilyId, Integer> entry : candies.entrySet()) {
+			candyjar.addCandy(entry.getKey(), entry.getValue());
+		}
+		instance.getInventories().publish();
+	}
+
+	private static PokemonFamilyId getFamily(Pokemon pokemon) {
+		PokemonMeta meta = pokemon.getMeta();
+		return meta == null ? null : meta.getFamily();
+	}
+
+	private static <K> void index(Map<K, LongHashMap<Pokemon>> index, K key, Pokemon pokemon) {
+		LongHashMap<Pokemon> pokemons = index.get(key);
+		if (pokemons == null) {
+			pokemons = new LongHashMap<>();
+			index.put(key, pokemons);
+		}
+		pokemons.put(pokemon.getId(), pokemon);
+	}
+
+	private static <K> void unindex(Map<K, LongHashMap<Pokemon>> index, K key, Pokemon pokemon) {
+		LongHashMap<Pokemon> pokemons = index.get(key);
+		if (pokemons != null) {
+			pokemons.remove(pokemon.getId());
+			if (pokemons.isEmpty()) {
+				index.remove(key);
 			}
 		}
-		return null;
 	}
 }
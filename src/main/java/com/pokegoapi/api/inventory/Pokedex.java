@@ -18,22 +18,31 @@ package com.pokegoapi.api.inventory;
 import POGOProtos.Data.PokedexEntryOuterClass.PokedexEntry;
 import POGOProtos.Enums.PokemonIdOuterClass.PokemonId;
 import com.pokegoapi.api.PokemonGo;
+import com.pokegoapi.util.EnumCounters;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 public class Pokedex {
 
 	private PokemonGo api;
-	private Map<PokemonId, PokedexEntry> pokedexMap = new HashMap<>();
+	// indexed by pokemon id number
+	private final AtomicReferenceArray<PokedexEntry> entries =
+			new AtomicReferenceArray<>(EnumCounters.sizeOf(PokemonId.class));
 
 	public Pokedex(PokemonGo pgo) {
 		reset(pgo);
 	}
 
+	/**
+	 * Removes all entries.
+	 *
+	 * @param pgo the api
+	 */
 	public void reset(PokemonGo pgo) {
 		this.api = pgo;
-		pokedexMap = new HashMap<>();
+		for (int i = 0; i < entries.length(); i++) {
+			entries.set(i, null);
+		}
 	}
 
 	/**
@@ -41,8 +50,10 @@ public class Pokedex {
 	 * @param entry The entry to add or update
 	 */
 	public void add(PokedexEntry entry) {
-		PokemonId id = PokemonId.forNumber(entry.getPokemonId().getNumber());
-		pokedexMap.put(id, entry);
+		int number = entry.getPokemonId().getNumber();
+		if (number >= 0 && number < entries.length()) {
+			entries.set(number, entry);
+		}
 	}
 
 	/**
@@ -51,6 +62,14 @@ public class Pokedex {
 	 * @return Entry if in pokedex or null if it doesn't
 	 */
 	public PokedexEntry getPokedexEntry(PokemonId pokemonId) {
-		return pokedexMap.get(pokemonId);
+		return entries.get(pokemonId.getNumber());
+	}
+
+	PokedexEntry[] copyEntries() {
+		PokedexEntry[] copy = new PokedexEntry[entries.length()];
+		for (int i = 0; i < copy.length; i++) {
+			copy[i] = entries.get(i);
+		}
+		return copy;
 	}
 }
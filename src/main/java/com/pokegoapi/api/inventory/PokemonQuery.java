@@ -0,0 +1,200 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.pokegoapi.api.inventory;
+
+import POGOProtos.Enums.PokemonFamilyIdOuterClass.PokemonFamilyId;
+import POGOProtos.Enums.PokemonIdOuterClass.PokemonId;
+
+/**
+ * A query over the pokemon of a {@link PokeBank}, run against the stats the bank precomputes for every pokemon.
+ * Queries are mutable and can be reused, running one does not allocate.
+ *
+ * <p>Selecting transfer candidates, every pokemon except the best two of each species by IV:</p>
+ * <pre>
+ * PokemonQuery query = new PokemonQuery().favorite(false).perSpecies().orderBy(Column.IV_RATIO).skip(2);
+ * int count = pokebank.select(query, candidates);
+ * </pre>
+ */
+public class PokemonQuery {
+	public enum Column {
+		IV_RATIO, LEVEL, CP, MAX_CP, CP_AFTER_POWERUP
+	}
+
+	PokemonId species;
+	PokemonFamilyId family;
+	Boolean favorite;
+	double minIvRatio = Double.NEGATIVE_INFINITY;
+	double maxIvRatio = Double.POSITIVE_INFINITY;
+	float minLevel = Float.NEGATIVE_INFINITY;
+	float maxLevel = Float.POSITIVE_INFINITY;
+	int minCp = Integer.MIN_VALUE;
+	int maxCp = Integer.MAX_VALUE;
+	Column order;
+	boolean descending = true;
+	boolean perSpecies;
+	int skip;
+	int limit = Integer.MAX_VALUE;
+
+	/**
+	 * Only selects pokemon of a species.
+	 *
+	 * @param species the species, null for any
+	 * @return this query
+	 */
+	public PokemonQuery species(PokemonId species) {
+		this.species = species;
+		return this;
+	}
+
+	/**
+	 * Only selects pokemon of a family.
+	 *
+	 * @param family the family, null for any
+	 * @return this query
+	 */
+	public PokemonQuery family(PokemonFamilyId family) {
+		this.family = family;
+		return this;
+	}
+
+	/**
+	 * Only selects favorite or non favorite pokemon.
+	 *
+	 * @param favorite the favorite status, null for any
+	 * @return this query
+	 */
+	public PokemonQuery favorite(Boolean favorite) {
+		this.favorite = favorite;
+		return this;
+	}
+
+	/**
+	 * Only selects pokemon with an IV ratio in a range.
+	 *
+	 * @param min the minimum ratio, inclusive
+	 * @param max the maximum ratio, inclusive
+	 * @return this query
+	 */
+	public PokemonQuery ivRatio(double min, double max) {
+		this.minIvRatio = min;
+		this.maxIvRatio = max;
+		return this;
+	}
+
+	/**
+	 * Only selects pokemon with a level in a range.
+	 *
+	 * @param min the minimum level, inclusive
+	 * @param max the maximum level, inclusive
+	 * @return this query
+	 */
+	public PokemonQuery level(float min, float max) {
+		this.minLevel = min;
+		this.maxLevel = max;
+		return this;
+	}
+
+	/**
+	 * Only selects pokemon with a CP in a range.
+	 *
+	 * @param min the minimum CP, inclusive
+	 * @param max the maximum CP, inclusive
+	 * @return this query
+	 */
+	public PokemonQuery cp(int min, int max) {
+		this.minCp = min;
+		this.maxCp = max;
+		return this;
+	}
+
+	/**
+	 * Orders the selection by a column, highest first.
+	 *
+	 * @param column the column
+	 * @return this query
+	 */
+	public PokemonQuery orderBy(Column column) {
+		return orderBy(column, true);
+	}
+
+	/**
+	 * Orders the selection by a column.
+	 *
+	 * @param column the column, null for no order
+	 * @param descending true for highest first
+	 * @return this query
+	 */
+	public PokemonQuery orderBy(Column column, boolean descending) {
+		this.order = column;
+		this.descending = descending;
+		return this;
+	}
+
+	/**
+	 * Applies skip and limit to each species instead of to the whole selection.
+	 *
+	 * @return this query
+	 */
+	public PokemonQuery perSpecies() {
+		this.perSpecies = true;
+		return this;
+	}
+
+	/**
+	 * Skips the first pokemon of the selection, or of each species.
+	 *
+	 * @param skip the number of pokemon to skip
+	 * @return this query
+	 */
+	public PokemonQuery skip(int skip) {
+		this.skip = skip;
+		return this;
+	}
+
+	/**
+	 * Limits the selection, or each species.
+	 *
+	 * @param limit the maximum number of pokemon
+	 * @return this query
+	 */
+	public PokemonQuery limit(int limit) {
+		this.limit = limit;
+		return this;
+	}
+
+	/**
+	 * Clears every filter, order and limit.
+	 *
+	 * @return this query
+	 */
+	public PokemonQuery reset() {
+		species = null;
+		family = null;
+		favorite = null;
+		minIvRatio = Double.NEGATIVE_INFINITY;
+		maxIvRatio = Double.POSITIVE_INFINITY;
+		minLevel = Float.NEGATIVE_INFINITY;
+		maxLevel = Float.POSITIVE_INFINITY;
+		minCp = Integer.MIN_VALUE;
+		maxCp = Integer.MAX_VALUE;
+		order = null;
+		descending = true;
+		perSpecies = false;
+		skip = 0;
+		limit = Integer.MAX_VALUE;
+		return this;
+	}
+}
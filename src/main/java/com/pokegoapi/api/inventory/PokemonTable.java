@@ -0,0 +1,222 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.pokegoapi.api.inventory;
+
+import POGOProtos.Enums.PokemonIdOuterClass.PokemonId;
+import com.pokegoapi.api.pokemon.Pokemon;
+import com.pokegoapi.api.pokemon.PokemonMeta;
+import com.pokegoapi.exceptions.NoSuchItemException;
+import com.pokegoapi.util.LongHashMap;
+
+import java.util.Arrays;
+
+/**
+ * Columns of stats derived from the pokemon of a {@link PokeBank}, computed once when a pokemon is added.
+ * Rows are kept dense, a removed row is replaced by the last one. This class is not thread safe, the bank
+ * guards it.
+ */
+class PokemonTable {
+	private static final int MIN_CAPACITY = 16;
+
+	private final LongHashMap<Integer> rows = new LongHashMap<>();
+	private int size;
+	private Pokemon[] pokemons = new Pokemon[MIN_CAPACITY];
+	private int[] species = new int[MIN_CAPACITY];
+	private int[] families = new int[MIN_CAPACITY];
+	private boolean[] favorites = new boolean[MIN_CAPACITY];
+	private double[] ivRatios = new double[MIN_CAPACITY];
+	private float[] levels = new float[MIN_CAPACITY];
+	private int[] cps = new int[MIN_CAPACITY];
+	private int[] maxCps = new int[MIN_CAPACITY];
+	private int[] cpsAfterPowerup = new int[MIN_CAPACITY];
+	// matching rows of the running query
+	private int[] selection = new int[MIN_CAPACITY];
+
+	void add(Pokemon pokemon) {
+		if (size == pokemons.length) {
+			grow();
+		}
+		int row = size++;
+		set(row, pokemon);
+		rows.put(pokemon.getId(), row);
+	}
+
+	void update(Pokemon pokemon) {
+		Integer row = rows.get(pokemon.getId());
+		if (row != null) {
+			set(row, pokemon);
+		}
+	}
+
+	void remove(long id) {
+		Integer row = rows.remove(id);
+		if (row == null) {
+			return;
+		}
+		int last = --size;
+		if (row != last) {
+			pokemons[row] = pokemons[last];
+			species[row] = species[last];
+			families[row] = families[last];
+			favorites[row] = favorites[last];
+			ivRatios[row] = ivRatios[last];
+			levels[row] = levels[last];
+			cps[row] = cps[last];
+			maxCps[row] = maxCps[last];
+			cpsAfterPowerup[row] = cpsAfterPowerup[last];
+			rows.put(pokemons[row].getId(), row);
+		}
+		pokemons[last] = null;
+	}
+
+	void clear() {
+		rows.clear();
+		Arrays.fill(pokemons, 0, size, null);
+		size = 0;
+	}
+
+	/**
+	 * Runs a query, writing the selected pokemon to the output array.
+	 *
+	 * @return the number of pokemon written
+	 */
+	int select(PokemonQuery query, Pokemon[] out) {
+		int familyNumber = query.family == null ? -1 : query.family.getNumber();
+		int speciesNumber = query.species == null ? -1 : query.species.getNumber();
+		int matched = 0;
+		for (int row = 0; row < size; row++) {
+			if (speciesNumber >= 0 && species[row] != speciesNumber
+					|| familyNumber >= 0 && families[row] != familyNumber
+					|| query.favorite != null && favorites[row] != query.favorite
+					|| ivRatios[row] < query.minIvRatio || ivRatios[row] > query.maxIvRatio
+					|| levels[row] < query.minLevel || levels[row] > query.maxLevel
+					|| cps[row] < query.minCp || cps[row] > query.maxCp) {
+				continue;
+			}
+			selection[matched++] = row;
+		}
+		if (query.order != null || query.perSpecies) {
+			sort(query, matched);
+		}
+
+		int count = 0;
+		int rank = 0;
+		for (int i = 0; i < matched && count < out.length; i++) {
+			int row = selection[i];
+			if (query.perSpecies && i > 0 && species[row] != species[selection[i - 1]]) {
+				rank = 0;
+			}
+			if (rank >= query.skip && rank - query.skip < query.limit) {
+				out[count++] = pokemons[row];
+			}
+			rank++;
+		}
+		return count;
+	}
+
+	private void set(int row, Pokemon pokemon) {
+		PokemonMeta meta = pokemon.getMeta();
+		pokemons[row] = pokemon;
+		species[row] = pokemon.getPokemonId() == PokemonId.UNRECOGNIZED ? -1 : pokemon.getPokemonId().getNumber();
+		families[row] = meta == null ? -1 : meta.getFamily().getNumber();
+		favorites[row] = pokemon.isFavorite();
+		ivRatios[row] = pokemon.getIvRatio();
+		levels[row] = pokemon.getLevel();
+		cps[row] = pokemon.getCp();
+		try {
+			maxCps[row] = pokemon.getMaxCp();
+		} catch (NoSuchItemException e) {
+			maxCps[row] = 0;
+		}
+		cpsAfterPowerup[row] = pokemon.getCpAfterPowerup();
+	}
+
+	private void grow() {
+		int capacity = pokemons.length * 2;
+		pokemons = Arrays.copyOf(pokemons, capacity);
+		species = Arrays.copyOf(species, capacity);
+		families = Arrays.copyOf(families, capacity);
+		favorites = Arrays.copyOf(favorites, capacity);
+		ivRatios = Arrays.copyOf(ivRatios, capacity);
+		levels = Arrays.copyOf(levels, capacity);
+		cps = Arrays.copyOf(cps, capacity);
+		maxCps = Arrays.copyOf(maxCps, capacity);
+		cpsAfterPowerup = Arrays.copyOf(cpsAfterPowerup, capacity);
+		selection = new int[capacity];
+	}
+
+	/**
+	 * Heap sorts the selected rows by species when grouping, then by the query column.
+	 */
+	private void sort(PokemonQuery query, int count) {
+		for (int i = count / 2 - 1; i >= 0; i--) {
+			siftDown(query, i, count);
+		}
+		for (int end = count - 1; end > 0; end--) {
+			int row = selection[0];
+			selection[0] = selection[end];
+			selection[end] = row;
+			siftDown(query, 0, end);
+		}
+	}
+
+	private void siftDown(PokemonQuery query, int index, int count) {
+		int row = selection[index];
+		while (true) {
+			int child = 2 * index + 1;
+			if (child >= count) {
+				break;
+			}
+			if (child + 1 < count && compare(query, selection[child + 1], selection[child]) > 0) {
+				child++;
+			}
+			if (compare(query, selection[child], row) <= 0) {
+				break;
+			}
+			selection[index] = selection[child];
+			index = child;
+		}
+		selection[index] = row;
+	}
+
+	private int compare(PokemonQuery query, int first, int second) {
+		if (query.perSpecies && species[first] != species[second]) {
+			return species[first] < species[second] ? -1 : 1;
+		}
+		if (query.order == null) {
+			return 0;
+		}
+		int result = Double.compare(value(query.order, first), value(query.order, second));
+		return query.descending ? -result : result;
+	}
+
+	private double value(PokemonQuery.Column column, int row) {
+		switch (column) {
+			case IV_RATIO:
+				return ivRatios[row];
+			case LEVEL:
+				return levels[row];
+			case CP:
+				return cps[row];
+			case MAX_CP:
+				return maxCps[row];
+			case CP_AFTER_POWERUP:
+				return cpsAfterPowerup[row];
+			default:
+				return 0;
+		}
+	}
+}
@@ -43,32 +43,67 @@ import com.google.protobuf.InvalidProtocolBufferException;
 import com.pokegoapi.api.PokemonGo;
 import com.pokegoapi.api.gym.Gym;
 import com.pokegoapi.api.map.fort.FortDetails;
+import com.pokegoapi.api.map.fort.FortDetailsCache;
+import com.pokegoapi.api.map.fort.FortStore;
 import com.pokegoapi.api.map.pokemon.CatchablePokemon;
 import com.pokegoapi.api.map.pokemon.NearbyPokemon;
 import com.pokegoapi.exceptions.LoginFailedException;
 import com.pokegoapi.exceptions.RemoteServerException;
-import com.pokegoapi.google.common.geometry.MutableInteger;
 import com.pokegoapi.google.common.geometry.S2CellId;
-import com.pokegoapi.google.common.geometry.S2LatLng;
+import com.pokegoapi.google.common.geometry.S2CellIds;
 import com.pokegoapi.main.AsyncServerRequest;
 import com.pokegoapi.main.ServerRequest;
 import com.pokegoapi.util.DummyFuture;
 import com.pokegoapi.util.FutureWrapper;
 import com.pokegoapi.util.PokemonFuture;
+import com.pokegoapi.util.TimingWheel;
+import lombok.Getter;
+import lombok.Setter;
 
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 
 public class Map {
 	private static int CELL_WIDTH = 3;
-	// time between getting a new MapObjects
-	private static int RESEND_REQUEST = 5000;
+	/**
+	 * Time between getting a new MapObjects, requests within this time are answered from the cache.
+	 */
+	public static final int RESEND_REQUEST = 5000;
+	// cells not received for the longest time are forgotten once there are more than this
+	private static final int MAX_CELL_STATES = 1024;
 	private final PokemonGo api;
 	private MapObjects cachedMapObjects;
 	private long lastMapUpdate;
+	private final List<MapListener> listeners = new CopyOnWriteArrayList<>();
+	private final java.util.Map<Long, MapCellState> cellStates =
+			new LinkedHashMap<Long, MapCellState>(16, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(java.util.Map.Entry<Long, MapCellState> eldest) {
+					if (size() > MAX_CELL_STATES) {
+						eldest.getValue().cancelExpiries();
+						return true;
+					}
+					return false;
+				}
+			};
+	private final TimingWheel<Runnable> expiryWheel;
+	/**
+	 * Store that receives every fort and fort details response, null to not persist forts.
+	 */
+	@Getter
+	@Setter
+	private FortStore fortStore;
+	/**
+	 * Fort and gym details shared by all forts of this session.
+	 */
+	@Getter
+	private final FortDetailsCache detailsCache;
 
 	/**
 	 * Instantiates a new Map.
@@ -81,8 +116,27 @@ public class Map {
 		this.api = api;
 		cachedMapObjects = new MapObjects(api);
 		lastMapUpdate = 0;
+		expiryWheel = new TimingWheel<>(api.getTime());
+		detailsCache = new FortDetailsCache(api);
+	}
+
+	/**
+	 * Registers a listener that is notified about changes in every map cell received from now on.
+	 *
+	 * @param listener the listener to add
+	 */
+	public void addMapListener(MapListener listener) {
+		listeners.add(listener);
 	}
 
+	/**
+	 * Removes a previously registered listener.
+	 *
+	 * @param listener the listener to remove
+	 */
+	public void removeMapListener(MapListener listener) {
+		listeners.remove(listener);
+	}
 
 	/**
 	 * Returns a list of catchable pokemon around the current location.
@@ -102,6 +156,14 @@ public class Map {
 				for (WildPokemonOuterClass.WildPokemon wildPokemon : mapObjects.getWildPokemons()) {
 					catchablePokemons.add(new CatchablePokemon(api, wildPokemon));
 				}
+
+				// the cached map objects may be older than the pokemon they contain
+				Iterator<CatchablePokemon> iterator = catchablePokemons.iterator();
+				while (iterator.hasNext()) {
+					if (iterator.next().isExpired()) {
+						iterator.remove();
+					}
+				}
 				// TODO: Check if this code is correct; merged because this contains many other fixes
 				/*for (Pokestop pokestop : objects.getPokestops()) {
 					if (pokestop.inRange() && pokestop.hasLurePokemon()) {
@@ -270,6 +332,7 @@ public class Map {
 	 * @return MapObjects in the given cells
 	 */
 	public PokemonFuture<MapObjects> getMapObjectsAsync(List<Long> cellIds) {
+		evictExpired();
 
 		if ( (api.currentTimeMillis() - lastMapUpdate) < RESEND_REQUEST ) {
 			return new DummyFuture<MapObjects>(cachedMapObjects);
@@ -321,7 +384,15 @@ public class Map {
 					result.addPokestops(groupedForts.get(FortType.CHECKPOINT));
 				}
 
+				updateCellStates(response.getMapCellsList());
 
+				FortStore store = fortStore;
+				if (store != null) {
+					long now = api.currentTimeMillis();
+					for (MapCell mapCell : response.getMapCellsList()) {
+						store.update(mapCell.getFortsList(), now);
+					}
+				}
 
 				return result;
 			}
@@ -440,24 +511,23 @@ public class Map {
 	 * @return List of Cells
 	 */
 	public List<Long> getCellIds(double latitude, double longitude, int width) {
-		S2LatLng latLng = S2LatLng.fromDegrees(latitude, longitude);
-		S2CellId cellId = S2CellId.fromLatLng(latLng).parent(15);
+		long cellId = S2CellIds.parent(S2CellIds.fromLatLngDegrees(latitude, longitude), 15);
 
-		MutableInteger index = new MutableInteger(0);
-		MutableInteger jindex = new MutableInteger(0);
-
-
-		int level = cellId.level();
-		int size = 1 << (S2CellId.MAX_LEVEL - level);
-		int face = cellId.toFaceIJOrientation(index, jindex, null);
+		long ij = S2CellIds.toIJOrientation(cellId);
+		int index = S2CellIds.unpackI(ij);
+		int jindex = S2CellIds.unpackJ(ij);
+		int size = 1 << (S2CellId.MAX_LEVEL - 15);
+		int face = S2CellIds.face(cellId);
 
 		List<Long> cells = new ArrayList<Long>();
 
 		int halfWidth = (int) Math.floor(width / 2);
 		for (int x = -halfWidth; x <= halfWidth; x++) {
 			for (int y = -halfWidth; y <= halfWidth; y++) {
-				cells.add(S2CellId.fromFaceIJ(face, index.intValue() + x * size, jindex.intValue() + y * size)
-						.parent(15).id());
+				int i = index + x * size;
+				int j = jindex + y * size;
+				boolean sameFace = i >= 0 && i < S2CellId.MAX_SIZE && j >= 0 && j < S2CellId.MAX_SIZE;
+				cells.add(S2CellIds.parent(S2CellIds.fromFaceIJSame(face, i, j, sameFace), 15));
 			}
 		}
 		return cells;
@@ -490,7 +560,13 @@ public class Map {
 				} catch (InvalidProtocolBufferException e) {
 					throw new RemoteServerException(e);
 				}
-				return new FortDetails(response);
+				FortDetails details = new FortDetails(response);
+				detailsCache.put(details);
+				FortStore store = fortStore;
+				if (store != null) {
+					store.updateDetails(details, api.currentTimeMillis());
+				}
+				return details;
 			}
 		};
 	}
@@ -613,6 +689,50 @@ public class Map {
 	}
 
 
+	/**
+	 * Compares the received cells with their last known state and notifies the listeners about the differences.
+	 *
+	 * @param mapCells the cells of a map response
+	 */
+	private synchronized void updateCellStates(List<MapCell> mapCells) {
+		evictExpired();
+		for (MapCell mapCell : mapCells) {
+			MapCellState state = cellStates.get(mapCell.getS2CellId());
+			if (state == null) {
+				state = new MapCellState(api, expiryWheel, listeners);
+				cellStates.put(mapCell.getS2CellId(), state);
+			}
+			state.update(mapCell);
+		}
+	}
+
+	/**
+	 * Removes catchable pokemon and lures that expired since the last call from the known map state and notifies
+	 * the listeners about them. This is done automatically before every map request, but can be called
+	 * periodically to get expiry events between requests.
+	 */
+	public synchronized void evictExpired() {
+		for (Runnable expiry : expiryWheel.expire()) {
+			expiry.run();
+		}
+	}
+
+	/**
+	 * Returns all catchable pokemon that are known in the given cell and did not expire yet,
+	 * without sending a request.
+	 *
+	 * @param cellId the level 15 cell id
+	 * @return the known catchable pokemon of the cell
+	 */
+	public synchronized List<CatchablePokemon> getKnownCatchablePokemon(long cellId) {
+		evictExpired();
+		MapCellState state = cellStates.get(cellId);
+		if (state == null) {
+			return new ArrayList<>();
+		}
+		return new ArrayList<>(state.getCatchablePokemons());
+	}
+
 	private List<Long> getDefaultCells() {
 		return getCellIds(api.getLatitude(), api.getLongitude(), CELL_WIDTH);
 	}
@@ -0,0 +1,260 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.pokegoapi.api.map;
+
+import POGOProtos.Enums.TeamColorOuterClass.TeamColor;
+import POGOProtos.Map.Fort.FortDataOuterClass.FortData;
+import POGOProtos.Map.Fort.FortTypeOuterClass.FortType;
+import POGOProtos.Map.MapCellOuterClass.MapCell;
+import POGOProtos.Map.Pokemon.MapPokemonOuterClass.MapPokemon;
+import POGOProtos.Map.Pokemon.WildPokemonOuterClass.WildPokemon;
+import com.pokegoapi.api.PokemonGo;
+import com.pokegoapi.api.gym.Gym;
+import com.pokegoapi.api.map.fort.Pokestop;
+import com.pokegoapi.api.map.pokemon.CatchablePokemon;
+import com.pokegoapi.util.TimingWheel;
+import com.pokegoapi.util.TimingWheel.Timeout;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Last known content of a single map cell, used to turn full map responses into {@link MapListener} events.
+ * Catchable pokemon and lures are also scheduled on the expiry wheel of the map, so they are evicted as soon as
+ * they despawn, even if the cell is not requested again.
+ */
+class MapCellState {
+	private final PokemonGo api;
+	private final TimingWheel<Runnable> expiryWheel;
+	private final List<MapListener> listeners;
+	private java.util.Map<Long, CatchablePokemon> catchablePokemons = new HashMap<>();
+	private java.util.Map<String, FortData> forts = new HashMap<>();
+	private final java.util.Map<Long, Timeout<Runnable>> catchableTimeouts = new HashMap<>();
+	private final java.util.Map<String, Timeout<Runnable>> lureTimeouts = new HashMap<>();
+
+	MapCellState(PokemonGo api, TimingWheel<Runnable> expiryWheel, List<MapListener> listeners) {
+		this.api = api;
+		this.expiryWheel = expiryWheel;
+		this.listeners = listeners;
+	}
+
+	/**
+	 * Returns the catchable pokemon of this cell that did not expire yet.
+	 *
+	 * @return the catchable pokemon
+	 */
+	Collection<CatchablePokemon> getCatchablePokemons() {
+		return catchablePokemons.values();
+	}
+
+	/**
+	 * Replaces the state of this cell with the given cell and reports every difference to the listeners.
+	 *
+	 * @param cell the cell as returned by the server
+	 */
+	void update(MapCell cell) {
+		java.util.Map<Long, CatchablePokemon> newCatchablePokemons = new LinkedHashMap<>();
+		for (MapPokemon mapPokemon : cell.getCatchablePokemonsList()) {
+			newCatchablePokemons.put(mapPokemon.getEncounterId(), new CatchablePokemon(api, mapPokemon));
+		}
+		for (WildPokemon wildPokemon : cell.getWildPokemonsList()) {
+			if (!newCatchablePokemons.containsKey(wildPokemon.getEncounterId())) {
+				newCatchablePokemons.put(wildPokemon.getEncounterId(), new CatchablePokemon(api, wildPokemon));
+			}
+		}
+		// the server may still list pokemon for a moment after they despawned
+		Iterator<CatchablePokemon> iterator = newCatchablePokemons.values().iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next().isExpired()) {
+				iterator.remove();
+			}
+		}
+
+		java.util.Map<String, FortData> newForts = new LinkedHashMap<>();
+		for (FortData fortData : cell.getFortsList()) {
+			newForts.put(fortData.getId(), fortData);
+		}
+
+		if (!listeners.isEmpty()) {
+			diffCatchablePokemons(newCatchablePokemons);
+			diffForts(newForts);
+		}
+		scheduleCatchableExpiry(newCatchablePokemons);
+		scheduleLureExpiry(newForts);
+
+		catchablePokemons = newCatchablePokemons;
+		forts = newForts;
+	}
+
+	/**
+	 * Cancels the scheduled expiries of this cell, called when the map forgets the cell.
+	 */
+	void cancelExpiries() {
+		for (Timeout<Runnable> timeout : catchableTimeouts.values()) {
+			timeout.cancel();
+		}
+		for (Timeout<Runnable> timeout : lureTimeouts.values()) {
+			timeout.cancel();
+		}
+		catchableTimeouts.clear();
+		lureTimeouts.clear();
+	}
+
+	private void scheduleCatchableExpiry(java.util.Map<Long, CatchablePokemon> newCatchablePokemons) {
+		Iterator<java.util.Map.Entry<Long, Timeout<Runnable>>> iterator =
+				catchableTimeouts.entrySet().iterator();
+		while (iterator.hasNext()) {
+			java.util.Map.Entry<Long, Timeout<Runnable>> entry = iterator.next();
+			if (!newCatchablePokemons.containsKey(entry.getKey())) {
+				entry.getValue().cancel();
+				iterator.remove();
+			}
+		}
+		for (final CatchablePokemon pokemon : newCatchablePokemons.values()) {
+			if (pokemon.getExpirationTimestampMs() > 0 && !catchableTimeouts.containsKey(pokemon.getEncounterId())) {
+				catchableTimeouts.put(pokemon.getEncounterId(), expiryWheel.schedule(new Runnable() {
+					@Override
+					public void run() {
+						expireCatchable(pokemon.getEncounterId());
+					}
+				}, pokemon.getExpirationTimestampMs()));
+			}
+		}
+	}
+
+	private void scheduleLureExpiry(java.util.Map<String, FortData> newForts) {
+		long now = api.currentTimeMillis();
+		Iterator<java.util.Map.Entry<String, Timeout<Runnable>>> iterator =
+				lureTimeouts.entrySet().iterator();
+		while (iterator.hasNext()) {
+			java.util.Map.Entry<String, Timeout<Runnable>> entry = iterator.next();
+			FortData fort = newForts.get(entry.getKey());
+			if (fort == null || !hasActiveLure(fort, now)
+					|| fort.getLureInfo().getLureExpiresTimestampMs() != entry.getValue().getDeadlineMs()) {
+				entry.getValue().cancel();
+				iterator.remove();
+			}
+		}
+		for (final FortData fort : newForts.values()) {
+			if (hasActiveLure(fort, now) && !lureTimeouts.containsKey(fort.getId())) {
+				lureTimeouts.put(fort.getId(), expiryWheel.schedule(new Runnable() {
+					@Override
+					public void run() {
+						expireLure(fort.getId());
+					}
+				}, fort.getLureInfo().getLureExpiresTimestampMs()));
+			}
+		}
+	}
+
+	private void expireCatchable(long encounterId) {
+		catchableTimeouts.remove(encounterId);
+		CatchablePokemon pokemon = catchablePokemons.remove(encounterId);
+		if (pokemon != null) {
+			for (MapListener listener : listeners) {
+				listener.onCatchablePokemonExpired(pokemon);
+			}
+		}
+	}
+
+	private void expireLure(String fortId) {
+		lureTimeouts.remove(fortId);
+		FortData fort = forts.get(fortId);
+		if (fort != null) {
+			// the fort keeps its lure info, but hasActiveLure() is false from now on
+			notifyLureEnded(fort);
+		}
+	}
+
+	private void diffCatchablePokemons(java.util.Map<Long, CatchablePokemon> newCatchablePokemons) {
+		for (CatchablePokemon pokemon : newCatchablePokemons.values()) {
+			if (!catchablePokemons.containsKey(pokemon.getEncounterId())) {
+				for (MapListener listener : listeners) {
+					listener.onCatchablePokemonAppeared(pokemon);
+				}
+			}
+		}
+		for (CatchablePokemon pokemon : catchablePokemons.values()) {
+			if (!newCatchablePokemons.containsKey(pokemon.getEncounterId())) {
+				for (MapListener listener : listeners) {
+					listener.onCatchablePokemonExpired(pokemon);
+				}
+			}
+		}
+	}
+
+	private void diffForts(java.util.Map<String, FortData> newForts) {
+		long now = api.currentTimeMillis();
+		for (FortData fort : newForts.values()) {
+			FortData previous = forts.get(fort.getId());
+			if (previous == null) {
+				for (MapListener listener : listeners) {
+					listener.onFortAdded(fort);
+				}
+				if (hasActiveLure(fort, now)) {
+					notifyLureStarted(fort);
+				}
+				continue;
+			}
+
+			if (previous.getCooldownCompleteTimestampMs() != fort.getCooldownCompleteTimestampMs()) {
+				for (MapListener listener : listeners) {
+					listener.onFortCooldownChanged(fort, previous.getCooldownCompleteTimestampMs());
+				}
+			}
+
+			boolean wasLured = hasActiveLure(previous, now);
+			boolean isLured = hasActiveLure(fort, now);
+			if (wasLured && (!isLured
+					|| previous.getLureInfo().getEncounterId() != fort.getLureInfo().getEncounterId())) {
+				notifyLureEnded(fort);
+				wasLured = false;
+			}
+			if (!wasLured && isLured) {
+				notifyLureStarted(fort);
+			}
+
+			if (fort.getType() == FortType.GYM && previous.getOwnedByTeam() != fort.getOwnedByTeam()) {
+				Gym gym = new Gym(api, fort);
+				TeamColor previousTeam = previous.getOwnedByTeam();
+				for (MapListener listener : listeners) {
+					listener.onGymTeamChanged(gym, previousTeam);
+				}
+			}
+		}
+	}
+
+	private void notifyLureStarted(FortData fort) {
+		Pokestop pokestop = new Pokestop(api, fort);
+		for (MapListener listener : listeners) {
+			listener.onLureStarted(pokestop);
+		}
+	}
+
+	private void notifyLureEnded(FortData fort) {
+		Pokestop pokestop = new Pokestop(api, fort);
+		for (MapListener listener : listeners) {
+			listener.onLureEnded(pokestop);
+		}
+	}
+
+	private static boolean hasActiveLure(FortData fort, long now) {
+		return fort.hasLureInfo() && fort.getLureInfo().getLureExpiresTimestampMs() > now;
+	}
+}
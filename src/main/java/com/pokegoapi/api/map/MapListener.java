@@ -0,0 +1,81 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.pokegoapi.api.map;
+
+import POGOProtos.Enums.TeamColorOuterClass.TeamColor;
+import POGOProtos.Map.Fort.FortDataOuterClass.FortData;
+import com.pokegoapi.api.gym.Gym;
+import com.pokegoapi.api.map.fort.Pokestop;
+import com.pokegoapi.api.map.pokemon.CatchablePokemon;
+
+/**
+ * Receives incremental changes of the map, computed per cell every time a GET_MAP_OBJECTS response arrives.
+ * Only cells contained in a response are compared, so objects in cells that were not requested are never reported
+ * as gone.
+ */
+public interface MapListener {
+
+	/**
+	 * Called when a catchable pokemon shows up in a cell for the first time.
+	 *
+	 * @param pokemon the new pokemon
+	 */
+	void onCatchablePokemonAppeared(CatchablePokemon pokemon);
+
+	/**
+	 * Called when a previously seen catchable pokemon is no longer part of its cell.
+	 *
+	 * @param pokemon the pokemon that despawned
+	 */
+	void onCatchablePokemonExpired(CatchablePokemon pokemon);
+
+	/**
+	 * Called when a gym or pokestop is seen for the first time.
+	 *
+	 * @param fort the new fort
+	 */
+	void onFortAdded(FortData fort);
+
+	/**
+	 * Called when the cooldown of a known fort changed.
+	 *
+	 * @param fort                               the updated fort
+	 * @param previousCooldownCompleteTimestampMs the cooldown end before this update
+	 */
+	void onFortCooldownChanged(FortData fort, long previousCooldownCompleteTimestampMs);
+
+	/**
+	 * Called when a lure module becomes active on a pokestop.
+	 *
+	 * @param pokestop the lured pokestop
+	 */
+	void onLureStarted(Pokestop pokestop);
+
+	/**
+	 * Called when the lure module of a pokestop is gone.
+	 *
+	 * @param pokestop the pokestop that lost its lure
+	 */
+	void onLureEnded(Pokestop pokestop);
+
+	/**
+	 * Called when a gym is taken over by another team.
+	 *
+	 * @param gym          the updated gym
+	 * @param previousTeam the team that owned the gym before
+	 */
+	void onGymTeamChanged(Gym gym, TeamColor previousTeam);
+}
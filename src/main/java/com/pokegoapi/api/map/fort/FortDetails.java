@@ -30,6 +30,10 @@ public class FortDetails {
 		this.proto = proto;
 	}
 
+	FortDetailsResponseOuterClass.FortDetailsResponse getProto() {
+		return proto;
+	}
+
 	public String getId() {
 		return proto.getFortId();
 	}
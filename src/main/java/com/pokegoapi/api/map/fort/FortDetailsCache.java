@@ -0,0 +1,269 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.pokegoapi.api.map.fort;
+
+import POGOProtos.Map.Fort.FortDataOuterClass.FortData;
+import POGOProtos.Networking.Requests.Messages.FortDetailsMessageOuterClass.FortDetailsMessage;
+import POGOProtos.Networking.Requests.Messages.GetGymDetailsMessageOuterClass.GetGymDetailsMessage;
+import POGOProtos.Networking.Requests.RequestTypeOuterClass.RequestType;
+import POGOProtos.Networking.Responses.FortDetailsResponseOuterClass.FortDetailsResponse;
+import POGOProtos.Networking.Responses.GetGymDetailsResponseOuterClass.GetGymDetailsResponse;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.pokegoapi.api.PokemonGo;
+import com.pokegoapi.api.map.MapObjects;
+import com.pokegoapi.exceptions.LoginFailedException;
+import com.pokegoapi.exceptions.RemoteServerException;
+import com.pokegoapi.main.ServerRequest;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Size bounded cache of fort and gym details shared by all forts of a session.
+ * Every lookup states how old the details may be, so fields that rarely change (name, images, description) can be
+ * served for much longer than lure modifiers or the gym state. The least recently used forts are evicted first.
+ */
+public class FortDetailsCache {
+	/**
+	 * Maximum age for names, image urls and descriptions.
+	 */
+	public static final long STATIC_TTL_MS = 24 * 60 * 60 * 1000;
+	/**
+	 * Maximum age for fort modifiers such as lures.
+	 */
+	public static final long MODIFIER_TTL_MS = 30 * 1000;
+	/**
+	 * Maximum age for the gym state, its members and whether the gym is in range.
+	 */
+	public static final long GYM_STATE_TTL_MS = 60 * 1000;
+	public static final int DEFAULT_MAX_SIZE = 1000;
+
+	private final PokemonGo api;
+	private final LinkedHashMap<String, Entry> entries;
+
+	/**
+	 * Creates a cache holding the details of at most {@value #DEFAULT_MAX_SIZE} forts.
+	 *
+	 * @param api the api used to fetch details
+	 */
+	public FortDetailsCache(PokemonGo api) {
+		this(api, DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * Creates a cache.
+	 *
+	 * @param api the api used to fetch details
+	 * @param maxSize the maximum number of forts to keep details for
+	 */
+	public FortDetailsCache(PokemonGo api, final int maxSize) {
+		this.api = api;
+		this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
+
+	/**
+	 * Returns the details of a fort, fetching them if the cached details are older than the given age.
+	 *
+	 * @param id the fort id
+	 * @param latitude the fort latitude
+	 * @param longitude the fort longitude
+	 * @param maxAgeMs the maximum age of cached details, see the TTL constants of this class
+	 * @return the fort details
+	 * @throws LoginFailedException  if login failed
+	 * @throws RemoteServerException if the server failed to respond
+	 */
+	public FortDetails getFortDetails(String id, double latitude, double longitude, long maxAgeMs)
+			throws LoginFailedException, RemoteServerException {
+		FortDetails cached = getCachedFortDetails(id, maxAgeMs);
+		if (cached != null) {
+			return cached;
+		}
+		ServerRequest request = createFortDetailsRequest(id, latitude, longitude);
+		api.getRequestHandler().sendServerRequests(request);
+		return putFortDetails(request);
+	}
+
+	/**
+	 * Returns the details of a gym, fetching them if the cached details are older than the given age.
+	 *
+	 * @param id the gym id
+	 * @param latitude the gym latitude
+	 * @param longitude the gym longitude
+	 * @param maxAgeMs the maximum age of cached details, see the TTL constants of this class
+	 * @return the gym details
+	 * @throws LoginFailedException  if login failed
+	 * @throws RemoteServerException if the server failed to respond
+	 */
+	public GetGymDetailsResponse getGymDetails(String id, double latitude, double longitude, long maxAgeMs)
+			throws LoginFailedException, RemoteServerException {
+		GetGymDetailsResponse cached = getCachedGymDetails(id, maxAgeMs);
+		if (cached != null) {
+			return cached;
+		}
+		ServerRequest request = createGymDetailsRequest(id, latitude, longitude);
+		api.getRequestHandler().sendServerRequests(request);
+		return putGymDetails(id, request);
+	}
+
+	/**
+	 * Fetches the details of every pokestop and gym in the given map objects whose cached details are older than
+	 * {@link #MODIFIER_TTL_MS} or {@link #GYM_STATE_TTL_MS}. All requests are sent in a single envelope.
+	 *
+	 * @param objects the map objects containing the forts
+	 * @throws LoginFailedException  if login failed
+	 * @throws RemoteServerException if the server failed to respond
+	 */
+	public void prefetch(MapObjects objects) throws LoginFailedException, RemoteServerException {
+		List<ServerRequest> fortRequests = new ArrayList<>();
+		for (Pokestop pokestop : objects.getPokestops()) {
+			if (getCachedFortDetails(pokestop.getId(), MODIFIER_TTL_MS) == null) {
+				fortRequests.add(createFortDetailsRequest(pokestop.getId(), pokestop.getLatitude(),
+						pokestop.getLongitude()));
+			}
+		}
+		List<ServerRequest> gymRequests = new ArrayList<>();
+		List<String> gymIds = new ArrayList<>();
+		for (FortData gym : objects.getGyms()) {
+			if (getCachedGymDetails(gym.getId(), GYM_STATE_TTL_MS) == null) {
+				gymRequests.add(createGymDetailsRequest(gym.getId(), gym.getLatitude(), gym.getLongitude()));
+				gymIds.add(gym.getId());
+			}
+		}
+		if (fortRequests.isEmpty() && gymRequests.isEmpty()) {
+			return;
+		}
+
+		List<ServerRequest> requests = new ArrayList<>(fortRequests);
+		requests.addAll(gymRequests);
+		api.getRequestHandler().sendServerRequests(requests.toArray(new ServerRequest[requests.size()]));
+		for (ServerRequest request : fortRequests) {
+			putFortDetails(request);
+		}
+		for (int i = 0; i < gymRequests.size(); i++) {
+			putGymDetails(gymIds.get(i), gymRequests.get(i));
+		}
+	}
+
+	/**
+	 * Stores fort details that were fetched elsewhere.
+	 *
+	 * @param details the fetched details
+	 */
+	public synchronized void put(FortDetails details) {
+		Entry entry = getOrCreate(details.getId());
+		entry.fortDetails = details;
+		entry.fortDetailsMs = api.currentTimeMillis();
+	}
+
+	/**
+	 * Removes all cached details of a fort, for example after the player changed it.
+	 *
+	 * @param id the fort id
+	 */
+	public synchronized void invalidate(String id) {
+		entries.remove(id);
+	}
+
+	private synchronized FortDetails getCachedFortDetails(String id, long maxAgeMs) {
+		Entry entry = entries.get(id);
+		if (entry == null || entry.fortDetails == null
+				|| api.currentTimeMillis() - entry.fortDetailsMs > maxAgeMs) {
+			return null;
+		}
+		return entry.fortDetails;
+	}
+
+	private synchronized GetGymDetailsResponse getCachedGymDetails(String id, long maxAgeMs) {
+		Entry entry = entries.get(id);
+		if (entry == null || entry.gymDetails == null || api.currentTimeMillis() - entry.gymDetailsMs > maxAgeMs) {
+			return null;
+		}
+		return entry.gymDetails;
+	}
+
+	private FortDetails putFortDetails(ServerRequest request) throws RemoteServerException {
+		FortDetails details;
+		try {
+			details = new FortDetails(FortDetailsResponse.parseFrom(request.getData()));
+		} catch (InvalidProtocolBufferException e) {
+			throw new RemoteServerException(e);
+		}
+		put(details);
+		FortStore store = api.getMap().getFortStore();
+		if (store != null) {
+			store.updateDetails(details, api.currentTimeMillis());
+		}
+		return details;
+	}
+
+	private GetGymDetailsResponse putGymDetails(String id, ServerRequest request) throws RemoteServerException {
+		GetGymDetailsResponse details;
+		try {
+			details = GetGymDetailsResponse.parseFrom(request.getData());
+		} catch (InvalidProtocolBufferException e) {
+			throw new RemoteServerException(e);
+		}
+		synchronized (this) {
+			Entry entry = getOrCreate(id);
+			entry.gymDetails = details;
+			entry.gymDetailsMs = api.currentTimeMillis();
+		}
+		return details;
+	}
+
+	private Entry getOrCreate(String id) {
+		Entry entry = entries.get(id);
+		if (entry == null) {
+			entry = new Entry();
+			entries.put(id, entry);
+		}
+		return entry;
+	}
+
+	private ServerRequest createFortDetailsRequest(String id, double latitude, double longitude) {
+		FortDetailsMessage message = FortDetailsMessage.newBuilder()
+				.setFortId(id)
+				.setLatitude(latitude)
+				.setLongitude(longitude)
+				.build();
+		return new ServerRequest(RequestType.FORT_DETAILS, message);
+	}
+
+	private ServerRequest createGymDetailsRequest(String id, double latitude, double longitude) {
+		GetGymDetailsMessage message = GetGymDetailsMessage.newBuilder()
+				.setGymId(id)
+				.setGymLatitude(latitude)
+				.setGymLongitude(longitude)
+				.setPlayerLatitude(api.getLatitude())
+				.setPlayerLongitude(api.getLongitude())
+				.build();
+		return new ServerRequest(RequestType.GET_GYM_DETAILS, message);
+	}
+
+	private static class Entry {
+		private FortDetails fortDetails;
+		private long fortDetailsMs;
+		private GetGymDetailsResponse gymDetails;
+		private long gymDetailsMs;
+	}
+}
@@ -0,0 +1,301 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.pokegoapi.api.map.fort;
+
+import POGOProtos.Map.Fort.FortDataOuterClass.FortData;
+import POGOProtos.Networking.Responses.FortDetailsResponseOuterClass.FortDetailsResponse;
+import com.pokegoapi.google.common.geometry.S2Cell;
+import com.pokegoapi.google.common.geometry.S2CellId;
+import com.pokegoapi.google.common.geometry.S2LatLng;
+import com.pokegoapi.google.common.geometry.S2Region;
+import com.pokegoapi.google.common.geometry.S2RegionCoverer;
+import com.pokegoapi.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Persistent database of forts, so a session knows the forts around it before its first map response.
+ *
+ * <p>Forts are grouped by their level {@value #REGION_LEVEL} cell (about 10km wide) and every region is stored in its
+ * own file. Regions are only read from disk the first time a fort inside them is requested or updated. Stores are
+ * shared per directory through {@link #open(File)}, all sessions of a JVM see the same immutable
+ * {@link StoredFort} snapshots and changes are written back by {@link #flush()}.</p>
+ */
+public class FortStore {
+	private static final String TAG = FortStore.class.getSimpleName();
+
+	public static final int REGION_LEVEL = 10;
+
+	private static final String EXTENSION = ".forts";
+	private static final int VERSION = 1;
+	private static final ConcurrentMap<String, FortStore> STORES = new ConcurrentHashMap<>();
+
+	private final File directory;
+	private final ConcurrentMap<Long, Region> regions = new ConcurrentHashMap<>();
+
+	private FortStore(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Returns the store for the given directory, creating the directory if needed.
+	 * Every call with the same directory returns the same instance.
+	 *
+	 * @param directory the directory containing the region files
+	 * @return the shared store
+	 * @throws IOException if the directory could not be created
+	 */
+	public static FortStore open(File directory) throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Cannot create fort store directory " + directory);
+		}
+		String key = directory.getCanonicalPath();
+		FortStore store = STORES.get(key);
+		if (store == null) {
+			store = new FortStore(directory);
+			FortStore existing = STORES.putIfAbsent(key, store);
+			if (existing != null) {
+				store = existing;
+			}
+		}
+		return store;
+	}
+
+	/**
+	 * Returns a stored fort.
+	 *
+	 * @param id the fort id
+	 * @param latitude the latitude of the fort, used to find its region
+	 * @param longitude the longitude of the fort, used to find its region
+	 * @return the fort, or null if it is not stored
+	 */
+	public StoredFort getFort(String id, double latitude, double longitude) {
+		return getRegion(regionOf(latitude, longitude)).forts.get(id);
+	}
+
+	/**
+	 * Returns all stored forts within the given region, loading the regions covering it as needed.
+	 *
+	 * @param region the region to get forts for
+	 * @return the forts within the region
+	 */
+	public List<StoredFort> getForts(S2Region region) {
+		S2RegionCoverer coverer = new S2RegionCoverer();
+		coverer.setMinLevel(REGION_LEVEL);
+		coverer.setMaxLevel(REGION_LEVEL);
+		coverer.setMaxCells(Integer.MAX_VALUE);
+		ArrayList<S2CellId> covering = new ArrayList<>();
+		coverer.getCovering(region, covering);
+
+		List<StoredFort> result = new ArrayList<>();
+		for (S2CellId cell : covering) {
+			for (StoredFort fort : getRegion(cell.id()).forts.values()) {
+				S2LatLng latLng = S2LatLng.fromDegrees(fort.getLatitude(), fort.getLongitude());
+				if (region.contains(new S2Cell(latLng))) {
+					result.add(fort);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Stores the given forts, keeping their known details.
+	 *
+	 * @param forts the forts received from the server
+	 * @param seenMs the time the forts were received
+	 */
+	public void update(Collection<FortData> forts, long seenMs) {
+		for (FortData fortData : forts) {
+			Region region = getRegion(regionOf(fortData.getLatitude(), fortData.getLongitude()));
+			synchronized (region) {
+				StoredFort previous = region.forts.get(fortData.getId());
+				if (previous != null && previous.getLastSeenMs() > seenMs) {
+					continue;
+				}
+				FortDetails details = previous != null ? previous.getDetails() : null;
+				long detailsSeenMs = previous != null ? previous.getDetailsSeenMs() : 0;
+				region.forts.put(fortData.getId(), new StoredFort(fortData, seenMs, details, detailsSeenMs));
+				region.dirty = true;
+			}
+		}
+	}
+
+	/**
+	 * Stores the details of a fort. Details of forts that were never seen in a map response are ignored.
+	 *
+	 * @param details the details received from the server
+	 * @param seenMs the time the details were received
+	 * @return true if the fort was stored
+	 */
+	public boolean updateDetails(FortDetails details, long seenMs) {
+		Region region = getRegion(regionOf(details.getLatitude(), details.getLongitude()));
+		synchronized (region) {
+			StoredFort previous = region.forts.get(details.getId());
+			if (previous == null) {
+				return false;
+			}
+			if (previous.getDetailsSeenMs() <= seenMs) {
+				region.forts.put(details.getId(),
+						new StoredFort(previous.getFortData(), previous.getLastSeenMs(), details, seenMs));
+				region.dirty = true;
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Writes all changed regions to disk.
+	 *
+	 * @throws IOException if a region could not be written
+	 */
+	public void flush() throws IOException {
+		for (Region region : regions.values()) {
+			synchronized (region) {
+				if (region.dirty) {
+					write(region);
+					region.dirty = false;
+				}
+			}
+		}
+	}
+
+	private static long regionOf(double latitude, double longitude) {
+		return S2CellId.fromLatLng(S2LatLng.fromDegrees(latitude, longitude)).parent(REGION_LEVEL).id();
+	}
+
+	private Region getRegion(long cellId) {
+		Region region = regions.get(cellId);
+		if (region == null) {
+			region = new Region(cellId);
+			Region existing = regions.putIfAbsent(cellId, region);
+			if (existing != null) {
+				region = existing;
+			}
+		}
+		synchronized (region) {
+			if (!region.loaded) {
+				read(region);
+				region.loaded = true;
+			}
+		}
+		return region;
+	}
+
+	private File fileOf(Region region) {
+		return new File(directory, new S2CellId(region.cellId).toToken() + EXTENSION);
+	}
+
+	/**
+	 * Reads a region file, a missing or damaged file results in an empty region.
+	 * Forts are only added to the region once the whole file was read.
+	 */
+	private void read(Region region) {
+		File file = fileOf(region);
+		if (!file.isFile()) {
+			return;
+		}
+		Map<String, StoredFort> forts = new HashMap<>();
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readInt() != VERSION) {
+				Log.w(TAG, "Ignoring fort region with unknown version: " + file);
+				return;
+			}
+			while (true) {
+				int length;
+				try {
+					length = in.readInt();
+				} catch (EOFException e) {
+					break;
+				}
+				FortData fortData = FortData.parseFrom(readBytes(in, length, file));
+				long lastSeenMs = in.readLong();
+				int detailsLength = in.readInt();
+				FortDetails details = null;
+				if (detailsLength > 0) {
+					details = new FortDetails(FortDetailsResponse.parseFrom(readBytes(in, detailsLength, file)));
+				}
+				long detailsSeenMs = in.readLong();
+				forts.put(fortData.getId(), new StoredFort(fortData, lastSeenMs, details, detailsSeenMs));
+			}
+		} catch (IOException e) {
+			Log.w(TAG, "Failed to read fort region " + file, e);
+			return;
+		}
+		region.forts.putAll(forts);
+	}
+
+	private void write(Region region) throws IOException {
+		File file = fileOf(region);
+		File temp = new File(directory, file.getName() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+			out.writeInt(VERSION);
+			for (StoredFort fort : region.forts.values()) {
+				byte[] fortData = fort.getFortData().toByteArray();
+				out.writeInt(fortData.length);
+				out.write(fortData);
+				out.writeLong(fort.getLastSeenMs());
+				if (fort.getDetails() == null) {
+					out.writeInt(0);
+				} else {
+					byte[] details = fort.getDetails().getProto().toByteArray();
+					out.writeInt(details.length);
+					out.write(details);
+				}
+				out.writeLong(fort.getDetailsSeenMs());
+			}
+		}
+		Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	private static byte[] readBytes(DataInputStream in, int length, File file) throws IOException {
+		// a damaged length must not allocate more than the file can hold
+		if (length < 0 || length > file.length()) {
+			throw new IOException("Invalid record length " + length);
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return bytes;
+	}
+
+	private static class Region {
+		private final long cellId;
+		private final ConcurrentMap<String, StoredFort> forts = new ConcurrentHashMap<>();
+		private boolean loaded;
+		private boolean dirty;
+
+		Region(long cellId) {
+			this.cellId = cellId;
+		}
+	}
+}
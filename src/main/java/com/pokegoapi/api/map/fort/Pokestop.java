@@ -27,12 +27,13 @@ import POGOProtos.Networking.Responses.FortDetailsResponseOuterClass;
 import POGOProtos.Networking.Responses.FortSearchResponseOuterClass;
 import com.google.protobuf.ByteString;
 import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.ProtocolStringList;
 import com.pokegoapi.api.PokemonGo;
 import com.pokegoapi.exceptions.LoginFailedException;
 import com.pokegoapi.exceptions.RemoteServerException;
-import com.pokegoapi.google.common.geometry.S2LatLng;
 import com.pokegoapi.main.AsyncServerRequest;
 import com.pokegoapi.util.FutureWrapper;
+import com.pokegoapi.util.Geodesy;
 import com.pokegoapi.util.PokemonFuture;
 import lombok.Getter;
 
@@ -48,6 +49,7 @@ public class Pokestop {
 	private final FortDataOuterClass.FortData fortData;
 	@Getter
 	private long cooldownCompleteTimestampMs;
+	private final double cosLatitude;
 
 
 	/**
@@ -60,6 +62,7 @@ public class Pokestop {
 		this.api = api;
 		this.fortData = fortData;
 		this.cooldownCompleteTimestampMs = fortData.getCooldownCompleteTimestampMs();
+		this.cosLatitude = Geodesy.cosLatitude(fortData.getLatitude());
 	}
 
 	/**
@@ -68,10 +71,7 @@ public class Pokestop {
 	 * @return true when in range of player
 	 */
 	public boolean inRange() {
-		S2LatLng pokestop = S2LatLng.fromDegrees(getLatitude(), getLongitude());
-		S2LatLng player = S2LatLng.fromDegrees(api.getLatitude(), api.getLongitude());
-		double distance = pokestop.getEarthDistance(player);
-		return distance < 30;
+		return Geodesy.isWithin(getLatitude(), getLongitude(), cosLatitude, api.getLatitude(), api.getLongitude(), 30);
 	}
 
 	/**
@@ -174,6 +174,7 @@ public class Pokestop {
 				} catch (InvalidProtocolBufferException e) {
 					throw new RemoteServerException(e);
 				}
+				api.getMap().getDetailsCache().invalidate(getId());
 				return Boolean.TRUE;
 			}
 		};
@@ -212,7 +213,13 @@ public class Pokestop {
 				} catch (InvalidProtocolBufferException e) {
 					throw new RemoteServerException(e);
 				}
-				return new FortDetails(response);
+				FortDetails details = new FortDetails(response);
+				api.getMap().getDetailsCache().put(details);
+				FortStore store = api.getMap().getFortStore();
+				if (store != null) {
+					store.updateDetails(details, api.currentTimeMillis());
+				}
+				return details;
 			}
 		};
 	}
@@ -220,13 +227,55 @@ public class Pokestop {
 
 	/**
 	 * Get more detailed information about a pokestop.
+	 * Details fetched within the last {@link FortDetailsCache#MODIFIER_TTL_MS}ms are returned from the cache, use
+	 * {@link #getName()}, {@link #getDescription()} and {@link #getImageUrl()} for the fields that rarely change.
 	 *
 	 * @return FortDetails
 	 * @throws LoginFailedException  if login failed
 	 * @throws RemoteServerException if the server failed to respond
 	 */
 	public FortDetails getDetails() throws LoginFailedException, RemoteServerException {
-		return getDetailsAsync().toBlocking();
+		return details(FortDetailsCache.MODIFIER_TTL_MS);
+	}
+
+	/**
+	 * Returns the details of this pokestop, fetching them if the cached details are older than the given age.
+	 */
+	private FortDetails details(long maxAgeMs) throws LoginFailedException, RemoteServerException {
+		return api.getMap().getDetailsCache().getFortDetails(getId(), getLatitude(), getLongitude(), maxAgeMs);
+	}
+
+	/**
+	 * Returns the name of this pokestop, cached for {@link FortDetailsCache#STATIC_TTL_MS}ms.
+	 *
+	 * @return the name
+	 * @throws LoginFailedException  if login failed
+	 * @throws RemoteServerException if the server failed to respond
+	 */
+	public String getName() throws LoginFailedException, RemoteServerException {
+		return details(FortDetailsCache.STATIC_TTL_MS).getName();
+	}
+
+	/**
+	 * Returns the description of this pokestop, cached for {@link FortDetailsCache#STATIC_TTL_MS}ms.
+	 *
+	 * @return the description
+	 * @throws LoginFailedException  if login failed
+	 * @throws RemoteServerException if the server failed to respond
+	 */
+	public String getDescription() throws LoginFailedException, RemoteServerException {
+		return details(FortDetailsCache.STATIC_TTL_MS).getDescription();
+	}
+
+	/**
+	 * Returns the image urls of this pokestop, cached for {@link FortDetailsCache#STATIC_TTL_MS}ms.
+	 *
+	 * @return the image urls
+	 * @throws LoginFailedException  if login failed
+	 * @throws RemoteServerException if the server failed to respond
+	 */
+	public ProtocolStringList getImageUrl() throws LoginFailedException, RemoteServerException {
+		return details(FortDetailsCache.STATIC_TTL_MS).getImageUrl();
 	}
 
 	/**
@@ -0,0 +1,55 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.pokegoapi.api.map.fort;
+
+import POGOProtos.Map.Fort.FortDataOuterClass.FortData;
+import lombok.Getter;
+
+/**
+ * Immutable snapshot of a fort kept by a {@link FortStore}.
+ */
+public class StoredFort {
+	@Getter
+	private final FortData fortData;
+	@Getter
+	private final long lastSeenMs;
+	/**
+	 * The last known details, or null if the details were never fetched.
+	 */
+	@Getter
+	private final FortDetails details;
+	@Getter
+	private final long detailsSeenMs;
+
+	StoredFort(FortData fortData, long lastSeenMs, FortDetails details, long detailsSeenMs) {
+		this.fortData = fortData;
+		this.lastSeenMs = lastSeenMs;
+		this.details = details;
+		this.detailsSeenMs = detailsSeenMs;
+	}
+
+	public String getId() {
+		return fortData.getId();
+	}
+
+	public double getLatitude() {
+		return fortData.getLatitude();
+	}
+
+	public double getLongitude() {
+		return fortData.getLongitude();
+	}
+}
@@ -31,6 +31,7 @@ import POGOProtos.Networking.Responses.UseItemCaptureResponseOuterClass.UseItemC
 import com.google.protobuf.ByteString;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.pokegoapi.api.PokemonGo;
+import com.pokegoapi.api.inventory.Inventories;
 import com.pokegoapi.api.inventory.ItemBag;
 import com.pokegoapi.api.inventory.Pokeball;
 import com.pokegoapi.exceptions.LoginFailedException;
@@ -95,7 +96,9 @@ public class CatchablePokemon {
 		this.spawnPointId = proto.getSpawnPointId();
 		this.encounterId = proto.getEncounterId();
 		this.pokemonId = proto.getPokemonData().getPokemonId();
-		this.expirationTimestampMs = proto.getTimeTillHiddenMs();
+		// time_till_hidden_ms is relative to the time the server last modified this pokemon
+		this.expirationTimestampMs = proto.getTimeTillHiddenMs() > 0
+				? proto.getLastModifiedTimestampMs() + proto.getTimeTillHiddenMs() : -1;
 		this.latitude = proto.getLatitude();
 		this.longitude = proto.getLongitude();
 	}
@@ -127,6 +130,12 @@ public class CatchablePokemon {
 	 * @return the encounter result
 	 */
 	public PokemonFuture<EncounterResult> encounterPokemonAsync() {
+		if (isExpired()) {
+			// no need to ask the server about a pokemon that already despawned
+			return FutureWrapper.just(new EncounterResult(EncounterResponse.newBuilder()
+					.setStatus(EncounterResponse.Status.ENCOUNTER_CLOSED)
+					.build()));
+		}
 		EncounterMessageOuterClass.EncounterMessage reqMsg = EncounterMessageOuterClass.EncounterMessage
 				.newBuilder().setEncounterId(getEncounterId())
 				.setPlayerLatitude(api.getLatitude())
@@ -176,11 +185,11 @@ public class CatchablePokemon {
 		final Pokeball pokeball;
 
 		ItemBag bag = api.getInventories().getItemBag();
-		if (bag.getItem(ItemId.ITEM_POKE_BALL).getCount() > 0) {
+		if (bag.getItemCount(ItemId.ITEM_POKE_BALL) > 0) {
 			pokeball = Pokeball.POKEBALL;
-		} else if (bag.getItem(ItemId.ITEM_GREAT_BALL).getCount() > 0) {
+		} else if (bag.getItemCount(ItemId.ITEM_GREAT_BALL) > 0) {
 			pokeball = Pokeball.GREATBALL;
-		} else if (bag.getItem(ItemId.ITEM_ULTRA_BALL).getCount() > 0) {
+		} else if (bag.getItemCount(ItemId.ITEM_ULTRA_BALL) > 0) {
 			pokeball = Pokeball.ULTRABALL;
 		} else {
 			pokeball = Pokeball.MASTERBALL;
@@ -209,11 +218,11 @@ public class CatchablePokemon {
 		Pokeball pokeball;
 
 		ItemBag bag = api.getInventories().getItemBag();
-		if (bag.getItem(ItemId.ITEM_POKE_BALL).getCount() > 0) {
+		if (bag.getItemCount(ItemId.ITEM_POKE_BALL) > 0) {
 			pokeball = Pokeball.POKEBALL;
-		} else if (bag.getItem(ItemId.ITEM_GREAT_BALL).getCount() > 0) {
+		} else if (bag.getItemCount(ItemId.ITEM_GREAT_BALL) > 0) {
 			pokeball = Pokeball.GREATBALL;
-		} else if (bag.getItem(ItemId.ITEM_ULTRA_BALL).getCount() > 0) {
+		} else if (bag.getItemCount(ItemId.ITEM_ULTRA_BALL) > 0) {
 			pokeball = Pokeball.ULTRABALL;
 		} else {
 			pokeball = Pokeball.MASTERBALL;
@@ -236,11 +245,11 @@ public class CatchablePokemon {
 		Pokeball pokeball;
 
 		ItemBag bag = api.getInventories().getItemBag();
-		if (bag.getItem(ItemId.ITEM_POKE_BALL).getCount() > 0) {
+		if (bag.getItemCount(ItemId.ITEM_POKE_BALL) > 0) {
 			pokeball = Pokeball.POKEBALL;
-		} else if (bag.getItem(ItemId.ITEM_GREAT_BALL).getCount() > 0) {
+		} else if (bag.getItemCount(ItemId.ITEM_GREAT_BALL) > 0) {
 			pokeball = Pokeball.GREATBALL;
-		} else if (bag.getItem(ItemId.ITEM_ULTRA_BALL).getCount() > 0) {
+		} else if (bag.getItemCount(ItemId.ITEM_ULTRA_BALL) > 0) {
 			pokeball = Pokeball.ULTRABALL;
 		} else {
 			pokeball = Pokeball.MASTERBALL;
@@ -387,10 +396,20 @@ public class CatchablePokemon {
 				.setSpawnPointId(getSpawnPointId())
 				.setSpinModifier(spinModifier)
 				.setPokeball(type.getBallType()).build();
+		final Inventories inventories;
+		try {
+			inventories = api.getInventories();
+		} catch (LoginFailedException | RemoteServerException e) {
+			return FutureWrapper.failed(e);
+		}
 		AsyncServerRequest serverRequest = new AsyncServerRequest(
 				RequestTypeOuterClass.RequestType.CATCH_POKEMON, reqMsg);
-		return new FutureWrapper<ByteString, CatchResult>(api.getRequestHandler()
-				.sendAsyncServerRequests(serverRequest)) {
+		Future<ByteString> catchFuture = api.getRequestHandler().sendAsyncServerRequests(serverRequest);
+		// queued right behind the catch so both go out in the same envelope
+		final Future<ByteString> inventoryFuture = api.getRequestHandler().sendAsyncServerRequests(
+				new AsyncServerRequest(RequestTypeOuterClass.RequestType.GET_INVENTORY,
+						inventories.getDeltaMessage()));
+		return new FutureWrapper<ByteString, CatchResult>(catchFuture) {
 			@Override
 			protected CatchResult handle(ByteString result) throws RemoteServerException, LoginFailedException {
 				CatchPokemonResponse response;
@@ -399,10 +418,11 @@ public class CatchablePokemon {
 				} catch (InvalidProtocolBufferException e) {
 					throw new RemoteServerException(e);
 				}
+				// the thrown ball is spent even when the catch fails
+				inventories.applyInventoryResponse(FutureWrapper.toBlocking(inventoryFuture));
 
 				if (response.getStatus() != CatchPokemonResponse.CatchStatus.CATCH_ESCAPE
 						&& response.getStatus() != CatchPokemonResponse.CatchStatus.CATCH_MISSED) {
-					api.getInventories().updateInventories();
 					return new CatchResult(response);
 				} else {
 					return new CatchResult();
@@ -473,6 +493,15 @@ public class CatchablePokemon {
 		return (int) this.getEncounterId();
 	}
 
+	/**
+	 * Checks whether this pokemon already despawned. Pokemon without a known expiration time never expire.
+	 *
+	 * @return true if the expiration time has passed
+	 */
+	public boolean isExpired() {
+		return expirationTimestampMs > 0 && expirationTimestampMs <= api.currentTimeMillis();
+	}
+
 	/**
 	 * Encounter check
 	 *
@@ -0,0 +1,241 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.pokegoapi.api.map.scan;
+
+import com.pokegoapi.api.PokemonGo;
+import com.pokegoapi.api.map.Map;
+import com.pokegoapi.api.map.MapObjects;
+import com.pokegoapi.exceptions.LoginFailedException;
+import com.pokegoapi.exceptions.RemoteServerException;
+import com.pokegoapi.google.common.geometry.S2CellId;
+import com.pokegoapi.google.common.geometry.S2LatLng;
+import com.pokegoapi.google.common.geometry.S2Region;
+import com.pokegoapi.google.common.geometry.S2RegionCoverer;
+import com.pokegoapi.util.Log;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Scans a region with a pool of accounts.
+ * The level 15 covering of the region is split into work units of {@value #UNIT_WIDTH}x{@value #UNIT_WIDTH} cells,
+ * the units are ordered along the Hilbert curve and every account gets one contiguous stretch of them. The accounts
+ * walk their stretch concurrently, never faster than the configured speed and never sending map requests more often
+ * than the configured interval. All responses are merged into one {@link ScanResult}.
+ */
+public class ScanCoordinator {
+	private static final String TAG = ScanCoordinator.class.getSimpleName();
+
+	/**
+	 * Level of the cells requested by GET_MAP_OBJECTS.
+	 */
+	public static final int CELL_LEVEL = 15;
+	/**
+	 * Width of the block of cells requested around every scan location.
+	 */
+	public static final int UNIT_WIDTH = 3;
+	/**
+	 * {@link Map} answers from its cache for {@value Map#RESEND_REQUEST} ms after a request,
+	 * so requesting more often would not return new data.
+	 */
+	public static final long DEFAULT_REQUEST_INTERVAL_MS = Map.RESEND_REQUEST;
+	/**
+	 * Roughly the speed of a car in a city, in meters per second.
+	 */
+	public static final double DEFAULT_SPEED = 12.5;
+
+	private final List<PokemonGo> accounts;
+	@Getter
+	@Setter
+	private double maxSpeed = DEFAULT_SPEED;
+	/**
+	 * Minimum time between the response of a map request and the next request of the same account.
+	 * Values below {@link #DEFAULT_REQUEST_INTERVAL_MS} are raised to it, because the map would answer from its cache.
+	 */
+	@Getter
+	@Setter
+	private long minRequestIntervalMs = DEFAULT_REQUEST_INTERVAL_MS;
+	@Getter
+	@Setter
+	private int maxCells = 100000;
+
+	/**
+	 * Creates a coordinator for the given accounts.
+	 *
+	 * @param accounts the logged in accounts used to scan, each account is used by a single thread only
+	 */
+	public ScanCoordinator(List<PokemonGo> accounts) {
+		if (accounts.isEmpty()) {
+			throw new IllegalArgumentException("At least one account is required");
+		}
+		this.accounts = new ArrayList<>(accounts);
+	}
+
+	/**
+	 * Splits the level 15 covering of a region into work units and assigns them to the accounts.
+	 *
+	 * @param region the region to scan
+	 * @return one list of work unit centers per account, in walking order
+	 */
+	public List<List<S2CellId>> planWorkUnits(S2Region region) {
+		S2RegionCoverer coverer = new S2RegionCoverer();
+		coverer.setMinLevel(CELL_LEVEL);
+		coverer.setMaxLevel(CELL_LEVEL);
+		coverer.setMaxCells(maxCells);
+		ArrayList<S2CellId> covering = new ArrayList<>();
+		coverer.getCovering(region, covering);
+
+		List<S2CellId> centers = selectCenters(covering);
+		Collections.sort(centers);
+
+		List<List<S2CellId>> plan = new ArrayList<>(accounts.size());
+		int perAccount = (centers.size() + accounts.size() - 1) / accounts.size();
+		for (int i = 0; i < accounts.size(); i++) {
+			int from = Math.min(centers.size(), i * perAccount);
+			int to = Math.min(centers.size(), from + perAccount);
+			plan.add(new ArrayList<>(centers.subList(from, to)));
+		}
+		return plan;
+	}
+
+	/**
+	 * Scans a region with all accounts and blocks until every work unit was requested.
+	 * Work units that failed are reported by {@link ScanResult#getFailedCells()}.
+	 *
+	 * @param region the region to scan
+	 * @return the merged objects of all accounts
+	 * @throws InterruptedException if the calling thread was interrupted while waiting
+	 */
+	public ScanResult scan(S2Region region) throws InterruptedException {
+		List<List<S2CellId>> plan = planWorkUnits(region);
+		final ScanResult result = new ScanResult();
+		ExecutorService executor = Executors.newFixedThreadPool(accounts.size());
+		try {
+			List<Future<Void>> futures = new ArrayList<>(accounts.size());
+			for (int i = 0; i < accounts.size(); i++) {
+				final PokemonGo api = accounts.get(i);
+				final List<S2CellId> units = plan.get(i);
+				futures.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws InterruptedException {
+						walk(api, units, result);
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> future : futures) {
+				try {
+					future.get();
+				} catch (ExecutionException e) {
+					Log.e(TAG, "Scan worker failed", e.getCause());
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		return result;
+	}
+
+	/**
+	 * Walks a single account along its work units.
+	 */
+	private void walk(PokemonGo api, List<S2CellId> units, ScanResult result) throws InterruptedException {
+		S2LatLng position = S2LatLng.fromDegrees(api.getLatitude(), api.getLongitude());
+		// accounts without a location yet start at their first unit
+		boolean teleport = api.getLatitude() == 0 && api.getLongitude() == 0;
+		// the map decides whether to answer from its cache with the api clock, so pace with the same clock
+		long interval = Math.max(minRequestIntervalMs, DEFAULT_REQUEST_INTERVAL_MS);
+		long lastResponse = 0;
+		for (S2CellId unit : units) {
+			S2LatLng target = unit.toLatLng();
+			long travelMs = teleport ? 0 : (long) (position.getEarthDistance(target) / maxSpeed * 1000);
+			long deadline = Math.max(api.currentTimeMillis() + travelMs, lastResponse + interval);
+			long wait;
+			while ((wait = deadline - api.currentTimeMillis()) > 0) {
+				Thread.sleep(wait);
+			}
+			teleport = false;
+			position = target;
+			api.setLocation(target.latDegrees(), target.lngDegrees(), api.getAltitude());
+
+			try {
+				List<Long> cellIds = api.getMap().getCellIds(target.latDegrees(), target.lngDegrees(), UNIT_WIDTH);
+				MapObjects objects = api.getMap().getMapObjects(cellIds);
+				result.merge(api, objects);
+			} catch (LoginFailedException | RemoteServerException e) {
+				Log.w(TAG, "Failed to scan " + unit, e);
+				result.addFailedCell(unit);
+			} finally {
+				// the map stamps its request before sending it, so this is never earlier than its stamp
+				lastResponse = api.currentTimeMillis();
+			}
+		}
+	}
+
+	/**
+	 * Greedily picks work unit centers until every cell of the covering is part of a unit.
+	 * For every uncovered cell the center within its neighbourhood that covers the most uncovered cells is used.
+	 */
+	private List<S2CellId> selectCenters(List<S2CellId> covering) {
+		Set<S2CellId> uncovered = new HashSet<>(covering);
+		List<S2CellId> centers = new ArrayList<>();
+		for (S2CellId cell : covering) {
+			if (!uncovered.contains(cell)) {
+				continue;
+			}
+			S2CellId best = cell;
+			int bestCount = -1;
+			for (S2CellId candidate : getUnitCells(cell)) {
+				int count = 0;
+				for (S2CellId covered : getUnitCells(candidate)) {
+					if (uncovered.contains(covered)) {
+						count++;
+					}
+				}
+				if (count > bestCount) {
+					best = candidate;
+					bestCount = count;
+				}
+			}
+			centers.add(best);
+			uncovered.removeAll(getUnitCells(best));
+		}
+		return centers;
+	}
+
+	/**
+	 * Returns the cells requested by a work unit centered on the given cell.
+	 */
+	private List<S2CellId> getUnitCells(S2CellId center) {
+		S2LatLng latLng = center.toLatLng();
+		List<Long> ids = accounts.get(0).getMap().getCellIds(latLng.latDegrees(), latLng.lngDegrees(), UNIT_WIDTH);
+		List<S2CellId> cells = new ArrayList<>(ids.size());
+		for (Long id : ids) {
+			cells.add(new S2CellId(id));
+		}
+		return cells;
+	}
+}
@@ -0,0 +1,266 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.pokegoapi.api.map.scan;
+
+import POGOProtos.Map.SpawnPointOuterClass.SpawnPoint;
+import com.pokegoapi.google.common.geometry.S1Angle;
+import com.pokegoapi.google.common.geometry.S2Cap;
+import com.pokegoapi.google.common.geometry.S2CellId;
+import com.pokegoapi.google.common.geometry.S2CellUnion;
+import com.pokegoapi.google.common.geometry.S2LatLng;
+import com.pokegoapi.google.common.geometry.S2Point;
+import com.pokegoapi.google.common.geometry.S2RegionCoverer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Computes a small set of scan locations that together see every known spawn point.
+ * This is a greedy set cover: every spawn point is a candidate location covering all spawn points within the radius,
+ * and the candidate covering the most uncovered spawn points is picked until none are left. The greedy choice is
+ * at most a logarithmic factor away from the optimum and close to it for real spawn point layouts.
+ *
+ * <p>Spawn points are partitioned by their level {@value #PARTITION_LEVEL} parent cell. As those cells are much
+ * larger than the scan radius the partitions are solved independently on a fork/join pool, which only costs a few
+ * extra locations along the partition borders.</p>
+ */
+public class ScanLocationSolver {
+	/**
+	 * Radius in meters in which catchable pokemon are returned by GET_MAP_OBJECTS.
+	 */
+	public static final double DEFAULT_RADIUS = 70;
+	/**
+	 * Level of the cells used to split the solution into parallel tasks, about 1.2km wide.
+	 */
+	public static final int PARTITION_LEVEL = 13;
+
+	private static final int SEQUENTIAL_THRESHOLD = 2048;
+	// shared by all solvers created without a pool, its daemon workers are only started on demand
+	private static final ForkJoinPool SHARED_POOL = new ForkJoinPool();
+
+	private final S1Angle radius;
+	private final ForkJoinPool pool;
+
+	/**
+	 * Creates a solver with the default radius.
+	 */
+	public ScanLocationSolver() {
+		this(DEFAULT_RADIUS);
+	}
+
+	/**
+	 * Creates a solver for the given radius that runs on a pool shared by all such solvers.
+	 *
+	 * @param radiusMeters the radius around a scan location in which objects are visible
+	 */
+	public ScanLocationSolver(double radiusMeters) {
+		this(radiusMeters, SHARED_POOL);
+	}
+
+	/**
+	 * Creates a solver for the given radius that runs on the given pool.
+	 *
+	 * @param radiusMeters the radius around a scan location in which objects are visible
+	 * @param pool the pool to solve the partitions on, it is not shut down by the solver
+	 */
+	public ScanLocationSolver(double radiusMeters, ForkJoinPool pool) {
+		this.radius = S1Angle.radians(radiusMeters / S2LatLng.EARTH_RADIUS_METERS);
+		this.pool = pool;
+	}
+
+	/**
+	 * Computes the scan locations for the given spawn points.
+	 *
+	 * @param spawnPoints the spawn points to cover
+	 * @return the scan locations in walking order
+	 */
+	public List<S2LatLng> solve(Collection<SpawnPoint> spawnPoints) {
+		List<S2LatLng> points = new ArrayList<>(spawnPoints.size());
+		for (SpawnPoint spawnPoint : spawnPoints) {
+			points.add(S2LatLng.fromDegrees(spawnPoint.getLatitude(), spawnPoint.getLongitude()));
+		}
+		return solvePoints(points);
+	}
+
+	/**
+	 * Computes the scan locations for the given points.
+	 *
+	 * @param points the points to cover
+	 * @return the scan locations in walking order, that is the order of their cells along the Hilbert curve
+	 */
+	public List<S2LatLng> solvePoints(Collection<S2LatLng> points) {
+		if (points.isEmpty()) {
+			return new ArrayList<>();
+		}
+		S2CellId[] sorted = new S2CellId[points.size()];
+		int count = 0;
+		for (S2LatLng point : points) {
+			sorted[count++] = S2CellId.fromLatLng(point);
+		}
+		Arrays.sort(sorted);
+		// drop duplicates so every point is covered exactly once
+		int unique = 1;
+		for (int i = 1; i < sorted.length; i++) {
+			if (!sorted[i].equals(sorted[unique - 1])) {
+				sorted[unique++] = sorted[i];
+			}
+		}
+		S2CellId[] ids = Arrays.copyOf(sorted, unique);
+		S2Point[] centers = new S2Point[unique];
+		for (int i = 0; i < unique; i++) {
+			centers[i] = ids[i].toPoint();
+		}
+
+		// points sharing a partition cell are contiguous in Hilbert order
+		List<int[]> partitions = new ArrayList<>();
+		int from = 0;
+		for (int i = 1; i <= unique; i++) {
+			if (i == unique || !ids[i].parent(PARTITION_LEVEL).equals(ids[from].parent(PARTITION_LEVEL))) {
+				partitions.add(new int[]{from, i});
+				from = i;
+			}
+		}
+
+		List<S2CellId> solution = pool.invoke(new SolveTask(ids, centers, partitions, 0, partitions.size()));
+		Collections.sort(solution);
+		List<S2LatLng> locations = new ArrayList<>(solution.size());
+		for (S2CellId id : solution) {
+			locations.add(id.toLatLng());
+		}
+		return locations;
+	}
+
+	/**
+	 * Solves a range of partitions, splitting it while it holds many points.
+	 */
+	private class SolveTask extends RecursiveTask<List<S2CellId>> {
+		private final S2CellId[] ids;
+		private final S2Point[] centers;
+		private final List<int[]> partitions;
+		private final int from;
+		private final int to;
+
+		SolveTask(S2CellId[] ids, S2Point[] centers, List<int[]> partitions, int from, int to) {
+			this.ids = ids;
+			this.centers = centers;
+			this.partitions = partitions;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected List<S2CellId> compute() {
+			int points = partitions.get(to - 1)[1] - partitions.get(from)[0];
+			if (to - from == 1 || points <= SEQUENTIAL_THRESHOLD) {
+				S2RegionCoverer coverer = new S2RegionCoverer();
+				coverer.setMaxCells(8);
+				List<S2CellId> solution = new ArrayList<>();
+				for (int i = from; i < to; i++) {
+					int[] partition = partitions.get(i);
+					solvePartition(coverer, partition[0], partition[1], solution);
+				}
+				return solution;
+			}
+			int middle = (from + to) >>> 1;
+			SolveTask left = new SolveTask(ids, centers, partitions, from, middle);
+			left.fork();
+			List<S2CellId> solution = new SolveTask(ids, centers, partitions, middle, to).compute();
+			solution.addAll(0, left.join());
+			return solution;
+		}
+
+		/**
+		 * Greedily covers the points in [start, end). Gains only shrink as points get covered, so a candidate
+		 * whose refreshed gain is still at least the best queued gain is the greedy choice.
+		 */
+		private void solvePartition(S2RegionCoverer coverer, int start, int end, List<S2CellId> solution) {
+			int size = end - start;
+			int[][] coverage = new int[size][];
+			PriorityQueue<int[]> queue = new PriorityQueue<>(size, new Comparator<int[]>() {
+				@Override
+				public int compare(int[] first, int[] second) {
+					return second[0] - first[0];
+				}
+			});
+			for (int i = 0; i < size; i++) {
+				coverage[i] = neighbours(coverer, start + i, start, end);
+				queue.add(new int[]{coverage[i].length, i});
+			}
+
+			boolean[] covered = new boolean[size];
+			int remaining = size;
+			while (remaining > 0) {
+				int[] entry = queue.poll();
+				int candidate = entry[1];
+				int gain = 0;
+				for (int index : coverage[candidate]) {
+					if (!covered[index - start]) {
+						gain++;
+					}
+				}
+				if (gain == 0) {
+					continue;
+				}
+				if (!queue.isEmpty() && gain < queue.peek()[0]) {
+					entry[0] = gain;
+					queue.add(entry);
+					continue;
+				}
+				for (int index : coverage[candidate]) {
+					if (!covered[index - start]) {
+						covered[index - start] = true;
+						remaining--;
+					}
+				}
+				solution.add(ids[start + candidate]);
+			}
+		}
+
+		/**
+		 * Returns the indices in [start, end) of all points within the radius of the given point.
+		 */
+		private int[] neighbours(S2RegionCoverer coverer, int point, int start, int end) {
+			S2Cap cap = S2Cap.fromAxisAngle(centers[point], radius);
+			S2CellUnion covering = coverer.getCovering(cap);
+			int[] result = new int[8];
+			int count = 0;
+			for (S2CellId cell : covering) {
+				S2CellId min = cell.rangeMin();
+				S2CellId max = cell.rangeMax();
+				int index = Arrays.binarySearch(ids, start, end, min);
+				if (index < 0) {
+					index = -index - 1;
+				}
+				for (; index < end && ids[index].compareTo(max) <= 0; index++) {
+					if (cap.contains(centers[index])) {
+						if (count == result.length) {
+							result = Arrays.copyOf(result, count * 2);
+						}
+						result[count++] = index;
+					}
+				}
+			}
+			return Arrays.copyOf(result, count);
+		}
+	}
+}
@@ -0,0 +1,123 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.pokegoapi.api.map.scan;
+
+import POGOProtos.Map.Fort.FortDataOuterClass.FortData;
+import POGOProtos.Map.Pokemon.MapPokemonOuterClass.MapPokemon;
+import POGOProtos.Map.Pokemon.WildPokemonOuterClass.WildPokemon;
+import POGOProtos.Map.SpawnPointOuterClass.SpawnPoint;
+import com.pokegoapi.api.PokemonGo;
+import com.pokegoapi.api.map.MapObjects;
+import com.pokegoapi.api.map.fort.Pokestop;
+import com.pokegoapi.api.map.pokemon.CatchablePokemon;
+import com.pokegoapi.google.common.geometry.S2CellId;
+import com.pokegoapi.google.common.geometry.S2LatLng;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Merged view of the map objects returned by the scans of several accounts.
+ * Objects seen by more than one scan are deduplicated by their encounter id, fort id or spawn point location.
+ */
+public class ScanResult {
+	private final ConcurrentMap<Long, CatchablePokemon> catchablePokemons = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, FortData> gyms = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, FortData> pokestops = new ConcurrentHashMap<>();
+	private final ConcurrentMap<Long, SpawnPoint> spawnPoints = new ConcurrentHashMap<>();
+	private final List<S2CellId> failedCells = Collections.synchronizedList(new ArrayList<S2CellId>());
+
+	/**
+	 * Adds the objects of a single map response.
+	 *
+	 * @param api     the account that made the request
+	 * @param objects the objects returned by the server
+	 */
+	public void merge(PokemonGo api, MapObjects objects) {
+		for (MapPokemon mapPokemon : objects.getCatchablePokemons()) {
+			catchablePokemons.putIfAbsent(mapPokemon.getEncounterId(), new CatchablePokemon(api, mapPokemon));
+		}
+		for (WildPokemon wildPokemon : objects.getWildPokemons()) {
+			if (!catchablePokemons.containsKey(wildPokemon.getEncounterId())) {
+				catchablePokemons.putIfAbsent(wildPokemon.getEncounterId(), new CatchablePokemon(api, wildPokemon));
+			}
+		}
+		for (FortData gym : objects.getGyms()) {
+			mergeFort(gyms, gym);
+		}
+		for (Pokestop pokestop : objects.getPokestops()) {
+			mergeFort(pokestops, pokestop.getFortData());
+		}
+		for (SpawnPoint spawnPoint : objects.getSpawnPoints()) {
+			long key = S2CellId.fromLatLng(S2LatLng.fromDegrees(spawnPoint.getLatitude(), spawnPoint.getLongitude()))
+					.id();
+			spawnPoints.putIfAbsent(key, spawnPoint);
+		}
+	}
+
+	/**
+	 * Keeps the most recently modified version of a fort.
+	 */
+	private static void mergeFort(ConcurrentMap<String, FortData> forts, FortData fort) {
+		FortData previous = forts.putIfAbsent(fort.getId(), fort);
+		while (previous != null && previous.getLastModifiedTimestampMs() < fort.getLastModifiedTimestampMs()) {
+			if (forts.replace(fort.getId(), previous, fort)) {
+				return;
+			}
+			previous = forts.get(fort.getId());
+		}
+	}
+
+	/**
+	 * Records a work unit that could not be scanned.
+	 *
+	 * @param center the center cell of the work unit
+	 */
+	void addFailedCell(S2CellId center) {
+		failedCells.add(center);
+	}
+
+	public Collection<CatchablePokemon> getCatchablePokemons() {
+		return Collections.unmodifiableCollection(catchablePokemons.values());
+	}
+
+	public Collection<FortData> getGyms() {
+		return Collections.unmodifiableCollection(gyms.values());
+	}
+
+	public Collection<FortData> getPokestops() {
+		return Collections.unmodifiableCollection(pokestops.values());
+	}
+
+	public Collection<SpawnPoint> getSpawnPoints() {
+		return Collections.unmodifiableCollection(spawnPoints.values());
+	}
+
+	/**
+	 * Returns the center cells of all work units whose request failed, so they can be scanned again.
+	 *
+	 * @return the failed work units
+	 */
+	public List<S2CellId> getFailedCells() {
+		synchronized (failedCells) {
+			return new ArrayList<>(failedCells);
+		}
+	}
+}
@@ -0,0 +1,294 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.pokegoapi.api.map.scan;
+
+import POGOProtos.Map.Pokemon.MapPokemonOuterClass.MapPokemon;
+import POGOProtos.Map.Pokemon.WildPokemonOuterClass.WildPokemon;
+import POGOProtos.Map.SpawnPointOuterClass.SpawnPoint;
+import com.pokegoapi.api.map.MapObjects;
+import com.pokegoapi.google.common.geometry.S2CellId;
+import com.pokegoapi.google.common.geometry.S2LatLng;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Append-only store of spawn point sightings, memory-mapped from a single file.
+ *
+ * <p>Sightings are written in blocks of {@value #BLOCK_RECORDS} records. Within a block every column (spawn point
+ * cell id, time seen, expiration time) is stored contiguously, so rebuilding the index only touches sequential
+ * memory. On open all sightings are folded into one {@link SpawnWindow} per spawn point, which is kept up to date
+ * as new sightings are appended.</p>
+ *
+ * <p>The file is mapped in segments of {@value #SEGMENT_BLOCKS} blocks, added one at a time as the store grows, so
+ * it is not limited by the 2GB a single mapping can address.</p>
+ *
+ * <p>Spawn points are identified by their level {@value #SPAWN_POINT_LEVEL} cell id, the same cell the game encodes
+ * in the spawn point id of a pokemon.</p>
+ */
+public class SpawnTimelineStore implements Closeable {
+	public static final int SPAWN_POINT_LEVEL = 20;
+	public static final int BLOCK_RECORDS = 1024;
+
+	private static final int MAGIC = 0x53504e54;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 16;
+	private static final int COUNT_OFFSET = 8;
+	private static final int COLUMNS = 3;
+	private static final int COLUMN_SPAWN_POINT = 0;
+	private static final int COLUMN_SEEN = 1;
+	private static final int COLUMN_EXPIRES = 2;
+	private static final long BLOCK_SIZE = (long) COLUMNS * BLOCK_RECORDS * 8;
+	private static final int SEGMENT_BLOCKS = 256;
+	private static final long SEGMENT_SIZE = SEGMENT_BLOCKS * BLOCK_SIZE;
+
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private final MappedByteBuffer header;
+	private final List<MappedByteBuffer> segments = new ArrayList<>();
+	private long capacity;
+	private long count;
+	private final HashMap<Long, SpawnWindow> windows = new HashMap<>();
+
+	/**
+	 * Opens the store in the given file, creating it if needed, and indexes all stored sightings.
+	 *
+	 * @param path the file to store sightings in
+	 * @throws IOException if the file cannot be read, written or is not a sighting store
+	 */
+	public SpawnTimelineStore(File path) throws IOException {
+		boolean created = !path.exists() || path.length() == 0;
+		file = new RandomAccessFile(path, "rw");
+		channel = file.getChannel();
+		header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+		long stored = created ? 0 : (path.length() - HEADER_SIZE + SEGMENT_SIZE - 1) / SEGMENT_SIZE;
+		do {
+			addSegment();
+		} while (segments.size() < stored);
+		if (created) {
+			header.putInt(0, MAGIC);
+			header.putInt(4, VERSION);
+			header.putLong(COUNT_OFFSET, 0);
+		} else {
+			if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+				close();
+				throw new IOException("Not a spawn timeline store: " + path);
+			}
+			count = header.getLong(COUNT_OFFSET);
+			while (count > capacity) {
+				addSegment();
+			}
+			for (long i = 0; i < count; i++) {
+				index(get(i, COLUMN_SPAWN_POINT), get(i, COLUMN_SEEN), get(i, COLUMN_EXPIRES));
+			}
+		}
+	}
+
+	/**
+	 * Appends a single sighting.
+	 *
+	 * @param spawnPointId the level 20 cell id of the spawn point
+	 * @param seenMs the time the spawn point was seen
+	 * @param expiresMs the time the pokemon at the spawn point despawns, -1 if unknown
+	 * @throws IOException if the file could not be grown
+	 */
+	public synchronized void append(long spawnPointId, long seenMs, long expiresMs) throws IOException {
+		if (count == capacity) {
+			addSegment();
+		}
+		put(count, COLUMN_SPAWN_POINT, spawnPointId);
+		put(count, COLUMN_SEEN, seenMs);
+		put(count, COLUMN_EXPIRES, expiresMs);
+		count++;
+		header.putLong(COUNT_OFFSET, count);
+		index(spawnPointId, seenMs, expiresMs);
+	}
+
+	/**
+	 * Appends all pokemon of a map response as sightings. Spawn points without a pokemon only tell that the spawn
+	 * point exists, so they are appended only the first time they are seen.
+	 *
+	 * @param objects the map objects to record
+	 * @param seenMs the time the objects were received
+	 * @return the number of appended sightings
+	 * @throws IOException if the file could not be grown
+	 */
+	public synchronized int record(MapObjects objects, long seenMs) throws IOException {
+		int appended = 0;
+		Set<Long> encounters = new HashSet<>();
+		for (MapPokemon pokemon : objects.getCatchablePokemons()) {
+			long spawnPointId = parseSpawnPointId(pokemon.getSpawnPointId());
+			if (spawnPointId != 0 && encounters.add(pokemon.getEncounterId())) {
+				append(spawnPointId, seenMs, pokemon.getExpirationTimestampMs());
+				appended++;
+			}
+		}
+		for (WildPokemon pokemon : objects.getWildPokemons()) {
+			long spawnPointId = parseSpawnPointId(pokemon.getSpawnPointId());
+			if (spawnPointId != 0 && encounters.add(pokemon.getEncounterId())) {
+				long timeTillHidden = pokemon.getTimeTillHiddenMs();
+				long expires = timeTillHidden > 0 && timeTillHidden <= SpawnWindow.HOUR_MS
+						? pokemon.getLastModifiedTimestampMs() + timeTillHidden : -1;
+				append(spawnPointId, seenMs, expires);
+				appended++;
+			}
+		}
+		for (SpawnPoint spawnPoint : objects.getSpawnPoints()) {
+			S2LatLng latLng = S2LatLng.fromDegrees(spawnPoint.getLatitude(), spawnPoint.getLongitude());
+			long spawnPointId = S2CellId.fromLatLng(latLng).parent(SPAWN_POINT_LEVEL).id();
+			if (!windows.containsKey(spawnPointId)) {
+				append(spawnPointId, seenMs, -1);
+				appended++;
+			}
+		}
+		return appended;
+	}
+
+	/**
+	 * Returns the cells containing a spawn point that spawns within the given period.
+	 * The result can be passed directly to {@link com.pokegoapi.api.map.Map#getMapObjects(List)}.
+	 *
+	 * @param nowMs the start of the period
+	 * @param periodMs the length of the period
+	 * @param level the level of the returned cells, usually 15
+	 * @return the cell ids in Hilbert order
+	 */
+	public synchronized List<Long> getCellsWithSpawns(long nowMs, long periodMs, int level) {
+		TreeSet<S2CellId> cells = new TreeSet<>();
+		for (SpawnWindow window : windows.values()) {
+			long next = window.getNextSpawnMs(nowMs);
+			if (next >= 0 && next <= nowMs + periodMs) {
+				cells.add(new S2CellId(window.getSpawnPointId()).parent(level));
+			}
+		}
+		List<Long> ids = new ArrayList<>(cells.size());
+		for (S2CellId cell : cells) {
+			ids.add(cell.id());
+		}
+		return ids;
+	}
+
+	/**
+	 * Returns the derived schedule of a spawn point.
+	 *
+	 * @param spawnPointId the level 20 cell id of the spawn point
+	 * @return the schedule, or null if the spawn point was never seen
+	 */
+	public synchronized SpawnWindow getWindow(long spawnPointId) {
+		return windows.get(spawnPointId);
+	}
+
+	/**
+	 * Returns the derived schedules of all spawn points.
+	 *
+	 * @return a copy of all schedules
+	 */
+	public synchronized Collection<SpawnWindow> getWindows() {
+		return new ArrayList<>(windows.values());
+	}
+
+	/**
+	 * Returns the number of stored sightings.
+	 *
+	 * @return the number of sightings
+	 */
+	public synchronized long size() {
+		return count;
+	}
+
+	/**
+	 * Flushes the mapped sightings to disk and closes the file.
+	 * The mapping itself is only released once it is garbage collected.
+	 *
+	 * @throws IOException if the file could not be closed
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		header.force();
+		for (MappedByteBuffer segment : segments) {
+			segment.force();
+		}
+		channel.close();
+		file.close();
+	}
+
+	private void index(long spawnPointId, long seenMs, long expiresMs) {
+		SpawnWindow window = windows.get(spawnPointId);
+		if (window == null) {
+			window = new SpawnWindow(spawnPointId);
+			windows.put(spawnPointId, window);
+		}
+		window.addSighting(seenMs, expiresMs);
+	}
+
+	private void addSegment() throws IOException {
+		long start = HEADER_SIZE + segments.size() * SEGMENT_SIZE;
+		segments.add(channel.map(FileChannel.MapMode.READ_WRITE, start, SEGMENT_SIZE));
+		capacity += (long) SEGMENT_BLOCKS * BLOCK_RECORDS;
+	}
+
+	private MappedByteBuffer segment(long record) {
+		return segments.get((int) (record / BLOCK_RECORDS / SEGMENT_BLOCKS));
+	}
+
+	/**
+	 * Returns the position of a value within the segment of its record.
+	 */
+	private int position(long record, int column) {
+		int block = (int) (record / BLOCK_RECORDS % SEGMENT_BLOCKS);
+		int offset = (int) (record % BLOCK_RECORDS);
+		return (int) (block * BLOCK_SIZE + ((long) column * BLOCK_RECORDS + offset) * 8);
+	}
+
+	private long get(long record, int column) {
+		return segment(record).getLong(position(record, column));
+	}
+
+	private void put(long record, int column, long value) {
+		segment(record).putLong(position(record, column), value);
+	}
+
+	/**
+	 * Converts a spawn point id token to its level 20 cell id.
+	 *
+	 * @return the cell id, or 0 if the token is not a valid cell
+	 */
+	private static long parseSpawnPointId(String token) {
+		if (token == null || token.isEmpty()) {
+			return 0;
+		}
+		try {
+			S2CellId cell = S2CellId.fromToken(token);
+			if (!cell.isValid() || cell.level() < SPAWN_POINT_LEVEL) {
+				return 0;
+			}
+			return cell.parent(SPAWN_POINT_LEVEL).id();
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+}
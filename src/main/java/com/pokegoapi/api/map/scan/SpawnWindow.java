@@ -0,0 +1,93 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.pokegoapi.api.map.scan;
+
+import lombok.Getter;
+
+/**
+ * The hourly schedule of a spawn point, derived from its sightings.
+ * Spawn points spawn a pokemon at the same second of every hour, which despawns {@value #SPAWN_DURATION_MS}ms later.
+ */
+public class SpawnWindow {
+	public static final long HOUR_MS = 60 * 60 * 1000;
+	public static final long SPAWN_DURATION_MS = 15 * 60 * 1000;
+
+	@Getter
+	private final long spawnPointId;
+	@Getter
+	private int sightings;
+	@Getter
+	private long lastSeenMs;
+	/**
+	 * Offset of the despawn within the hour, -1 if no sighting had a known expiration.
+	 */
+	@Getter
+	private long despawnOffsetMs = -1;
+
+	SpawnWindow(long spawnPointId) {
+		this.spawnPointId = spawnPointId;
+	}
+
+	void addSighting(long seenMs, long expiresMs) {
+		sightings++;
+		if (seenMs > lastSeenMs) {
+			lastSeenMs = seenMs;
+			if (expiresMs > 0) {
+				despawnOffsetMs = expiresMs % HOUR_MS;
+			}
+		} else if (expiresMs > 0 && despawnOffsetMs < 0) {
+			despawnOffsetMs = expiresMs % HOUR_MS;
+		}
+	}
+
+	/**
+	 * Returns if the hourly schedule of this spawn point is known.
+	 *
+	 * @return true if at least one sighting had a known expiration
+	 */
+	public boolean isKnown() {
+		return despawnOffsetMs >= 0;
+	}
+
+	/**
+	 * Returns the time of the next spawn at or after the given time.
+	 *
+	 * @param nowMs the current time
+	 * @return the time of the next spawn, or -1 if the schedule is unknown
+	 */
+	public long getNextSpawnMs(long nowMs) {
+		if (!isKnown()) {
+			return -1;
+		}
+		long spawnOffset = (despawnOffsetMs - SPAWN_DURATION_MS + HOUR_MS) % HOUR_MS;
+		long next = nowMs - nowMs % HOUR_MS + spawnOffset;
+		return next < nowMs ? next + HOUR_MS : next;
+	}
+
+	/**
+	 * Returns if a pokemon of this spawn point is visible at the given time.
+	 *
+	 * @param nowMs the current time
+	 * @return true if the current hour's spawn has started and not yet despawned
+	 */
+	public boolean isActive(long nowMs) {
+		if (!isKnown()) {
+			return false;
+		}
+		long next = getNextSpawnMs(nowMs);
+		return next == nowMs || next - HOUR_MS + SPAWN_DURATION_MS > nowMs;
+	}
+}
@@ -31,7 +31,6 @@ import POGOProtos.Networking.Responses.GetPlayerResponseOuterClass.GetPlayerResp
 import POGOProtos.Networking.Responses.LevelUpRewardsResponseOuterClass.LevelUpRewardsResponse;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.pokegoapi.api.PokemonGo;
-import com.pokegoapi.api.inventory.Item;
 import com.pokegoapi.api.inventory.ItemBag;
 import com.pokegoapi.api.inventory.Stats;
 import com.pokegoapi.exceptions.InvalidCurrencyException;
@@ -41,8 +40,9 @@ import com.pokegoapi.main.ServerRequest;
 import com.pokegoapi.util.Log;
 import lombok.Setter;
 
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 
 public class PlayerProfile {
@@ -53,7 +53,8 @@ public class PlayerProfile {
 	private PlayerAvatar avatar;
 	private DailyBonus dailyBonus;
 	private ContactSettings contactSettings;
-	private Map<Currency, Integer> currencies = new HashMap<Currency, Integer>();
+	// indexed by currency ordinal, -1 for a currency the server has not sent
+	private final AtomicIntegerArray currencies = newCurrencies();
 	@Setter
 	private Stats stats;
 
@@ -131,8 +132,7 @@ public class PlayerProfile {
 		// Add the awarded items to our bag
 		ItemBag bag = api.getInventories().getItemBag();
 		for (ItemAward itemAward : response.getItemsAwardedList()) {
-			Item item = bag.getItem(itemAward.getItemId());
-			item.setCount(item.getCount() + itemAward.getItemCount());
+			bag.addItemCount(itemAward.getItemId(), itemAward.getItemCount());
 		}
 		// Build a new rewards object and return it
 		return new PlayerLevelUpRewards(response);
@@ -147,12 +147,41 @@ public class PlayerProfile {
 	 */
 	public void addCurrency(String name, int amount) throws InvalidCurrencyException {
 		try {
-			currencies.put(Currency.valueOf(name), amount);
+			currencies.set(Currency.valueOf(name).ordinal(), amount);
 		} catch (Exception e) {
 			throw new InvalidCurrencyException();
 		}
 	}
 
+	/**
+	 * Atomically subtracts spent currency, never going below 0.
+	 *
+	 * @param currency the currency
+	 * @param amount   the amount spent
+	 * @return the remaining amount
+	 * @throws InvalidCurrencyException if the amount of the currency is not known yet
+	 */
+	public int spendCurrency(Currency currency, int amount) throws InvalidCurrencyException {
+		while (true) {
+			int current = currencies.get(currency.ordinal());
+			if (current < 0) {
+				throw new InvalidCurrencyException();
+			}
+			int remaining = Math.max(0, current - amount);
+			if (currencies.compareAndSet(currency.ordinal(), current, remaining)) {
+				return remaining;
+			}
+		}
+	}
+
+	private static AtomicIntegerArray newCurrencies() {
+		AtomicIntegerArray currencies = new AtomicIntegerArray(Currency.values().length);
+		for (int i = 0; i < currencies.length(); i++) {
+			currencies.set(i, -1);
+		}
+		return currencies;
+	}
+
 	/**
 	 * Check and equip badges.
 	 *
@@ -203,11 +232,11 @@ public class PlayerProfile {
 		if (!init) {
 			updateProfile();
 		}
-		if (currencies.containsKey(currency)) {
-			return currencies.get(currency);
-		} else {
+		int amount = currencies.get(currency.ordinal());
+		if (amount < 0) {
 			throw new InvalidCurrencyException();
 		}
+		return amount;
 	}
 
 	public enum Currency {
@@ -286,7 +315,13 @@ public class PlayerProfile {
 		if (!init) {
 			updateProfile();
 		}
-		return currencies;
+		Map<Currency, Integer> map = new EnumMap<>(Currency.class);
+		for (Currency currency : Currency.values()) {
+			if (currencies.get(currency.ordinal()) >= 0) {
+				map.put(currency, currencies.get(currency.ordinal()));
+			}
+		}
+		return map;
 	}
 
 
@@ -17,12 +17,11 @@ package com.pokegoapi.api.pokemon;
 
 import POGOProtos.Data.PokemonDataOuterClass.PokemonData;
 import POGOProtos.Networking.Responses.UseItemEggIncubatorResponseOuterClass.UseItemEggIncubatorResponse;
-import com.annimon.stream.Stream;
-import com.annimon.stream.function.Predicate;
 import com.pokegoapi.api.PokemonGo;
 import com.pokegoapi.api.inventory.EggIncubator;
 import com.pokegoapi.exceptions.LoginFailedException;
 import com.pokegoapi.exceptions.RemoteServerException;
+import lombok.Getter;
 import lombok.Setter;
 
 /**
@@ -33,6 +32,7 @@ public class EggPokemon {
 	private static final String TAG = EggPokemon.class.getSimpleName();
 	@Setter
 	PokemonGo pgo;
+	@Getter
 	private PokemonData proto;
 
 	// API METHODS //
@@ -59,19 +59,14 @@ public class EggPokemon {
 	public double getEggKmWalked() throws LoginFailedException, RemoteServerException {
 		if (!isIncubate())
 			return 0;
-		EggIncubator incubator = Stream.of(pgo.getInventories().getIncubators())
-				.filter(new Predicate<EggIncubator>() {
-					@Override
-					public boolean test(EggIncubator incub) {
-						return incub.getId().equals(proto.getEggIncubatorId());
-					}
-				}).findFirst().orElse(null);
+		EggIncubator incubator = pgo.getInventories().getHatchery().getIncubator(proto.getEggIncubatorId());
 		// incubator should not be null but why not eh
 		if (incubator == null)
 			return 0;
 		else
-			return proto.getEggKmWalkedTarget()
-					- (incubator.getKmTarget() - pgo.getPlayerProfile().getStats().getKmWalked());
+			// the projection can run ahead of the server, never report more than the egg needs
+			return Math.min(proto.getEggKmWalkedTarget(), proto.getEggKmWalkedTarget()
+					- (incubator.getKmTarget() - pgo.getInventories().getHatchery().getProjectedKmWalked()));
 	}
 
 	// DELEGATE METHODS BELOW //
@@ -113,7 +108,7 @@ public class EggPokemon {
 
 	@Override
 	public int hashCode() {
-		return proto.getPokemonId().hashCode();
+		return (int) (proto.getId() ^ (proto.getId() >>> 32));
 	}
 
 	@Override
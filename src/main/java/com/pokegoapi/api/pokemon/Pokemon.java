@@ -40,6 +40,8 @@ import com.google.protobuf.InvalidProtocolBufferException;
 import com.pokegoapi.api.PokemonGo;
 import com.pokegoapi.api.inventory.Item;
 import com.pokegoapi.api.map.pokemon.EvolutionResult;
+import com.pokegoapi.api.player.PlayerProfile;
+import com.pokegoapi.exceptions.InvalidCurrencyException;
 import com.pokegoapi.exceptions.LoginFailedException;
 import com.pokegoapi.exceptions.NoSuchItemException;
 import com.pokegoapi.exceptions.RemoteServerException;
@@ -55,7 +57,8 @@ public class Pokemon {
 
 	private static final String TAG = Pokemon.class.getSimpleName();
 	private final PokemonGo pgo;
-	private PokemonData proto;
+	@Getter
+	private volatile PokemonData proto;
 	private PokemonMeta meta;
 	@Getter
 	@Setter
@@ -99,12 +102,10 @@ public class Pokemon {
 
 		if (response.getResult() == Result.SUCCESS) {
 			pgo.getInventories().getPokebank().removePokemon(this);
+			addCandy(response.getCandyAwarded());
+			pgo.getInventories().publish();
 		}
 
-		pgo.getInventories().getPokebank().removePokemon(this);
-
-		pgo.getInventories().updateInventories();
-
 		return response.getResult();
 	}
 
@@ -133,8 +134,10 @@ public class Pokemon {
 			throw new RemoteServerException(e);
 		}
 
-		pgo.getInventories().getPokebank().removePokemon(this);
-		pgo.getInventories().updateInventories();
+		if (response.getResult() == NicknamePokemonResponse.Result.SUCCESS) {
+			proto = proto.toBuilder().setNickname(nickname).build();
+			pgo.getInventories().publish();
+		}
 
 		return response.getResult();
 	}
@@ -164,8 +167,11 @@ public class Pokemon {
 			throw new RemoteServerException(e);
 		}
 
-		pgo.getInventories().getPokebank().removePokemon(this);
-		pgo.getInventories().updateInventories();
+		if (response.getResult() == SetFavoritePokemonResponse.Result.SUCCESS) {
+			proto = proto.toBuilder().setFavorite(markFavorite ? 1 : 0).build();
+			pgo.getInventories().getPokebank().refresh(this);
+			pgo.getInventories().publish();
+		}
 
 		return response.getResult();
 	}
@@ -186,14 +192,41 @@ public class Pokemon {
 		ServerRequest serverRequest = new ServerRequest(RequestType.UPGRADE_POKEMON, reqMsg);
 		pgo.getRequestHandler().sendServerRequests(serverRequest);
 
+		int candyCost = getCandyCostsForPowerup();
+		int stardustCost = getStardustCostsForPowerup();
 		UpgradePokemonResponse response;
 		try {
 			response = UpgradePokemonResponse.parseFrom(serverRequest.getData());
-			this.proto = response.getUpgradedPokemon();
-			return response.getResult();
 		} catch (InvalidProtocolBufferException e) {
 			throw new RemoteServerException(e);
 		}
+		applyPowerUp(response, candyCost, stardustCost);
+		return response.getResult();
+	}
+
+	/**
+	 * Applies the local effects of a power up: the upgraded pokemon and the spent candy and stardust.
+	 *
+	 * @param response the server response
+	 * @param candyCost candy spent on the power up
+	 * @param stardustCost stardust spent on the power up
+	 * @throws LoginFailedException  the login failed exception
+	 * @throws RemoteServerException the remote server exception
+	 */
+	void applyPowerUp(UpgradePokemonResponse response, int candyCost, int stardustCost)
+			throws LoginFailedException, RemoteServerException {
+		if (response.getResult() != UpgradePokemonResponse.Result.SUCCESS) {
+			return;
+		}
+		this.proto = response.getUpgradedPokemon();
+		pgo.getInventories().getPokebank().refresh(this);
+		addCandy(-candyCost);
+		try {
+			pgo.getPlayerProfile().spendCurrency(PlayerProfile.Currency.STARDUST, stardustCost);
+		} catch (InvalidCurrencyException e) {
+			Log.w(TAG, "Stardust is not known yet, it is set by the next profile update", e);
+		}
+		pgo.getInventories().publish();
 	}
 
 	/**
@@ -218,12 +251,45 @@ public class Pokemon {
 		}
 
 		EvolutionResult result = new EvolutionResult(pgo, response);
+		applyEvolution(result);
+		return result;
+	}
 
+	/**
+	 * Applies the local effects of an evolution: the evolved pokemon replaces this one and the candy changes.
+	 *
+	 * @param result the evolution result
+	 * @throws LoginFailedException  the login failed exception
+	 * @throws RemoteServerException the remote server exception
+	 */
+	void applyEvolution(EvolutionResult result) throws LoginFailedException, RemoteServerException {
+		if (!result.isSuccessful()) {
+			return;
+		}
 		pgo.getInventories().getPokebank().removePokemon(this);
+		pgo.getInventories().getPokebank().addPokemon(result.getEvolvedPokemon());
+		if (getMeta() != null) {
+			addCandy(result.getCandyAwarded() - getCandiesToEvolve());
+		}
+		pgo.getInventories().publish();
+	}
 
-		pgo.getInventories().updateInventories();
-
-		return result;
+	/**
+	 * Applies a candy change for this pokemon's family to the candy jar.
+	 *
+	 * @param amount the candies to add, negative to remove
+	 * @throws LoginFailedException  the login failed exception
+	 * @throws RemoteServerException the remote server exception
+	 */
+	private void addCandy(int amount) throws LoginFailedException, RemoteServerException {
+		if (getMeta() == null || amount == 0) {
+			return;
+		}
+		if (amount > 0) {
+			pgo.getInventories().getCandyjar().addCandy(getMeta().getFamily(), amount);
+		} else {
+			pgo.getInventories().getCandyjar().removeCandy(getMeta().getFamily(), -amount);
+		}
 	}
 
 	/**
@@ -361,6 +427,10 @@ public class Pokemon {
 		return proto.getCreationTimeMs();
 	}
 
+	public int getNumUpgrades() {
+		return proto.getNumUpgrades();
+	}
+
 	/**
 	 * Checks whether the Pokémon is set as favorite.
 	 *
@@ -513,16 +583,16 @@ public class Pokemon {
 		if (!isInjured())
 			return UseItemPotionResponseOuterClass.UseItemPotionResponse.Result.ERROR_CANNOT_USE;
 
-		if (pgo.getInventories().getItemBag().getItem(ItemId.ITEM_POTION).getCount() > 0)
+		if (pgo.getInventories().getItemBag().getItemCount(ItemId.ITEM_POTION) > 0)
 			return usePotion(ItemId.ITEM_POTION);
 
-		if (pgo.getInventories().getItemBag().getItem(ItemId.ITEM_SUPER_POTION).getCount() > 0)
+		if (pgo.getInventories().getItemBag().getItemCount(ItemId.ITEM_SUPER_POTION) > 0)
 			return usePotion(ItemId.ITEM_SUPER_POTION);
 
-		if (pgo.getInventories().getItemBag().getItem(ItemId.ITEM_HYPER_POTION).getCount() > 0)
+		if (pgo.getInventories().getItemBag().getItemCount(ItemId.ITEM_HYPER_POTION) > 0)
 			return usePotion(ItemId.ITEM_HYPER_POTION);
 
-		if (pgo.getInventories().getItemBag().getItem(ItemId.ITEM_MAX_POTION).getCount() > 0)
+		if (pgo.getInventories().getItemBag().getItemCount(ItemId.ITEM_MAX_POTION) > 0)
 			return usePotion(ItemId.ITEM_MAX_POTION);
 
 		return UseItemPotionResponseOuterClass.UseItemPotionResponse.Result.ERROR_CANNOT_USE;
@@ -578,10 +648,10 @@ public class Pokemon {
 		if (!isFainted())
 			return UseItemReviveResponseOuterClass.UseItemReviveResponse.Result.ERROR_CANNOT_USE;
 
-		if (pgo.getInventories().getItemBag().getItem(ItemId.ITEM_REVIVE).getCount() > 0)
+		if (pgo.getInventories().getItemBag().getItemCount(ItemId.ITEM_REVIVE) > 0)
 			return useRevive(ItemId.ITEM_REVIVE);
 
-		if (pgo.getInventories().getItemBag().getItem(ItemId.ITEM_MAX_REVIVE).getCount() > 0)
+		if (pgo.getInventories().getItemBag().getItemCount(ItemId.ITEM_MAX_REVIVE) > 0)
 			return useRevive(ItemId.ITEM_MAX_REVIVE);
 
 		return UseItemReviveResponseOuterClass.UseItemReviveResponse.Result.ERROR_CANNOT_USE;
@@ -171,8 +171,17 @@ class PokemonCpUtils {
 	 * @return Amount of stardust
 	 */
 	static int getStartdustCostsForPowerup(float cpMultiplier, int powerups) {
+		return getStardustCostsForLevel(getLevelFromCpMultiplier(cpMultiplier), powerups);
+	}
+
+	/**
+	 * Get the amount of stardust required to do a powerup at the given level
+	 * @param level Current pokemon level
+	 * @param powerups Number of previous powerups
+	 * @return Amount of stardust
+	 */
+	static int getStardustCostsForLevel(float level, int powerups) {
 		// Based on http://pokemongo.gamepress.gg/power-up-costs
-		float level = getLevelFromCpMultiplier(cpMultiplier);
 		if (level <= 3 && powerups <= 4) {
 			return 200;
 		}
@@ -240,8 +249,17 @@ class PokemonCpUtils {
 	 * @return Amount of candy
 	 */
 	static int getCandyCostsForPowerup(float cpMultiplier, int powerups) {
+		return getCandyCostsForLevel(getLevelFromCpMultiplier(cpMultiplier), powerups);
+	}
+
+	/**
+	 * Get the amount of candy required to do a powerup at the given level
+	 * @param level Current pokemon level
+	 * @param powerups Number of previous powerups
+	 * @return Amount of candy
+	 */
+	static int getCandyCostsForLevel(float level, int powerups) {
 		// Based on http://pokemongo.gamepress.gg/power-up-costs
-		float level = getLevelFromCpMultiplier(cpMultiplier);
 		if (level <= 13 && powerups <= 20 ) {
 			return 1;
 		}
@@ -0,0 +1,299 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.pokegoapi.api.pokemon;
+
+import POGOProtos.Enums.PokemonFamilyIdOuterClass.PokemonFamilyId;
+import POGOProtos.Networking.Requests.Messages.EvolvePokemonMessageOuterClass.EvolvePokemonMessage;
+import POGOProtos.Networking.Requests.Messages.UpgradePokemonMessageOuterClass.UpgradePokemonMessage;
+import POGOProtos.Networking.Requests.RequestTypeOuterClass.RequestType;
+import POGOProtos.Networking.Responses.EvolvePokemonResponseOuterClass.EvolvePokemonResponse;
+import POGOProtos.Networking.Responses.UpgradePokemonResponseOuterClass.UpgradePokemonResponse;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.pokegoapi.api.PokemonGo;
+import com.pokegoapi.api.inventory.CandyJar;
+import com.pokegoapi.api.map.pokemon.EvolutionResult;
+import com.pokegoapi.api.player.PlayerProfile;
+import com.pokegoapi.exceptions.InvalidCurrencyException;
+import com.pokegoapi.exceptions.LoginFailedException;
+import com.pokegoapi.exceptions.RemoteServerException;
+import com.pokegoapi.main.ServerRequest;
+import com.pokegoapi.util.Log;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Plans and runs bulk evolutions and power ups.
+ * Targets are planned in the order they were added against the candy and stardust the player has, and the
+ * feasible steps are sent with many requests per envelope. Results are applied to the inventories locally.
+ */
+public class PokemonUpgrader {
+	private static final String TAG = PokemonUpgrader.class.getSimpleName();
+
+	/**
+	 * Maximum number of evolve or power up requests packed into one envelope.
+	 */
+	public static final int MAX_REQUESTS_PER_ENVELOPE = 50;
+
+	private static final float MAX_POKEMON_LEVEL = 40f;
+
+	public enum Action {
+		EVOLVE, POWER_UP
+	}
+
+	@Data
+	@AllArgsConstructor
+	public static class Step {
+		private final Pokemon pokemon;
+		private final Action action;
+		private final int candyCost;
+		private final int stardustCost;
+	}
+
+	@Data
+	@AllArgsConstructor
+	public static class StepResult {
+		private final Step step;
+		private final boolean successful;
+		/**
+		 * The evolution result, null for power ups and steps that were not sent.
+		 */
+		private final EvolutionResult evolution;
+		/**
+		 * The power up result, null for evolutions and steps that were not sent.
+		 */
+		private final UpgradePokemonResponse.Result powerUpResult;
+		/**
+		 * The exception that stopped the upgrader before this step was answered, null otherwise.
+		 */
+		private final Exception error;
+	}
+
+	private final PokemonGo api;
+	private final List<Step> targets = new ArrayList<>();
+
+	public PokemonUpgrader(PokemonGo api) {
+		this.api = api;
+	}
+
+	/**
+	 * Adds an evolution target.
+	 *
+	 * @param pokemon the pokemon to evolve
+	 * @return this upgrader
+	 */
+	public PokemonUpgrader addEvolution(Pokemon pokemon) {
+		targets.add(new Step(pokemon, Action.EVOLVE, 0, 0));
+		return this;
+	}
+
+	/**
+	 * Adds power up targets.
+	 *
+	 * @param pokemon the pokemon to power up
+	 * @param count the number of power ups wanted
+	 * @return this upgrader
+	 */
+	public PokemonUpgrader addPowerUps(Pokemon pokemon, int count) {
+		for (int i = 0; i < count; i++) {
+			targets.add(new Step(pokemon, Action.POWER_UP, 0, 0));
+		}
+		return this;
+	}
+
+	/**
+	 * Removes all targets.
+	 */
+	public void clear() {
+		targets.clear();
+	}
+
+	/**
+	 * Plans the targets against the current candy, stardust and trainer level.
+	 * Targets that cannot be afforded are left out; a pokemon planned to evolve gets no later steps.
+	 *
+	 * @return the feasible steps, in target order, with their costs
+	 * @throws LoginFailedException  the login failed exception
+	 * @throws RemoteServerException the remote server exception
+	 */
+	public List<Step> plan() throws LoginFailedException, RemoteServerException {
+		CandyJar candyjar = api.getInventories().getCandyjar();
+		PlayerProfile profile = api.getPlayerProfile();
+		int stardust;
+		try {
+			stardust = profile.getCurrency(PlayerProfile.Currency.STARDUST);
+		} catch (InvalidCurrencyException e) {
+			stardust = 0;
+		}
+		float maxLevel = Math.min(MAX_POKEMON_LEVEL, profile.getStats().getLevel() + 1.5f);
+
+		Map<PokemonFamilyId, Integer> candies = new EnumMap<>(PokemonFamilyId.class);
+		Map<Long, Integer> powerUps = new HashMap<>();
+		Set<Long> evolving = new HashSet<>();
+		List<Step> plan = new ArrayList<>();
+		for (Step target : targets) {
+			Pokemon pokemon = target.getPokemon();
+			PokemonMeta meta = pokemon.getMeta();
+			if (meta == null || evolving.contains(pokemon.getId())) {
+				continue;
+			}
+			Integer candy = candies.get(meta.getFamily());
+			if (candy == null) {
+				candy = candyjar.getCandies(meta.getFamily());
+			}
+
+			if (target.getAction() == Action.EVOLVE) {
+				int cost = meta.getCandyToEvolve();
+				if (cost > 0 && cost <= candy) {
+					candy -= cost;
+					evolving.add(pokemon.getId());
+					plan.add(new Step(pokemon, Action.EVOLVE, cost, 0));
+				}
+			} else {
+				Integer done = powerUps.get(pokemon.getId());
+				int upgrades = done == null ? 0 : done;
+				float level = pokemon.getLevel() + upgrades * 0.5f;
+				int candyCost = PokemonCpUtils.getCandyCostsForLevel(level, pokemon.getNumUpgrades() + upgrades);
+				int stardustCost = PokemonCpUtils.getStardustCostsForLevel(level, pokemon.getNumUpgrades() + upgrades);
+				if (level < maxLevel && candyCost <= candy && stardustCost <= stardust) {
+					candy -= candyCost;
+					stardust -= stardustCost;
+					powerUps.put(pokemon.getId(), upgrades + 1);
+					plan.add(new Step(pokemon, Action.POWER_UP, candyCost, stardustCost));
+				}
+			}
+			candies.put(meta.getFamily(), candy);
+		}
+		return plan;
+	}
+
+	/**
+	 * Plans the targets, runs the feasible steps and clears the targets.
+	 *
+	 * @return the result of each planned step
+	 * @throws LoginFailedException  the login failed exception
+	 * @throws RemoteServerException the remote server exception
+	 */
+	public List<StepResult> execute() throws LoginFailedException, RemoteServerException {
+		List<StepResult> results = execute(plan());
+		clear();
+		return results;
+	}
+
+	/**
+	 * Runs planned steps. Each envelope carries at most one step per pokemon, so the power ups of one pokemon go
+	 * out in successive envelopes while different pokemon share them. When a step fails, the later steps of the
+	 * same pokemon are not sent. When an envelope fails, no further envelopes are sent; the steps answered so far
+	 * keep their results and every step left carries the exception as {@link StepResult#getError()}.
+	 *
+	 * @param plan the steps to run, as returned by {@link #plan()}
+	 * @return the result of each step, in plan order
+	 */
+	public List<StepResult> execute(List<Step> plan) {
+		Map<Long, List<Integer>> chains = new LinkedHashMap<>();
+		for (int i = 0; i < plan.size(); i++) {
+			long id = plan.get(i).getPokemon().getId();
+			List<Integer> chain = chains.get(id);
+			if (chain == null) {
+				chain = new ArrayList<>();
+				chains.put(id, chain);
+			}
+			chain.add(i);
+		}
+
+		StepResult[] results = new StepResult[plan.size()];
+		Set<Long> failed = new HashSet<>();
+		List<Integer> round = new ArrayList<>();
+		Exception error = null;
+		for (int depth = 0; error == null; depth++) {
+			round.clear();
+			for (Map.Entry<Long, List<Integer>> chain : chains.entrySet()) {
+				if (chain.getValue().size() > depth && !failed.contains(chain.getKey())) {
+					round.add(chain.getValue().get(depth));
+				}
+			}
+			if (round.isEmpty()) {
+				break;
+			}
+			for (int from = 0; from < round.size(); from += MAX_REQUESTS_PER_ENVELOPE) {
+				List<Integer> batch = round.subList(from, Math.min(round.size(), from + MAX_REQUESTS_PER_ENVELOPE));
+				try {
+					send(plan, batch, results);
+				} catch (LoginFailedException | RemoteServerException e) {
+					Log.w(TAG, "Stopped upgrading after a failed envelope", e);
+					error = e;
+					break;
+				}
+				for (int index : batch) {
+					if (!results[index].isSuccessful()) {
+						failed.add(plan.get(index).getPokemon().getId());
+					}
+				}
+			}
+		}
+
+		List<StepResult> list = new ArrayList<>(results.length);
+		for (int i = 0; i < results.length; i++) {
+			list.add(results[i] != null ? results[i] : new StepResult(plan.get(i), false, null, null, error));
+		}
+		return list;
+	}
+
+	private void send(List<Step> plan, List<Integer> batch, StepResult[] results)
+			throws LoginFailedException, RemoteServerException {
+		ServerRequest[] requests = new ServerRequest[batch.size()];
+		for (int i = 0; i < requests.length; i++) {
+			Step step = plan.get(batch.get(i));
+			if (step.getAction() == Action.EVOLVE) {
+				requests[i] = new ServerRequest(RequestType.EVOLVE_POKEMON,
+						EvolvePokemonMessage.newBuilder().setPokemonId(step.getPokemon().getId()).build());
+			} else {
+				requests[i] = new ServerRequest(RequestType.UPGRADE_POKEMON,
+						UpgradePokemonMessage.newBuilder().setPokemonId(step.getPokemon().getId()).build());
+			}
+		}
+		api.getRequestHandler().sendServerRequests(requests);
+
+		for (int i = 0; i < requests.length; i++) {
+			int index = batch.get(i);
+			Step step = plan.get(index);
+			try {
+				if (step.getAction() == Action.EVOLVE) {
+					EvolutionResult evolution = new EvolutionResult(api,
+							EvolvePokemonResponse.parseFrom(requests[i].getData()));
+					step.getPokemon().applyEvolution(evolution);
+					results[index] = new StepResult(step, evolution.isSuccessful(), evolution, null, null);
+				} else {
+					UpgradePokemonResponse response = UpgradePokemonResponse.parseFrom(requests[i].getData());
+					step.getPokemon().applyPowerUp(response, step.getCandyCost(), step.getStardustCost());
+					results[index] = new StepResult(step,
+							response.getResult() == UpgradePokemonResponse.Result.SUCCESS, null, response.getResult(),
+							null);
+				}
+			} catch (InvalidProtocolBufferException e) {
+				results[index] = new StepResult(step, false, null, null, null);
+			}
+		}
+	}
+}
@@ -0,0 +1,402 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.pokegoapi.examples;
+
+import com.pokegoapi.google.common.geometry.S1Angle;
+import com.pokegoapi.google.common.geometry.S2Cap;
+import com.pokegoapi.google.common.geometry.S2CellId;
+import com.pokegoapi.google.common.geometry.S2CellUnion;
+import com.pokegoapi.google.common.geometry.S2EdgeUtil;
+import com.pokegoapi.google.common.geometry.S2LatLng;
+import com.pokegoapi.google.common.geometry.S2Point;
+import com.pokegoapi.google.common.geometry.S2RegionCoverer;
+import com.pokegoapi.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks the bundled S2 geometry against reference values and measures the operations the API relies on.
+ * The reference values were produced by the original S2 port, so an optimized kernel either reproduces them bit for
+ * bit or, for distances, stays within {@link #DISTANCE_TOLERANCE} meters.
+ */
+public class GeometryBenchmarkExample {
+	private static final String TAG = GeometryBenchmarkExample.class.getSimpleName();
+
+	/**
+	 * Largest accepted difference from the reference distances, in meters.
+	 */
+	public static final double DISTANCE_TOLERANCE = 1e-6;
+
+	private static final double[][] POINTS = {
+			{40.758896, -73.985130}, {-33.856784, 151.215297}, {51.500729, -0.124625}, {35.658581, 139.745433},
+			{89.999, 45}, {-89.5, -120}, {0, 0}, {0, 180}, {37.808673, -122.409821}, {-22.951916, -43.210487}
+	};
+
+	// Reference values for POINTS, see checkAccuracy().
+	private static final long[] LEAF_IDS = {
+			0x89c25855b9c6c39fL, 0x6b12ae66906dfdffL, 0x487604c43f15a1f5L, 0x60188bbd909b2185L,
+			0x4555555545041145L, 0xa5553cc25984895dL, 0x1000000000000001L, 0x6fffffffffffffffL,
+			0x808580fc7e73159fL, 0x997fd59ab9dacbL
+	};
+
+	private static final long[] PARENT_IDS = {
+			0x89c25855c0000000L, 0x6b12ae66c0000000L, 0x487604c440000000L, 0x60188bbdc0000000L,
+			0x4555555540000000L, 0xa5553cc240000000L, 0x1000000040000000L, 0x6fffffffc0000000L,
+			0x808580fc40000000L, 0x997fd5c0000000L
+	};
+
+	private static final long[] CHILD_BEGIN_IDS = {
+			0x89c2585590000000L, 0x6b12ae6690000000L, 0x487604c410000000L, 0x60188bbd90000000L,
+			0x4555555510000000L, 0xa5553cc210000000L, 0x1000000010000000L, 0x6fffffff90000000L,
+			0x808580fc10000000L, 0x997fd590000000L
+	};
+
+	private static final double[] FAR_DISTANCES = {
+			1.597976458535064E7, 1.6982786439488284E7, 9558325.100809304, 6038705.546674374,
+			1.994706519982786E7, 1.0029041226612302E7, 2.0002520425406214E7, 7217282.043592307,
+			1.0656459255499838E7, 7760692.848820416
+	};
+
+	private static final double[] NEAR_DISTANCES = {
+			69.70289986548626, 72.22308484205055, 65.44873741264593, 71.59098545842669, 55.56255675049552,
+			55.56467019367685, 78.57732129742998, 78.57732129682773, 70.81125890475897, 75.53094034303453
+	};
+
+	private static final long[] COVERING_70 = {
+			0x89c258544c000000L, 0x89c2585594000000L, 0x89c25855b0000000L, 0x89c25855c4000000L,
+			0x89c25855cc000000L, 0x89c25855ec000000L
+	};
+
+	private static final long[] COVERING_500 = {
+			0x89c2585140000000L, 0x89c2585340000000L, 0x89c25853c0000000L, 0x89c2585500000000L,
+			0x89c2585700000000L, 0x89c258f840000000L, 0x89c258f8c0000000L, 0x89c258f940000000L,
+			0x89c258fe54000000L, 0x89c258fec0000000L, 0x89c258ff40000000L, 0x89c258ffc0000000L,
+			0x89c2590010000000L, 0x89c259aac0000000L, 0x89c259ab40000000L, 0x89c259acb0000000L
+	};
+
+	private static final long[] COVERING_5000 = {
+			0x89c2575000000000L, 0x89c2577000000000L, 0x89c2579000000000L, 0x89c257f400000000L,
+			0x89c2590000000000L, 0x89c25a1c00000000L, 0x89c25a3000000000L, 0x89c25bd400000000L,
+			0x89c25ed000000000L, 0x89c25f3000000000L, 0x89c25f5000000000L, 0x89c2f64000000000L,
+			0x89c2f7c000000000L
+	};
+
+	private static final long[] UNION_IDS = {
+			0x80857f9000000000L, 0x80857ff000000000L, 0x8085810000000000L, 0x808583d000000000L,
+			0x808583f000000000L, 0x8085840400000000L, 0x808586c000000000L, 0x8085873000000000L,
+			0x8085874c00000000L, 0x808f7e1c00000000L, 0x808f7e3000000000L, 0x808f7fd000000000L,
+			0x808f7ff000000000L, 0x89c258544c000000L, 0x89c2585594000000L, 0x89c25855b0000000L,
+			0x89c25855c4000000L, 0x89c25855cc000000L, 0x89c25855ec000000L
+	};
+
+	private static final boolean[] UNION_CONTAINS = {
+			true, true, false, true, false, true, false, true, false, true, false, true, false, true, false,
+			true, true, false, false, false
+	};
+
+	private static final int[] CROSSINGS = {
+			0, -1, -1, -1, 1, -1, 0, 0, -1, 0, 1, -1, -1, -1, -1, 0, 0, 0, -1, -1, -1, -1, -1, 0, 0, -1, -1,
+			-1, -1, -1, 0, -1, 1, -1, -1, 0, -1, -1, -1, 0, -1, -1, 0, -1, 0
+	};
+
+	private static final int WARMUP_ROUNDS = 3;
+	private static final int MEASURED_ROUNDS = 5;
+	private static final int SAMPLES = 1024;
+
+	private static long sink;
+
+	/**
+	 * Runs the accuracy checks, then the benchmarks.
+	 */
+	public static void main(String[] args) {
+		int failures = checkAccuracy();
+		if (failures > 0) {
+			Log.e(TAG, failures + " accuracy checks failed");
+		} else {
+			Log.i(TAG, "All accuracy checks passed");
+		}
+		runBenchmarks();
+	}
+
+	/**
+	 * Compares the geometry results for {@link #POINTS} with the reference values.
+	 *
+	 * @return the number of failed checks
+	 */
+	public static int checkAccuracy() {
+		int failures = 0;
+		long[] leafIds = new long[POINTS.length];
+		long[] parentIds = new long[POINTS.length];
+		long[] childBeginIds = new long[POINTS.length];
+		double[] farDistances = new double[POINTS.length];
+		double[] nearDistances = new double[POINTS.length];
+		for (int i = 0; i < POINTS.length; i++) {
+			S2CellId id = S2CellId.fromLatLng(latLng(i));
+			leafIds[i] = id.id();
+			parentIds[i] = id.parent(15).id();
+			childBeginIds[i] = id.parent(15).childBegin().id();
+			farDistances[i] = latLng(i).getEarthDistance(latLng((i + 1) % POINTS.length));
+			nearDistances[i] = latLng(i).getEarthDistance(
+					S2LatLng.fromDegrees(POINTS[i][0] - 0.0005, POINTS[i][1] + 0.0005));
+		}
+		failures += check("S2CellId.fromLatLng", LEAF_IDS, leafIds);
+		failures += check("S2CellId.parent", PARENT_IDS, parentIds);
+		failures += check("S2CellId.childBegin", CHILD_BEGIN_IDS, childBeginIds);
+		failures += check("S2LatLng.getEarthDistance far", FAR_DISTANCES, farDistances);
+		failures += check("S2LatLng.getEarthDistance near", NEAR_DISTANCES, nearDistances);
+
+		failures += check("S2RegionCoverer.getCovering 70m", COVERING_70, toIds(covering(70, 0)));
+		failures += check("S2RegionCoverer.getCovering 500m", COVERING_500, toIds(covering(500, 0)));
+		failures += check("S2RegionCoverer.getCovering 5km", COVERING_5000, toIds(covering(5000, 0)));
+
+		S2CellUnion union = union();
+		failures += check("S2CellUnion.normalize", UNION_IDS, toIds(union.cellIds()));
+		long[] contains = new long[UNION_CONTAINS.length];
+		long[] expectedContains = new long[UNION_CONTAINS.length];
+		for (int i = 0; i < POINTS.length; i++) {
+			S2CellId near = S2CellId.fromLatLng(
+					S2LatLng.fromDegrees(POINTS[8][0] + 0.005 * i, POINTS[8][1] - 0.005 * i));
+			contains[2 * i] = union.contains(new S2CellId(leafIds[i])) ? 1 : 0;
+			contains[2 * i + 1] = union.contains(near) ? 1 : 0;
+		}
+		for (int i = 0; i < UNION_CONTAINS.length; i++) {
+			expectedContains[i] = UNION_CONTAINS[i] ? 1 : 0;
+		}
+		failures += check("S2CellUnion.contains", expectedContains, contains);
+
+		long[] crossings = new long[CROSSINGS.length];
+		long[] expectedCrossings = new long[CROSSINGS.length];
+		int index = 0;
+		for (int i = 0; i < POINTS.length; i++) {
+			for (int j = i + 1; j < POINTS.length; j++) {
+				crossings[index] = S2EdgeUtil.robustCrossing(point(i), point((i + 1) % POINTS.length),
+						point(j), point((j + 3) % POINTS.length));
+				expectedCrossings[index] = CROSSINGS[index];
+				index++;
+			}
+		}
+		failures += check("S2EdgeUtil.robustCrossing", expectedCrossings, crossings);
+		return failures;
+	}
+
+	/**
+	 * Measures the geometry operations and logs the time per operation.
+	 */
+	public static void runBenchmarks() {
+		Random random = new Random(42);
+		final S2LatLng[] latLngs = new S2LatLng[SAMPLES];
+		final long[] leafIds = new long[SAMPLES];
+		final S2Point[] points = new S2Point[SAMPLES];
+		for (int i = 0; i < SAMPLES; i++) {
+			double[] center = POINTS[i % POINTS.length];
+			latLngs[i] = S2LatLng.fromDegrees(center[0] + random.nextDouble() * 0.1,
+					center[1] + random.nextDouble() * 0.1);
+			leafIds[i] = S2CellId.fromLatLng(latLngs[i]).id();
+			points[i] = latLngs[i].toPoint();
+		}
+		final S2CellUnion union = union();
+		final ArrayList<S2CellId> unionInput = new ArrayList<>();
+		for (S2CellId id : union) {
+			for (S2CellId child = id.childBegin(); !child.equals(id.childEnd()); child = child.next()) {
+				unionInput.add(child);
+			}
+		}
+
+		benchmark("S2CellId.fromLatLng", SAMPLES, new Benchmark() {
+			@Override
+			public long run() {
+				long value = 0;
+				for (S2LatLng latLng : latLngs) {
+					value += S2CellId.fromLatLng(latLng).id();
+				}
+				return value;
+			}
+		});
+		benchmark("S2CellId.parent/childBegin", SAMPLES, new Benchmark() {
+			@Override
+			public long run() {
+				long value = 0;
+				for (long id : leafIds) {
+					value += new S2CellId(id).parent(15).childBegin().id();
+				}
+				return value;
+			}
+		});
+		benchmark("S2LatLng.getEarthDistance", SAMPLES, new Benchmark() {
+			@Override
+			public long run() {
+				double value = 0;
+				for (int i = 1; i < SAMPLES; i++) {
+					value += latLngs[i - 1].getEarthDistance(latLngs[i]);
+				}
+				return (long) value;
+			}
+		});
+		for (final double radius : new double[]{70, 500, 1000, 5000}) {
+			benchmark("S2RegionCoverer.getCovering " + (int) radius + "m", SAMPLES / 16, new Benchmark() {
+				@Override
+				public long run() {
+					long value = 0;
+					for (int i = 0; i < SAMPLES / 16; i++) {
+						value += covering(latLngs[i], radius).size();
+					}
+					return value;
+				}
+			});
+		}
+		benchmark("S2CellUnion.normalize", 1, new Benchmark() {
+			@Override
+			public long run() {
+				S2CellUnion normalized = new S2CellUnion();
+				normalized.initFromCellIds(new ArrayList<>(unionInput));
+				return normalized.size();
+			}
+		});
+		benchmark("S2CellUnion.contains", SAMPLES, new Benchmark() {
+			@Override
+			public long run() {
+				long value = 0;
+				for (long id : leafIds) {
+					value += union.contains(new S2CellId(id)) ? 1 : 0;
+				}
+				return value;
+			}
+		});
+		benchmark("S2EdgeUtil.robustCrossing", SAMPLES - 3, new Benchmark() {
+			@Override
+			public long run() {
+				long value = 0;
+				for (int i = 3; i < SAMPLES; i++) {
+					value += S2EdgeUtil.robustCrossing(points[i - 3], points[i - 1], points[i - 2], points[i]);
+				}
+				return value;
+			}
+		});
+		Log.d(TAG, "Checksum " + sink);
+	}
+
+	/**
+	 * A measured piece of work. The returned value is accumulated so the work cannot be optimized away.
+	 */
+	private interface Benchmark {
+		long run();
+	}
+
+	private static void benchmark(String name, int operations, Benchmark benchmark) {
+		// Repeat each round until it runs for at least 100ms, then keep the fastest round.
+		int repetitions = 1;
+		long best = Long.MAX_VALUE;
+		for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+			long start = System.nanoTime();
+			for (int i = 0; i < repetitions; i++) {
+				sink += benchmark.run();
+			}
+			long elapsed = System.nanoTime() - start;
+			if (round < WARMUP_ROUNDS) {
+				if (elapsed < 100000000L) {
+					repetitions = (int) Math.min(Integer.MAX_VALUE,
+							repetitions * Math.max(2, 100000000L / Math.max(1, elapsed)));
+				}
+			} else {
+				best = Math.min(best, elapsed);
+			}
+		}
+		double perOperation = (double) best / ((long) repetitions * operations);
+		Log.i(TAG, String.format("%-40s %12.1f ns/op", name, perOperation));
+	}
+
+	private static int check(String name, long[] expected, long[] actual) {
+		for (int i = 0; i < expected.length; i++) {
+			if (i >= actual.length || expected[i] != actual[i]) {
+				Log.e(TAG, name + ": value " + i + " differs from the reference");
+				return 1;
+			}
+		}
+		if (actual.length != expected.length) {
+			Log.e(TAG, name + ": expected " + expected.length + " values, got " + actual.length);
+			return 1;
+		}
+		Log.i(TAG, name + ": bit exact");
+		return 0;
+	}
+
+	private static int check(String name, double[] expected, double[] actual) {
+		double maxError = 0;
+		boolean exact = true;
+		for (int i = 0; i < expected.length; i++) {
+			maxError = Math.max(maxError, Math.abs(expected[i] - actual[i]));
+			exact &= Double.doubleToLongBits(expected[i]) == Double.doubleToLongBits(actual[i]);
+		}
+		if (maxError > DISTANCE_TOLERANCE) {
+			Log.e(TAG, name + ": error of " + maxError + "m exceeds the tolerance");
+			return 1;
+		}
+		Log.i(TAG, name + (exact ? ": bit exact" : ": within tolerance, max error " + maxError + "m"));
+		return 0;
+	}
+
+	private static S2LatLng latLng(int index) {
+		return S2LatLng.fromDegrees(POINTS[index][0], POINTS[index][1]);
+	}
+
+	private static S2Point point(int index) {
+		return latLng(index).toPoint();
+	}
+
+	private static ArrayList<S2CellId> covering(double radius, int index) {
+		return covering(latLng(index), radius);
+	}
+
+	private static ArrayList<S2CellId> covering(S2LatLng center, double radius) {
+		S2RegionCoverer coverer = new S2RegionCoverer();
+		coverer.setMaxLevel(17);
+		coverer.setMaxCells(16);
+		ArrayList<S2CellId> covering = new ArrayList<>();
+		S1Angle angle = S1Angle.radians(radius / S2LatLng.EARTH_RADIUS_METERS);
+		coverer.getCovering(S2Cap.fromAxisAngle(center.toPoint(), angle), covering);
+		return covering;
+	}
+
+	/**
+	 * Returns the union of the children of a 70m covering and the children of a 500m and a 5km covering elsewhere.
+	 */
+	private static S2CellUnion union() {
+		ArrayList<S2CellId> ids = new ArrayList<>();
+		addChildren(covering(70, 0), ids);
+		addChildren(covering(500, 8), ids);
+		ids.addAll(covering(5000, 8));
+		S2CellUnion union = new S2CellUnion();
+		union.initFromCellIds(ids);
+		return union;
+	}
+
+	private static void addChildren(List<S2CellId> cells, List<S2CellId> output) {
+		for (S2CellId id : cells) {
+			for (S2CellId child = id.childBegin(); !child.equals(id.childEnd()); child = child.next()) {
+				output.add(child);
+			}
+		}
+	}
+
+	private static long[] toIds(List<S2CellId> cells) {
+		long[] ids = new long[cells.size()];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = cells.get(i).id();
+		}
+		return ids;
+	}
+}
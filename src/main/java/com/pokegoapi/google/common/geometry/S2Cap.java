@@ -193,7 +193,7 @@ public final strictfp class S2Cap implements S2Region {
    */
   public boolean interiorContains(S2Point p) {
     // assert (S2.isUnitLength(p));
-    return isFull() || S2Point.sub(axis, p).norm2() < 2 * height;
+    return isFull() || S2Points.distance2(axis.x, axis.y, axis.z, p.x, p.y, p.z) < 2 * height;
   }
 
   /**
@@ -210,7 +210,7 @@ public final strictfp class S2Cap implements S2Region {
       // To make sure that the resulting cap actually includes this point,
       // we need to round up the distance calculation. That is, after
       // calling cap.AddPoint(p), cap.Contains(p) should be true.
-      double dist2 = S2Point.sub(axis, p).norm2();
+      double dist2 = S2Points.distance2(axis.x, axis.y, axis.z, p.x, p.y, p.z);
       double newHeight = Math.max(height, ROUND_UP * 0.5 * dist2);
       return new S2Cap(axis, newHeight);
     }
@@ -302,10 +302,10 @@ public final strictfp class S2Cap implements S2Region {
     // We check the vertices before taking the Complement() because we can't
     // accurately represent the complement of a very small cap (a height
     // of 2-epsilon is rounded off to 2).
-    S2Point[] vertices = new S2Point[4];
+    double[] vertices = new double[12];
     for (int k = 0; k < 4; ++k) {
-      vertices[k] = cell.getVertex(k);
-      if (!contains(vertices[k])) {
+      cell.getVertex(k, vertices, 3 * k);
+      if (!contains(vertices, 3 * k)) {
         return false;
       }
     }
@@ -318,10 +318,10 @@ public final strictfp class S2Cap implements S2Region {
   @Override
   public boolean mayIntersect(S2Cell cell) {
     // If the cap contains any cell vertex, return true.
-    S2Point[] vertices = new S2Point[4];
+    double[] vertices = new double[12];
     for (int k = 0; k < 4; ++k) {
-      vertices[k] = cell.getVertex(k);
-      if (contains(vertices[k])) {
+      cell.getVertex(k, vertices, 3 * k);
+      if (contains(vertices, 3 * k)) {
         return true;
       }
     }
@@ -333,6 +333,20 @@ public final strictfp class S2Cap implements S2Region {
    * alrady been checked.
    */
   public boolean intersects(S2Cell cell, S2Point[] vertices) {
+    double[] coords = new double[12];
+    for (int k = 0; k < 4; ++k) {
+      coords[3 * k] = vertices[k].x;
+      coords[3 * k + 1] = vertices[k].y;
+      coords[3 * k + 2] = vertices[k].z;
+    }
+    return intersects(cell, coords);
+  }
+
+  /**
+   * Like intersects(S2Cell, S2Point[]), with the components of the four cell
+   * vertices stored in vertices[0..11].
+   */
+  private boolean intersects(S2Cell cell, double[] vertices) {
     // Return true if this cap intersects any point of 'cell' excluding its
     // vertices (which are assumed to already have been checked).
 
@@ -359,9 +373,10 @@ public final strictfp class S2Cap implements S2Region {
     // can intersect is if the cap intersects the interior of some edge.
 
     double sin2Angle = height * (2 - height); // sin^2(capAngle)
+    double[] edge = new double[3];
     for (int k = 0; k < 4; ++k) {
-      S2Point edge = cell.getEdgeRaw(k);
-      double dot = axis.dotProd(edge);
+      cell.getEdgeRaw(k, edge, 0);
+      double dot = S2Points.dotProd(axis.x, axis.y, axis.z, edge[0], edge[1], edge[2]);
       if (dot > 0) {
         // The axis is in the interior half-space defined by the edge. We don't
         // need to consider these edges, since if the cap intersects this edge
@@ -370,25 +385,36 @@ public final strictfp class S2Cap implements S2Region {
         continue;
       }
       // The Norm2() factor is necessary because "edge" is not normalized.
-      if (dot * dot > sin2Angle * edge.norm2()) {
+      if (dot * dot > sin2Angle * S2Points.norm2(edge[0], edge[1], edge[2])) {
         return false; // Entire cap is on the exterior side of this edge.
       }
       // Otherwise, the great circle containing this edge intersects
       // the interior of the cap. We just need to check whether the point
       // of closest approach occurs between the two edge endpoints.
-      S2Point dir = S2Point.crossProd(edge, axis);
-      if (dir.dotProd(vertices[k]) < 0
-          && dir.dotProd(vertices[(k + 1) & 3]) > 0) {
+      double dirX = S2Points.crossProdX(edge[1], edge[2], axis.y, axis.z);
+      double dirY = S2Points.crossProdY(edge[0], edge[2], axis.x, axis.z);
+      double dirZ = S2Points.crossProdZ(edge[0], edge[1], axis.x, axis.y);
+      int v0 = 3 * k;
+      int v1 = 3 * ((k + 1) & 3);
+      if (S2Points.dotProd(dirX, dirY, dirZ, vertices[v0], vertices[v0 + 1], vertices[v0 + 2]) < 0
+          && S2Points.dotProd(dirX, dirY, dirZ, vertices[v1], vertices[v1 + 1], vertices[v1 + 2])
+              > 0) {
         return true;
       }
     }
     return false;
   }
 
+  /** Like contains(S2Point), for the point stored in p[offset..offset + 2]. */
+  private boolean contains(double[] p, int offset) {
+    return S2Points.distance2(axis.x, axis.y, axis.z, p[offset], p[offset + 1], p[offset + 2])
+        <= 2 * height;
+  }
+
   public boolean contains(S2Point p) {
     // The point 'p' should be a unit-length vector.
     // assert (S2.isUnitLength(p));
-    return S2Point.sub(axis, p).norm2() <= 2 * height;
+    return S2Points.distance2(axis.x, axis.y, axis.z, p.x, p.y, p.z) <= 2 * height;
 
   }
 
@@ -61,6 +61,18 @@ public final strictfp class S2Cell implements S2Region {
   }
 
 
+  /** Makes this cell a copy of the given cell, used to recycle cells. */
+  void set(S2Cell other) {
+    face = other.face;
+    level = other.level;
+    orientation = other.orientation;
+    cellId = other.cellId;
+    uv[0][0] = other.uv[0][0];
+    uv[0][1] = other.uv[0][1];
+    uv[1][0] = other.uv[1][0];
+    uv[1][1] = other.uv[1][1];
+  }
+
   public S2CellId id() {
     return cellId;
   }
@@ -95,6 +107,38 @@ public final strictfp class S2Cell implements S2Region {
     return S2Projections.faceUvToXyz(face, uv[0][(k >> 1) ^ (k & 1)], uv[1][k >> 1]);
   }
 
+  /** Stores the unit length k-th vertex into out[offset..offset + 2]. */
+  void getVertex(int k, double[] out, int offset) {
+    S2Points.faceUvToXyz(face, uv[0][(k >> 1) ^ (k & 1)], uv[1][k >> 1], out, offset);
+    S2Points.normalize(out[offset], out[offset + 1], out[offset + 2], out, offset);
+  }
+
+  /** Stores getEdgeRaw(k) into out[offset..offset + 2]. */
+  void getEdgeRaw(int k, double[] out, int offset) {
+    switch (k) {
+      case 0:
+        S2Points.faceVNorm(face, uv[1][0], out, offset); // South
+        break;
+      case 1:
+        S2Points.faceUNorm(face, uv[0][1], out, offset); // East
+        break;
+      case 2:
+        S2Points.faceVNorm(face, uv[1][1], out, offset); // North
+        negate(out, offset);
+        break;
+      default:
+        S2Points.faceUNorm(face, uv[0][0], out, offset); // West
+        negate(out, offset);
+        break;
+    }
+  }
+
+  private static void negate(double[] v, int offset) {
+    v[offset] = -v[offset];
+    v[offset + 1] = -v[offset + 1];
+    v[offset + 2] = -v[offset + 2];
+  }
+
   public S2Point getEdge(int k) {
     return S2Point.normalize(getEdgeRaw(k));
   }
@@ -130,7 +174,7 @@ public final strictfp class S2Cell implements S2Region {
     // This function is equivalent to just iterating over the child cell ids
     // and calling the S2Cell constructor, but it is about 2.5 times faster.
 
-    if (cellId.isLeaf()) {
+    if (S2CellIds.isLeaf(cellId.id())) {
       return false;
     }
 
@@ -138,13 +182,13 @@ public final strictfp class S2Cell implements S2Region {
     R2Vector uvMid = getCenterUV();
 
     // Create four children with the appropriate bounds.
-    S2CellId id = cellId.childBegin();
-    for (int pos = 0; pos < 4; ++pos, id = id.next()) {
+    long id = S2CellIds.childBegin(cellId.id());
+    for (int pos = 0; pos < 4; ++pos, id = S2CellIds.next(id)) {
       S2Cell child = children[pos];
       child.face = face;
       child.level = (byte) (level + 1);
       child.orientation = (byte) (orientation ^ S2.posToOrientation(pos));
-      child.cellId = id;
+      child.cellId = new S2CellId(id);
       int ij = S2.posToIJ(orientation, pos);
       for (int d = 0; d < 2; ++d) {
         // The dimension 0 index (i/u) is in bit 1 of ij.
@@ -178,16 +222,14 @@ public final strictfp class S2Cell implements S2Region {
    * not at the midpoint of the (u,v) rectangle covered by the cell
    */
   public R2Vector getCenterUV() {
-    MutableInteger i = new MutableInteger(0);
-    MutableInteger j = new MutableInteger(0);
-    cellId.toFaceIJOrientation(i, j, null);
+    long ij = S2CellIds.toIJOrientation(cellId.id());
     int cellSize = 1 << (S2CellId.MAX_LEVEL - level);
 
     // TODO(dbeaumont): Figure out a better naming of the variables here (and elsewhere).
-    int si = (i.intValue() & -cellSize) * 2 + cellSize - MAX_CELL_SIZE;
+    int si = (S2CellIds.unpackI(ij) & -cellSize) * 2 + cellSize - MAX_CELL_SIZE;
     double x = S2Projections.stToUV((1.0 / MAX_CELL_SIZE) * si);
 
-    int sj = (j.intValue() & -cellSize) * 2 + cellSize - MAX_CELL_SIZE;
+    int sj = (S2CellIds.unpackJ(ij) & -cellSize) * 2 + cellSize - MAX_CELL_SIZE;
     double y = S2Projections.stToUV((1.0 / MAX_CELL_SIZE) * sj);
 
     return new R2Vector(x, y);
@@ -379,20 +421,16 @@ public final strictfp class S2Cell implements S2Region {
 
   private void init(S2CellId id) {
     cellId = id;
-    MutableInteger ij[] = new MutableInteger[2];
-    MutableInteger mOrientation = new MutableInteger(0);
-
-    for (int d = 0; d < 2; ++d) {
-      ij[d] = new MutableInteger(0);
-    }
+    long ij = S2CellIds.toIJOrientation(id.id());
 
-    face = (byte) id.toFaceIJOrientation(ij[0], ij[1], mOrientation);
-    orientation = (byte) mOrientation.intValue(); // Compress int to a byte.
-    level = (byte) id.level();
+    face = (byte) S2CellIds.face(id.id());
+    orientation = (byte) S2CellIds.unpackOrientation(ij); // Compress int to a byte.
+    level = (byte) S2CellIds.level(id.id());
     int cellSize = 1 << (S2CellId.MAX_LEVEL - level);
     for (int d = 0; d < 2; ++d) {
       // Compute the cell bounds in scaled (i,j) coordinates.
-      int sijLo = (ij[d].intValue() & -cellSize) * 2 - MAX_CELL_SIZE;
+      int coordinate = d == 0 ? S2CellIds.unpackI(ij) : S2CellIds.unpackJ(ij);
+      int sijLo = (coordinate & -cellSize) * 2 - MAX_CELL_SIZE;
       int sijHi = sijLo + cellSize * 2;
       uv[d][0] = S2Projections.stToUV((1.0 / MAX_CELL_SIZE) * sijLo);
       uv[d][1] = S2Projections.stToUV((1.0 / MAX_CELL_SIZE) * sijHi);
@@ -61,47 +61,9 @@ public final strictfp class S2CellId implements Comparable<S2CellId> {
   // Constant related to unsigned long's
   public static final long MAX_UNSIGNED = -1L; // Equivalent to 0xffffffffffffffffL
 
-  // The following lookup tables are used to convert efficiently between an
-  // (i,j) cell index and the corresponding position along the Hilbert curve.
-  // "lookup_pos" maps 4 bits of "i", 4 bits of "j", and 2 bits representing the
-  // orientation of the current cell into 8 bits representing the order in which
-  // that subcell is visited by the Hilbert curve, plus 2 bits indicating the
-  // new orientation of the Hilbert curve within that subcell. (Cell
-  // orientations are represented as combination of kSwapMask and kInvertMask.)
-  //
-  // "lookup_ij" is an inverted table used for mapping in the opposite
-  // direction.
-  //
-  // We also experimented with looking up 16 bits at a time (14 bits of position
-  // plus 2 of orientation) but found that smaller lookup tables gave better
-  // performance. (2KB fits easily in the primary cache.)
-
-
-  // Values for these constants are *declared* in the *.h file. Even though
-  // the declaration specifies a value for the constant, that declaration
-  // is not a *definition* of storage for the value. Because the values are
-  // supplied in the declaration, we don't need the values here. Failing to
-  // define storage causes link errors for any code that tries to take the
-  // address of one of these values.
-  private static final int LOOKUP_BITS = 4;
-  private static final int SWAP_MASK = 0x01;
-  private static final int INVERT_MASK = 0x02;
-
-  private static final int[] LOOKUP_POS = new int[1 << (2 * LOOKUP_BITS + 2)];
-  private static final int[] LOOKUP_IJ = new int[1 << (2 * LOOKUP_BITS + 2)];
-
-  /**
-   * This is the offset required to wrap around from the beginning of the
-   * Hilbert curve to the end or vice versa; see next_wrap() and prev_wrap().
-   */
-  private static final long WRAP_OFFSET = (long) (NUM_FACES) << POS_BITS;
-
-  static {
-    initLookupCell(0, 0, 0, 0, 0, 0);
-    initLookupCell(0, 0, 0, SWAP_MASK, 0, SWAP_MASK);
-    initLookupCell(0, 0, 0, INVERT_MASK, 0, INVERT_MASK);
-    initLookupCell(0, 0, 0, SWAP_MASK | INVERT_MASK, 0, SWAP_MASK | INVERT_MASK);
-  }
+  // The lookup tables used to convert between an (i,j) cell index and the
+  // corresponding position along the Hilbert curve live in S2CellIds, which
+  // implements all cell id operations on raw longs.
 
   /**
    * The id of the cell.
@@ -137,7 +99,7 @@ public final strictfp class S2CellId implements Comparable<S2CellId> {
    * order to give names to the arguments.
    */
   public static S2CellId fromFacePosLevel(int face, long pos, int level) {
-    return new S2CellId((((long) face) << POS_BITS) + (pos | 1)).parent(level);
+    return new S2CellId(S2CellIds.fromFacePosLevel(face, pos, level));
   }
 
   /**
@@ -145,11 +107,7 @@ public final strictfp class S2CellId implements Comparable<S2CellId> {
    * necessarily unit length).
    */
   public static S2CellId fromPoint(S2Point p) {
-    int face = S2Projections.xyzToFace(p);
-    R2Vector uv = S2Projections.validFaceXyzToUv(face, p);
-    int i = stToIJ(S2Projections.uvToST(uv.x()));
-    int j = stToIJ(S2Projections.uvToST(uv.y()));
-    return fromFaceIJ(face, i, j);
+    return new S2CellId(S2CellIds.fromPoint(p));
   }
 
 
@@ -186,15 +144,13 @@ public final strictfp class S2CellId implements Comparable<S2CellId> {
     // the cell center. (We need to multiply the coordinates by a factor of 2
     // so that the center of leaf cells can be represented exactly.)
 
-    MutableInteger i = new MutableInteger(0);
-    MutableInteger j = new MutableInteger(0);
-    int face = toFaceIJOrientation(i, j, null);
-    // System.out.println("i= " + i.intValue() + " j = " + j.intValue());
-    int delta = isLeaf() ? 1 : (((i.intValue() ^ (((int) id) >>> 2)) & 1) != 0)
-      ? 2 : 0;
-    int si = (i.intValue() << 1) + delta - MAX_SIZE;
-    int ti = (j.intValue() << 1) + delta - MAX_SIZE;
-    return faceSiTiToXYZ(face, si, ti);
+    long ij = S2CellIds.toIJOrientation(id);
+    int i = S2CellIds.unpackI(ij);
+    int j = S2CellIds.unpackJ(ij);
+    int delta = isLeaf() ? 1 : (((i ^ (((int) id) >>> 2)) & 1) != 0) ? 2 : 0;
+    int si = (i << 1) + delta - MAX_SIZE;
+    int ti = (j << 1) + delta - MAX_SIZE;
+    return faceSiTiToXYZ(face(), si, ti);
   }
 
   /** Return the S2LatLng corresponding to the center of the given cell. */
@@ -210,12 +166,12 @@ public final strictfp class S2CellId implements Comparable<S2CellId> {
 
   /** Return true if id() represents a valid cell. */
   public boolean isValid() {
-    return face() < NUM_FACES && ((lowestOnBit() & (0x1555555555555555L)) != 0);
+    return S2CellIds.isValid(id);
   }
 
   /** Which cube face this cell belongs to, in the range 0..5. */
   public int face() {
-    return (int) (id >>> POS_BITS);
+    return S2CellIds.face(id);
   }
 
   /**
@@ -223,39 +179,12 @@ public final strictfp class S2CellId implements Comparable<S2CellId> {
    * the range 0..(2**kPosBits-1).
    */
   public long pos() {
-    return (id & (-1L >>> FACE_BITS));
+    return S2CellIds.pos(id);
   }
 
   /** Return the subdivision level of the cell (range 0..MAX_LEVEL). */
   public int level() {
-    // Fast path for leaf cells.
-    if (isLeaf()) {
-      return MAX_LEVEL;
-    }
-    int x = ((int) id);
-    int level = -1;
-    if (x != 0) {
-      level += 16;
-    } else {
-      x = (int) (id >>> 32);
-    }
-    // We only need to look at even-numbered bits to determine the
-    // level of a valid cell id.
-    x &= -x; // Get lowest bit.
-    if ((x & 0x00005555) != 0) {
-      level += 8;
-    }
-    if ((x & 0x00550055) != 0) {
-      level += 4;
-    }
-    if ((x & 0x05050505) != 0) {
-      level += 2;
-    }
-    if ((x & 0x11111111) != 0) {
-      level += 1;
-    }
-    // assert (level >= 0 && level <= MAX_LEVEL);
-    return level;
+    return S2CellIds.level(id);
   }
 
 
@@ -265,7 +194,7 @@ public final strictfp class S2CellId implements Comparable<S2CellId> {
    * level() == MAX_LEVEL).
    */
   public boolean isLeaf() {
-    return ((int) id & 1) != 0;
+    return S2CellIds.isLeaf(id);
   }
 
   /**
@@ -273,7 +202,7 @@ public final strictfp class S2CellId implements Comparable<S2CellId> {
    * whether level() == 0).
    */
   public boolean isFace() {
-    return (id & (lowestOnBitForLevel(0) - 1)) == 0;
+    return S2CellIds.isFace(id);
   }
 
   /**
@@ -283,7 +212,7 @@ public final strictfp class S2CellId implements Comparable<S2CellId> {
    * cell's level-1 ancestor within its top-level face cell.
    */
   public int childPosition(int level) {
-    return (int) (id >>> (2 * (MAX_LEVEL - level) + 1)) & 3;
+    return S2CellIds.childPosition(id, level);
   }
 
   // Methods that return the range of cell ids that are contained
@@ -299,31 +228,26 @@ public final strictfp class S2CellId implements Comparable<S2CellId> {
   // because (range_max().id() + 1) is not always a valid cell id, and the
   // iterator would need to be tested using "<" rather that the usual "!=".
   public S2CellId rangeMin() {
-    return new S2CellId(id - (lowestOnBit() - 1));
+    return new S2CellId(S2CellIds.rangeMin(id));
   }
 
   public S2CellId rangeMax() {
-    return new S2CellId(id + (lowestOnBit() - 1));
+    return new S2CellId(S2CellIds.rangeMax(id));
   }
 
 
   /** Return true if the given cell is contained within this one. */
   public boolean contains(S2CellId other) {
-    // assert (isValid() && other.isValid());
-    return other.greaterOrEquals(rangeMin()) && other.lessOrEquals(rangeMax());
+    return S2CellIds.contains(id, other.id);
   }
 
   /** Return true if the given cell intersects this one. */
   public boolean intersects(S2CellId other) {
-    // assert (isValid() && other.isValid());
-    return other.rangeMin().lessOrEquals(rangeMax())
-      && other.rangeMax().greaterOrEquals(rangeMin());
+    return S2CellIds.intersects(id, other.id);
   }
 
   public S2CellId parent() {
-    // assert (isValid() && level() > 0);
-    long newLsb = lowestOnBit() << 2;
-    return new S2CellId((id & -newLsb) | newLsb);
+    return new S2CellId(S2CellIds.parent(id));
   }
 
   /**
@@ -331,31 +255,23 @@ public final strictfp class S2CellId implements Comparable<S2CellId> {
    * less than or equal to the current level).
    */
   public S2CellId parent(int level) {
-    // assert (isValid() && level >= 0 && level <= this.level());
-    long newLsb = lowestOnBitForLevel(level);
-    return new S2CellId((id & -newLsb) | newLsb);
+    return new S2CellId(S2CellIds.parent(id, level));
   }
 
   public S2CellId childBegin() {
-    // assert (isValid() && level() < MAX_LEVEL);
-    long oldLsb = lowestOnBit();
-    return new S2CellId(id - oldLsb + (oldLsb >>> 2));
+    return new S2CellId(S2CellIds.childBegin(id));
   }
 
   public S2CellId childBegin(int level) {
-    // assert (isValid() && level >= this.level() && level <= MAX_LEVEL);
-    return new S2CellId(id - lowestOnBit() + lowestOnBitForLevel(level));
+    return new S2CellId(S2CellIds.childBegin(id, level));
   }
 
   public S2CellId childEnd() {
-    // assert (isValid() && level() < MAX_LEVEL);
-    long oldLsb = lowestOnBit();
-    return new S2CellId(id + oldLsb + (oldLsb >>> 2));
+    return new S2CellId(S2CellIds.childEnd(id));
   }
 
   public S2CellId childEnd(int level) {
-    // assert (isValid() && level >= this.level() && level <= MAX_LEVEL);
-    return new S2CellId(id + lowestOnBit() + lowestOnBitForLevel(level));
+    return new S2CellId(S2CellIds.childEnd(id, level));
   }
 
   // Iterator-style methods for traversing the immediate children of a cell or
@@ -377,7 +293,7 @@ public final strictfp class S2CellId implements Comparable<S2CellId> {
    * around from the last face to the first or vice versa.
    */
   public S2CellId next() {
-    return new S2CellId(id + (lowestOnBit() << 1));
+    return new S2CellId(S2CellIds.next(id));
   }
 
   /**
@@ -386,7 +302,7 @@ public final strictfp class S2CellId implements Comparable<S2CellId> {
    * around from the last face to the first or vice versa.
    */
   public S2CellId prev() {
-    return new S2CellId(id - (lowestOnBit() << 1));
+    return new S2CellId(S2CellIds.prev(id));
   }
 
 
@@ -396,11 +312,7 @@ public final strictfp class S2CellId implements Comparable<S2CellId> {
    * child_begin(), child_end(), Begin(), or End().
    */
   public S2CellId nextWrap() {
-    S2CellId n = next();
-    if (unsignedLongLessThan(n.id, WRAP_OFFSET)) {
-      return n;
-    }
-    return new S2CellId(n.id - WRAP_OFFSET);
+    return new S2CellId(S2CellIds.nextWrap(id));
   }
 
   /**
@@ -409,20 +321,16 @@ public final strictfp class S2CellId implements Comparable<S2CellId> {
    * child_begin(), child_end(), Begin(), or End().
    */
   public S2CellId prevWrap() {
-    S2CellId p = prev();
-    if (p.id < WRAP_OFFSET) {
-      return p;
-    }
-    return new S2CellId(p.id + WRAP_OFFSET);
+    return new S2CellId(S2CellIds.prevWrap(id));
   }
 
 
   public static S2CellId begin(int level) {
-    return fromFacePosLevel(0, 0, 0).childBegin(level);
+    return new S2CellId(S2CellIds.begin(level));
   }
 
   public static S2CellId end(int level) {
-    return fromFacePosLevel(5, 0, 0).childEnd(level);
+    return new S2CellId(S2CellIds.end(level));
   }
 
 
@@ -554,23 +462,11 @@ public final strictfp class S2CellId implements Comparable<S2CellId> {
    * neighbors are guaranteed to be distinct.
    */
   public void getEdgeNeighbors(S2CellId neighbors[]) {
-
-    MutableInteger i = new MutableInteger(0);
-    MutableInteger j = new MutableInteger(0);
-
-    int level = this.level();
-    int size = 1 << (MAX_LEVEL - level);
-    int face = toFaceIJOrientation(i, j, null);
-
-    // Edges 0, 1, 2, 3 are in the S, E, N, W directions.
-    neighbors[0] = fromFaceIJSame(face, i.intValue(), j.intValue() - size,
-      j.intValue() - size >= 0).parent(level);
-    neighbors[1] = fromFaceIJSame(face, i.intValue() + size, j.intValue(),
-      i.intValue() + size < MAX_SIZE).parent(level);
-    neighbors[2] = fromFaceIJSame(face, i.intValue(), j.intValue() + size,
-      j.intValue() + size < MAX_SIZE).parent(level);
-    neighbors[3] = fromFaceIJSame(face, i.intValue() - size, j.intValue(),
-      i.intValue() - size >= 0).parent(level);
+    long[] ids = new long[4];
+    S2CellIds.getEdgeNeighbors(id, ids);
+    for (int k = 0; k < 4; k++) {
+      neighbors[k] = new S2CellId(ids[k]);
+    }
   }
 
   /**
@@ -586,9 +482,10 @@ public final strictfp class S2CellId implements Comparable<S2CellId> {
     // "level" must be strictly less than this cell's level so that we can
     // determine which vertex this cell is closest to.
     // assert (level < this.level());
-    MutableInteger i = new MutableInteger(0);
-    MutableInteger j = new MutableInteger(0);
-    int face = toFaceIJOrientation(i, j, null);
+    long ij = S2CellIds.toIJOrientation(id);
+    int face = face();
+    int i = S2CellIds.unpackI(ij);
+    int j = S2CellIds.unpackJ(ij);
 
     // Determine the i- and j-offsets to the closest neighboring cell in each
     // direction. This involves looking at the next bit of "i" and "j" to
@@ -597,33 +494,33 @@ public final strictfp class S2CellId implements Comparable<S2CellId> {
     int size = halfsize << 1;
     boolean isame, jsame;
     int ioffset, joffset;
-    if ((i.intValue() & halfsize) != 0) {
+    if ((i & halfsize) != 0) {
       ioffset = size;
-      isame = (i.intValue() + size) < MAX_SIZE;
+      isame = (i + size) < MAX_SIZE;
     } else {
       ioffset = -size;
-      isame = (i.intValue() - size) >= 0;
+      isame = (i - size) >= 0;
     }
-    if ((j.intValue() & halfsize) != 0) {
+    if ((j & halfsize) != 0) {
       joffset = size;
-      jsame = (j.intValue() + size) < MAX_SIZE;
+      jsame = (j + size) < MAX_SIZE;
     } else {
       joffset = -size;
-      jsame = (j.intValue() - size) >= 0;
+      jsame = (j - size) >= 0;
     }
 
     output.add(parent(level));
     output
-      .add(fromFaceIJSame(face, i.intValue() + ioffset, j.intValue(), isame)
+      .add(fromFaceIJSame(face, i + ioffset, j, isame)
         .parent(level));
     output
-      .add(fromFaceIJSame(face, i.intValue(), j.intValue() + joffset, jsame)
+      .add(fromFaceIJSame(face, i, j + joffset, jsame)
         .parent(level));
     // If i- and j- edge neighbors are *both* on a different face, then this
     // vertex only has three neighbors (it is one of the 8 cube vertices).
     if (isame || jsame) {
-      output.add(fromFaceIJSame(face, i.intValue() + ioffset,
-        j.intValue() + joffset, isame && jsame).parent(level));
+      output.add(fromFaceIJSame(face, i + ioffset,
+        j + joffset, isame && jsame).parent(level));
     }
   }
 
@@ -637,17 +534,15 @@ public final strictfp class S2CellId implements Comparable<S2CellId> {
    * face vertex, the same neighbor may be appended more than once.
    */
   public void getAllNeighbors(int nbrLevel, List<S2CellId> output) {
-    MutableInteger i = new MutableInteger(0);
-    MutableInteger j = new MutableInteger(0);
-
-    int face = toFaceIJOrientation(i, j, null);
+    long ij = S2CellIds.toIJOrientation(id);
+    int face = face();
 
     // Find the coordinates of the lower left-hand leaf cell. We need to
     // normalize (i,j) to a known position within the cell because nbr_level
     // may be larger than this cell's level.
     int size = 1 << (MAX_LEVEL - level());
-    i.setValue(i.intValue() & -size);
-    j.setValue(j.intValue() & -size);
+    int i = S2CellIds.unpackI(ij) & -size;
+    int j = S2CellIds.unpackJ(ij) & -size;
 
     int nbrSize = 1 << (MAX_LEVEL - nbrLevel);
     // assert (nbrSize <= size);
@@ -657,23 +552,23 @@ public final strictfp class S2CellId implements Comparable<S2CellId> {
     for (int k = -nbrSize;; k += nbrSize) {
       boolean sameFace;
       if (k < 0) {
-        sameFace = (j.intValue() + k >= 0);
+        sameFace = (j + k >= 0);
       } else if (k >= size) {
-        sameFace = (j.intValue() + k < MAX_SIZE);
+        sameFace = (j + k < MAX_SIZE);
       } else {
         sameFace = true;
         // North and South neighbors.
-        output.add(fromFaceIJSame(face, i.intValue() + k,
-          j.intValue() - nbrSize, j.intValue() - size >= 0).parent(nbrLevel));
-        output.add(fromFaceIJSame(face, i.intValue() + k, j.intValue() + size,
-          j.intValue() + size < MAX_SIZE).parent(nbrLevel));
+        output.add(fromFaceIJSame(face, i + k,
+          j - nbrSize, j - size >= 0).parent(nbrLevel));
+        output.add(fromFaceIJSame(face, i + k, j + size,
+          j + size < MAX_SIZE).parent(nbrLevel));
       }
       // East, West, and Diagonal neighbors.
-      output.add(fromFaceIJSame(face, i.intValue() - nbrSize,
-        j.intValue() + k, sameFace && i.intValue() - size >= 0).parent(
+      output.add(fromFaceIJSame(face, i - nbrSize,
+        j + k, sameFace && i - size >= 0).parent(
         nbrLevel));
-      output.add(fromFaceIJSame(face, i.intValue() + size, j.intValue() + k,
-        sameFace && i.intValue() + size < MAX_SIZE).parent(nbrLevel));
+      output.add(fromFaceIJSame(face, i + size, j + k,
+        sameFace && i + size < MAX_SIZE).parent(nbrLevel));
       if (k >= size) {
         break;
       }
@@ -688,122 +583,32 @@ public final strictfp class S2CellId implements Comparable<S2CellId> {
    * j-coordinates (see s2.h).
    */
   public static S2CellId fromFaceIJ(int face, int i, int j) {
-    // Optimization notes:
-    // - Non-overlapping bit fields can be combined with either "+" or "|".
-    // Generally "+" seems to produce better code, but not always.
-
-    // gcc doesn't have very good code generation for 64-bit operations.
-    // We optimize this by computing the result as two 32-bit integers
-    // and combining them at the end. Declaring the result as an array
-    // rather than local variables helps the compiler to do a better job
-    // of register allocation as well. Note that the two 32-bits halves
-    // get shifted one bit to the left when they are combined.
-    long n[] = {0, face << (POS_BITS - 33)};
-
-    // Alternating faces have opposite Hilbert curve orientations; this
-    // is necessary in order for all faces to have a right-handed
-    // coordinate system.
-    int bits = (face & SWAP_MASK);
-
-    // Each iteration maps 4 bits of "i" and "j" into 8 bits of the Hilbert
-    // curve position. The lookup table transforms a 10-bit key of the form
-    // "iiiijjjjoo" to a 10-bit value of the form "ppppppppoo", where the
-    // letters [ijpo] denote bits of "i", "j", Hilbert curve position, and
-    // Hilbert curve orientation respectively.
-
-    for (int k = 7; k >= 0; --k) {
-      bits = getBits(n, i, j, k, bits);
-    }
-
-    S2CellId s = new S2CellId((((n[1] << 32) + n[0]) << 1) + 1);
-    return s;
-  }
-
-  private static int getBits(long[] n, int i, int j, int k, int bits) {
-    final int mask = (1 << LOOKUP_BITS) - 1;
-    bits += (((i >> (k * LOOKUP_BITS)) & mask) << (LOOKUP_BITS + 2));
-    bits += (((j >> (k * LOOKUP_BITS)) & mask) << 2);
-    bits = LOOKUP_POS[bits];
-    n[k >> 2] |= ((((long) bits) >> 2) << ((k & 3) * 2 * LOOKUP_BITS));
-    bits &= (SWAP_MASK | INVERT_MASK);
-    return bits;
+    return new S2CellId(S2CellIds.fromFaceIJ(face, i, j));
   }
 
-
   /**
    * Return the (face, i, j) coordinates for the leaf cell corresponding to this
    * cell id. Since cells are represented by the Hilbert curve position at the
    * center of the cell, the returned (i,j) for non-leaf cells will be a leaf
    * cell adjacent to the cell center. If "orientation" is non-NULL, also return
    * the Hilbert curve orientation for the current cell.
+   *
+   * @see S2CellIds#toIJOrientation(long) for a version without out-params
    */
   public int toFaceIJOrientation(MutableInteger pi, MutableInteger pj,
       MutableInteger orientation) {
-    // System.out.println("Entering toFaceIjorientation");
-    int face = this.face();
-    int bits = (face & SWAP_MASK);
-
-    // System.out.println("face = " + face + " bits = " + bits);
-
-    // Each iteration maps 8 bits of the Hilbert curve position into
-    // 4 bits of "i" and "j". The lookup table transforms a key of the
-    // form "ppppppppoo" to a value of the form "iiiijjjjoo", where the
-    // letters [ijpo] represents bits of "i", "j", the Hilbert curve
-    // position, and the Hilbert curve orientation respectively.
-    //
-    // On the first iteration we need to be careful to clear out the bits
-    // representing the cube face.
-    for (int k = 7; k >= 0; --k) {
-      bits = getBits1(pi, pj, k, bits);
-      // System.out.println("pi = " + pi + " pj= " + pj + " bits = " + bits);
-    }
-
+    long ij = S2CellIds.toIJOrientation(id);
+    pi.setValue(pi.intValue() + S2CellIds.unpackI(ij));
+    pj.setValue(pj.intValue() + S2CellIds.unpackJ(ij));
     if (orientation != null) {
-      // The position of a non-leaf cell at level "n" consists of a prefix of
-      // 2*n bits that identifies the cell, followed by a suffix of
-      // 2*(MAX_LEVEL-n)+1 bits of the form 10*. If n==MAX_LEVEL, the suffix is
-      // just "1" and has no effect. Otherwise, it consists of "10", followed
-      // by (MAX_LEVEL-n-1) repetitions of "00", followed by "0". The "10" has
-      // no effect, while each occurrence of "00" has the effect of reversing
-      // the kSwapMask bit.
-      // assert (S2.POS_TO_ORIENTATION[2] == 0);
-      // assert (S2.POS_TO_ORIENTATION[0] == S2.SWAP_MASK);
-      if ((lowestOnBit() & 0x1111111111111110L) != 0) {
-        bits ^= S2.SWAP_MASK;
-      }
-      orientation.setValue(bits);
+      orientation.setValue(S2CellIds.unpackOrientation(ij));
     }
-    return face;
-  }
-
-  private int getBits1(MutableInteger i, MutableInteger j, int k, int bits) {
-    final int nbits = (k == 7) ? (MAX_LEVEL - 7 * LOOKUP_BITS) : LOOKUP_BITS;
-
-    bits += (((int) (id >>> (k * 2 * LOOKUP_BITS + 1)) &
-            ((1 << (2 * nbits)) - 1))) << 2;
-    /*
-     * System.out.println("id is: " + id_); System.out.println("bits is " +
-     * bits); System.out.println("lookup_ij[bits] is " + lookup_ij[bits]);
-     */
-    bits = LOOKUP_IJ[bits];
-    i.setValue(i.intValue()
-      + ((bits >> (LOOKUP_BITS + 2)) << (k * LOOKUP_BITS)));
-    /*
-     * System.out.println("left is " + ((bits >> 2) & ((1 << kLookupBits) -
-     * 1))); System.out.println("right is " + (k * kLookupBits));
-     * System.out.println("j is: " + j.intValue()); System.out.println("addition
-     * is: " + ((((bits >> 2) & ((1 << kLookupBits) - 1))) << (k *
-     * kLookupBits)));
-     */
-    j.setValue(j.intValue()
-      + ((((bits >> 2) & ((1 << LOOKUP_BITS) - 1))) << (k * LOOKUP_BITS)));
-    bits &= (SWAP_MASK | INVERT_MASK);
-    return bits;
+    return face();
   }
 
   /** Return the lowest-numbered bit that is on for cells at the given level. */
   public long lowestOnBit() {
-    return id & -id;
+    return S2CellIds.lowestOnBit(id);
   }
 
   /**
@@ -813,24 +618,10 @@ public final strictfp class S2CellId implements Comparable<S2CellId> {
    * efficient.
    */
   public static long lowestOnBitForLevel(int level) {
-    return 1L << (2 * (MAX_LEVEL - level));
+    return S2CellIds.lowestOnBitForLevel(level);
   }
 
 
-  /**
-   * Return the i- or j-index of the leaf cell containing the given s- or
-   * t-value.
-   */
-  private static int stToIJ(double s) {
-    // Converting from floating-point to integers via static_cast is very slow
-    // on Intel processors because it requires changing the rounding mode.
-    // Rounding to the nearest integer using FastIntRound() is much faster.
-
-    final int m = MAX_SIZE / 2; // scaling multiplier
-    return (int) Math
-      .max(0, Math.min(2 * m - 1, Math.round(m * s + (m - 0.5))));
-  }
-
   /**
    * Convert (face, si, ti) coordinates (see s2.h) to a direction vector (not
    * necessarily unit length).
@@ -842,43 +633,13 @@ public final strictfp class S2CellId implements Comparable<S2CellId> {
     return S2Projections.faceUvToXyz(face, u, v);
   }
 
-  /**
-   * Given (i, j) coordinates that may be out of bounds, normalize them by
-   * returning the corresponding neighbor cell on an adjacent face.
-   */
-  private static S2CellId fromFaceIJWrap(int face, int i, int j) {
-    // Convert i and j to the coordinates of a leaf cell just beyond the
-    // boundary of this face. This prevents 32-bit overflow in the case
-    // of finding the neighbors of a face cell, and also means that we
-    // don't need to worry about the distinction between (s,t) and (u,v).
-    i = Math.max(-1, Math.min(MAX_SIZE, i));
-    j = Math.max(-1, Math.min(MAX_SIZE, j));
-
-    // Find the (s,t) coordinates corresponding to (i,j). At least one
-    // of these coordinates will be just outside the range [0, 1].
-    final double kScale = 1.0 / MAX_SIZE;
-    double s = kScale * ((i << 1) + 1 - MAX_SIZE);
-    double t = kScale * ((j << 1) + 1 - MAX_SIZE);
-
-    // Find the leaf cell coordinates on the adjacent face, and convert
-    // them to a cell id at the appropriate level.
-    S2Point p = S2Projections.faceUvToXyz(face, s, t);
-    face = S2Projections.xyzToFace(p);
-    R2Vector st = S2Projections.validFaceXyzToUv(face, p);
-    return fromFaceIJ(face, stToIJ(st.x()), stToIJ(st.y()));
-  }
-
   /**
    * Public helper function that calls FromFaceIJ if sameFace is true, or
    * FromFaceIJWrap if sameFace is false.
    */
   public static S2CellId fromFaceIJSame(int face, int i, int j,
       boolean sameFace) {
-    if (sameFace) {
-      return S2CellId.fromFaceIJ(face, i, j);
-    } else {
-      return S2CellId.fromFaceIJWrap(face, i, j);
-    }
+    return new S2CellId(S2CellIds.fromFaceIJSame(face, i, j, sameFace));
   }
 
   @Override
@@ -932,27 +693,6 @@ public final strictfp class S2CellId implements Comparable<S2CellId> {
       + level() + ")";
   }
 
-  private static void initLookupCell(int level, int i, int j,
-      int origOrientation, int pos, int orientation) {
-    if (level == LOOKUP_BITS) {
-      int ij = (i << LOOKUP_BITS) + j;
-      LOOKUP_POS[(ij << 2) + origOrientation] = (pos << 2) + orientation;
-      LOOKUP_IJ[(pos << 2) + origOrientation] = (ij << 2) + orientation;
-    } else {
-      level++;
-      i <<= 1;
-      j <<= 1;
-      pos <<= 2;
-      // Initialize each sub-cell recursively.
-      for (int subPos = 0; subPos < 4; subPos++) {
-        int ij = S2.posToIJ(orientation, subPos);
-        int orientationMask = S2.posToOrientation(subPos);
-        initLookupCell(level, i + (ij >>> 1), j + (ij & 1), origOrientation,
-            pos + subPos, orientation ^ orientationMask);
-      }
-    }
-  }
-
   @Override
   public int compareTo(S2CellId that) {
     return unsignedLongLessThan(this.id, that.id) ? -1 :
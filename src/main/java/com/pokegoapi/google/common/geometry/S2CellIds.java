@@ -0,0 +1,561 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.pokegoapi.google.common.geometry;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Static versions of the {@link S2CellId} operations that work on raw 64-bit
+ * cell ids, so cell math does not allocate. Every method returns exactly what
+ * the corresponding {@link S2CellId} method returns, and {@link S2CellId}
+ * delegates to this class.
+ *
+ * Methods that produce (i, j) coordinates return them packed into a single
+ * long, see {@link #toIJOrientation(long)}; the face is given by
+ * {@link #face(long)}.
+ */
+public final strictfp class S2CellIds {
+
+  public static final int FACE_BITS = S2CellId.FACE_BITS;
+  public static final int NUM_FACES = S2CellId.NUM_FACES;
+  public static final int MAX_LEVEL = S2CellId.MAX_LEVEL;
+  public static final int POS_BITS = S2CellId.POS_BITS;
+  public static final int MAX_SIZE = S2CellId.MAX_SIZE;
+
+  /** The invalid cell id, see {@link S2CellId#none()}. */
+  public static final long NONE = 0;
+
+  /** An invalid cell id larger than any valid cell id. */
+  public static final long SENTINEL = -1L;
+
+  // See S2CellId for a description of the lookup tables.
+  private static final int LOOKUP_BITS = 4;
+  private static final int SWAP_MASK = 0x01;
+  private static final int INVERT_MASK = 0x02;
+
+  private static final int[] LOOKUP_POS = new int[1 << (2 * LOOKUP_BITS + 2)];
+  private static final int[] LOOKUP_IJ = new int[1 << (2 * LOOKUP_BITS + 2)];
+
+  private static final long WRAP_OFFSET = (long) (NUM_FACES) << POS_BITS;
+
+  // Layout of the values returned by toIJOrientation().
+  private static final int IJ_BITS = MAX_LEVEL;
+  private static final long IJ_MASK = (1L << IJ_BITS) - 1;
+
+  // Number of points converted per pass of the batch conversions, small
+  // enough for the scratch arrays to stay in the L1 cache.
+  private static final int BATCH_CHUNK = 256;
+
+  // Minimum number of points converted by one task of the parallel batch
+  // conversion.
+  private static final int PARALLEL_BATCH_SIZE = 1 << 14;
+
+  static {
+    initLookupCell(0, 0, 0, 0, 0, 0);
+    initLookupCell(0, 0, 0, SWAP_MASK, 0, SWAP_MASK);
+    initLookupCell(0, 0, 0, INVERT_MASK, 0, INVERT_MASK);
+    initLookupCell(0, 0, 0, SWAP_MASK | INVERT_MASK, 0, SWAP_MASK | INVERT_MASK);
+  }
+
+  private S2CellIds() {
+  }
+
+  /** Which cube face the cell belongs to, in the range 0..5. */
+  public static int face(long id) {
+    return (int) (id >>> POS_BITS);
+  }
+
+  /** The position of the cell center along the Hilbert curve over its face. */
+  public static long pos(long id) {
+    return id & (-1L >>> FACE_BITS);
+  }
+
+  /** Return the subdivision level of the cell (range 0..MAX_LEVEL). */
+  public static int level(long id) {
+    // Fast path for leaf cells.
+    if (isLeaf(id)) {
+      return MAX_LEVEL;
+    }
+    int x = (int) id;
+    int level = -1;
+    if (x != 0) {
+      level += 16;
+    } else {
+      x = (int) (id >>> 32);
+    }
+    // We only need to look at even-numbered bits to determine the
+    // level of a valid cell id.
+    x &= -x; // Get lowest bit.
+    if ((x & 0x00005555) != 0) {
+      level += 8;
+    }
+    if ((x & 0x00550055) != 0) {
+      level += 4;
+    }
+    if ((x & 0x05050505) != 0) {
+      level += 2;
+    }
+    if ((x & 0x11111111) != 0) {
+      level += 1;
+    }
+    return level;
+  }
+
+  /** Return true if the id represents a valid cell. */
+  public static boolean isValid(long id) {
+    return face(id) < NUM_FACES && ((lowestOnBit(id) & (0x1555555555555555L)) != 0);
+  }
+
+  /** Return true if this is a leaf cell. */
+  public static boolean isLeaf(long id) {
+    return ((int) id & 1) != 0;
+  }
+
+  /** Return true if this is a top-level face cell. */
+  public static boolean isFace(long id) {
+    return (id & (lowestOnBitForLevel(0) - 1)) == 0;
+  }
+
+  /**
+   * Return the child position (0..3) of the cell's ancestor at the given level,
+   * relative to its parent.
+   */
+  public static int childPosition(long id, int level) {
+    return (int) (id >>> (2 * (MAX_LEVEL - level) + 1)) & 3;
+  }
+
+  /** Return the lowest-numbered bit that is on for the cell. */
+  public static long lowestOnBit(long id) {
+    return id & -id;
+  }
+
+  /** Return the lowest-numbered bit that is on for cells at the given level. */
+  public static long lowestOnBitForLevel(int level) {
+    return 1L << (2 * (MAX_LEVEL - level));
+  }
+
+  /** The first leaf cell contained within the cell. */
+  public static long rangeMin(long id) {
+    return id - (lowestOnBit(id) - 1);
+  }
+
+  /** The last leaf cell contained within the cell. */
+  public static long rangeMax(long id) {
+    return id + (lowestOnBit(id) - 1);
+  }
+
+  /** Return true if the cell "other" is contained within the cell "id". */
+  public static boolean contains(long id, long other) {
+    return lessOrEquals(rangeMin(id), other) && lessOrEquals(other, rangeMax(id));
+  }
+
+  /** Return true if the two cells intersect. */
+  public static boolean intersects(long id, long other) {
+    return lessOrEquals(rangeMin(other), rangeMax(id)) && lessOrEquals(rangeMin(id), rangeMax(other));
+  }
+
+  /** Return the cell at the previous level. */
+  public static long parent(long id) {
+    long newLsb = lowestOnBit(id) << 2;
+    return (id & -newLsb) | newLsb;
+  }
+
+  /**
+   * Return the cell at the given level (which must be less than or equal to the
+   * current level).
+   */
+  public static long parent(long id, int level) {
+    long newLsb = lowestOnBitForLevel(level);
+    return (id & -newLsb) | newLsb;
+  }
+
+  public static long childBegin(long id) {
+    long oldLsb = lowestOnBit(id);
+    return id - oldLsb + (oldLsb >>> 2);
+  }
+
+  public static long childBegin(long id, int level) {
+    return id - lowestOnBit(id) + lowestOnBitForLevel(level);
+  }
+
+  public static long childEnd(long id) {
+    long oldLsb = lowestOnBit(id);
+    return id + oldLsb + (oldLsb >>> 2);
+  }
+
+  public static long childEnd(long id, int level) {
+    return id + lowestOnBit(id) + lowestOnBitForLevel(level);
+  }
+
+  /** Return the next cell at the same level along the Hilbert curve. */
+  public static long next(long id) {
+    return id + (lowestOnBit(id) << 1);
+  }
+
+  /** Return the previous cell at the same level along the Hilbert curve. */
+  public static long prev(long id) {
+    return id - (lowestOnBit(id) << 1);
+  }
+
+  /** Like next(), but wraps around from the last face to the first. */
+  public static long nextWrap(long id) {
+    long n = next(id);
+    if (lessThan(n, WRAP_OFFSET)) {
+      return n;
+    }
+    return n - WRAP_OFFSET;
+  }
+
+  /** Like prev(), but wraps around from the first face to the last. */
+  public static long prevWrap(long id) {
+    long p = prev(id);
+    if (p < WRAP_OFFSET) {
+      return p;
+    }
+    return p + WRAP_OFFSET;
+  }
+
+  public static long begin(int level) {
+    return childBegin(fromFacePosLevel(0, 0, 0), level);
+  }
+
+  public static long end(int level) {
+    return childEnd(fromFacePosLevel(5, 0, 0), level);
+  }
+
+  /** Return true if a &lt; b, when both ids are treated as unsigned. */
+  public static boolean lessThan(long a, long b) {
+    return (a + Long.MIN_VALUE) < (b + Long.MIN_VALUE);
+  }
+
+  /** Return true if a &lt;= b, when both ids are treated as unsigned. */
+  public static boolean lessOrEquals(long a, long b) {
+    return (a + Long.MIN_VALUE) <= (b + Long.MIN_VALUE);
+  }
+
+  /** Compares two ids in Hilbert curve order, i.e. treated as unsigned. */
+  public static int compare(long a, long b) {
+    long x = a + Long.MIN_VALUE;
+    long y = b + Long.MIN_VALUE;
+    return x < y ? -1 : (x == y ? 0 : 1);
+  }
+
+  /**
+   * Return a cell given its face, 61-bit Hilbert curve position within that
+   * face and level.
+   */
+  public static long fromFacePosLevel(int face, long pos, int level) {
+    return parent((((long) face) << POS_BITS) + (pos | 1), level);
+  }
+
+  /** Return the leaf cell containing the given point. */
+  public static long fromPoint(S2Point p) {
+    return fromXYZ(p.x, p.y, p.z);
+  }
+
+  /**
+   * Return the leaf cell containing the given direction vector (not necessarily
+   * unit length).
+   */
+  public static long fromXYZ(double x, double y, double z) {
+    return fromXYZ(x, y, z, true);
+  }
+
+  /**
+   * Like fromXYZ(x, y, z), but uses the (u, v) face coordinates directly as
+   * (s, t) coordinates unless "project" is set, as fromFaceIJWrap does.
+   */
+  private static long fromXYZ(double x, double y, double z, boolean project) {
+    int face = S2Points.xyzToFace(x, y, z);
+    double pu = S2Points.validFaceXyzToU(face, x, y, z);
+    double pv = S2Points.validFaceXyzToV(face, x, y, z);
+    if (project) {
+      pu = S2Projections.uvToST(pu);
+      pv = S2Projections.uvToST(pv);
+    }
+    return fromFaceIJ(face, stToIJ(pu), stToIJ(pv));
+  }
+
+  /** Return the leaf cell containing the given latitude and longitude. */
+  public static long fromLatLngDegrees(double latDegrees, double lngDegrees) {
+    double phi = latDegrees * (Math.PI / 180);
+    double theta = lngDegrees * (Math.PI / 180);
+    double cosphi = Math.cos(phi);
+    return fromXYZ(Math.cos(theta) * cosphi, Math.sin(theta) * cosphi, Math.sin(phi));
+  }
+
+  /**
+   * Stores the cells at the given level containing the points
+   * (lat[i], lng[i]), in degrees, into out[i]. Every value is the one returned
+   * by {@code S2CellId.fromLatLng(S2LatLng.fromDegrees(lat[i], lng[i])).parent(level)},
+   * but nothing is allocated per point.
+   */
+  public static void fromLatLngDegrees(double[] lat, double[] lng, int level, long[] out) {
+    checkBatch(lat, lng, 0, lat.length, out);
+    fromLatLngDegrees(lat, lng, 0, lat.length, level, out);
+  }
+
+  /**
+   * Like {@link #fromLatLngDegrees(double[], double[], int, long[])}, but only
+   * converts the points at indices [from, to).
+   */
+  public static void fromLatLngDegrees(
+      double[] lat, double[] lng, int from, int to, int level, long[] out) {
+    checkBatch(lat, lng, from, to, out);
+    double[] x = new double[BATCH_CHUNK];
+    double[] y = new double[BATCH_CHUNK];
+    double[] z = new double[BATCH_CHUNK];
+    for (int start = from; start < to; start += BATCH_CHUNK) {
+      int count = Math.min(BATCH_CHUNK, to - start);
+      // The trigonometry runs in its own loop over flat arrays, without the
+      // branches of the face projection, so the JIT can unroll and pipeline
+      // it.
+      for (int k = 0; k < count; ++k) {
+        double phi = lat[start + k] * (Math.PI / 180);
+        double theta = lng[start + k] * (Math.PI / 180);
+        double cosphi = Math.cos(phi);
+        x[k] = Math.cos(theta) * cosphi;
+        y[k] = Math.sin(theta) * cosphi;
+        z[k] = Math.sin(phi);
+      }
+      for (int k = 0; k < count; ++k) {
+        out[start + k] = parent(fromXYZ(x[k], y[k], z[k], true), level);
+      }
+    }
+  }
+
+  /**
+   * Like {@link #fromLatLngDegrees(double[], double[], int, long[])}, but
+   * splits large inputs into ranges that are converted concurrently on the
+   * given pool.
+   */
+  public static void fromLatLngDegreesParallel(
+      double[] lat, double[] lng, int level, long[] out, ForkJoinPool pool) {
+    checkBatch(lat, lng, 0, lat.length, out);
+    if (lat.length <= PARALLEL_BATCH_SIZE) {
+      fromLatLngDegrees(lat, lng, 0, lat.length, level, out);
+      return;
+    }
+    pool.invoke(new LatLngBatchTask(lat, lng, 0, lat.length, level, out));
+  }
+
+  private static void checkBatch(double[] lat, double[] lng, int from, int to, long[] out) {
+    if (lat.length != lng.length) {
+      throw new IllegalArgumentException(
+          "lat and lng lengths differ: " + lat.length + " != " + lng.length);
+    }
+    if (from < 0 || from > to || to > lat.length || to > out.length) {
+      throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ") of "
+          + lat.length + " points into " + out.length + " ids");
+    }
+  }
+
+  /** Converts a range of points, splitting it in halves while it is large. */
+  private static final class LatLngBatchTask extends RecursiveAction {
+    private final double[] lat;
+    private final double[] lng;
+    private final int from;
+    private final int to;
+    private final int level;
+    private final long[] out;
+
+    LatLngBatchTask(double[] lat, double[] lng, int from, int to, int level, long[] out) {
+      this.lat = lat;
+      this.lng = lng;
+      this.from = from;
+      this.to = to;
+      this.level = level;
+      this.out = out;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= PARALLEL_BATCH_SIZE) {
+        fromLatLngDegrees(lat, lng, from, to, level, out);
+        return;
+      }
+      int mid = (from + to) >>> 1;
+      invokeAll(new LatLngBatchTask(lat, lng, from, mid, level, out),
+          new LatLngBatchTask(lat, lng, mid, to, level, out));
+    }
+  }
+
+  /**
+   * Return a leaf cell given its cube face (range 0..5) and i- and
+   * j-coordinates.
+   */
+  public static long fromFaceIJ(int face, int i, int j) {
+    // The result is computed as two 32-bit halves that are shifted one bit to
+    // the left when they are combined, see S2CellId.
+    long n0 = 0;
+    long n1 = face << (POS_BITS - 33);
+
+    // Alternating faces have opposite Hilbert curve orientations.
+    int bits = face & SWAP_MASK;
+    final int mask = (1 << LOOKUP_BITS) - 1;
+
+    // Each iteration maps 4 bits of "i" and "j" into 8 bits of the Hilbert
+    // curve position.
+    for (int k = 7; k >= 0; --k) {
+      bits += ((i >> (k * LOOKUP_BITS)) & mask) << (LOOKUP_BITS + 2);
+      bits += ((j >> (k * LOOKUP_BITS)) & mask) << 2;
+      bits = LOOKUP_POS[bits];
+      long value = ((long) bits >> 2) << ((k & 3) * 2 * LOOKUP_BITS);
+      if (k >= 4) {
+        n1 |= value;
+      } else {
+        n0 |= value;
+      }
+      bits &= SWAP_MASK | INVERT_MASK;
+    }
+    return (((n1 << 32) + n0) << 1) + 1;
+  }
+
+  /**
+   * Calls fromFaceIJ if sameFace is true, otherwise returns the leaf cell on
+   * the adjacent face for (i, j) coordinates that may be out of bounds.
+   */
+  public static long fromFaceIJSame(int face, int i, int j, boolean sameFace) {
+    return sameFace ? fromFaceIJ(face, i, j) : fromFaceIJWrap(face, i, j);
+  }
+
+  /**
+   * Given (i, j) coordinates that may be out of bounds, normalize them by
+   * returning the corresponding neighbor cell on an adjacent face.
+   */
+  public static long fromFaceIJWrap(int face, int i, int j) {
+    // Convert i and j to the coordinates of a leaf cell just beyond the
+    // boundary of this face.
+    i = Math.max(-1, Math.min(MAX_SIZE, i));
+    j = Math.max(-1, Math.min(MAX_SIZE, j));
+
+    final double kScale = 1.0 / MAX_SIZE;
+    double s = kScale * ((i << 1) + 1 - MAX_SIZE);
+    double t = kScale * ((j << 1) + 1 - MAX_SIZE);
+
+    // Find the leaf cell on the adjacent face through the (x, y, z) point.
+    switch (face) {
+      case 0:
+        return fromXYZ(1, s, t, false);
+      case 1:
+        return fromXYZ(-s, 1, t, false);
+      case 2:
+        return fromXYZ(-s, -t, 1, false);
+      case 3:
+        return fromXYZ(-1, -t, -s, false);
+      case 4:
+        return fromXYZ(t, -1, -s, false);
+      default:
+        return fromXYZ(t, s, -1, false);
+    }
+  }
+
+  /**
+   * Return the (i, j) coordinates and Hilbert curve orientation of the cell,
+   * packed into one long. Use {@link #unpackI}, {@link #unpackJ} and
+   * {@link #unpackOrientation} to read them, the face is {@link #face(long)}.
+   * As with {@link S2CellId#toFaceIJOrientation}, for non-leaf cells (i, j)
+   * is a leaf cell adjacent to the cell center.
+   */
+  public static long toIJOrientation(long id) {
+    int face = face(id);
+    int bits = face & SWAP_MASK;
+    int i = 0;
+    int j = 0;
+
+    // Each iteration maps 8 bits of the Hilbert curve position into
+    // 4 bits of "i" and "j". On the first iteration we need to be careful to
+    // clear out the bits representing the cube face.
+    for (int k = 7; k >= 0; --k) {
+      final int nbits = (k == 7) ? (MAX_LEVEL - 7 * LOOKUP_BITS) : LOOKUP_BITS;
+      bits += (((int) (id >>> (k * 2 * LOOKUP_BITS + 1))) & ((1 << (2 * nbits)) - 1)) << 2;
+      bits = LOOKUP_IJ[bits];
+      i += (bits >> (LOOKUP_BITS + 2)) << (k * LOOKUP_BITS);
+      j += ((bits >> 2) & ((1 << LOOKUP_BITS) - 1)) << (k * LOOKUP_BITS);
+      bits &= SWAP_MASK | INVERT_MASK;
+    }
+
+    // Each "00" in the suffix of a non-leaf position reverses the swap bit,
+    // see S2CellId.toFaceIJOrientation.
+    if ((lowestOnBit(id) & 0x1111111111111110L) != 0) {
+      bits ^= S2.SWAP_MASK;
+    }
+    return i | ((long) j << IJ_BITS) | ((long) bits << (2 * IJ_BITS));
+  }
+
+  /** The i-coordinate of a value returned by {@link #toIJOrientation}. */
+  public static int unpackI(long ijOrientation) {
+    return (int) (ijOrientation & IJ_MASK);
+  }
+
+  /** The j-coordinate of a value returned by {@link #toIJOrientation}. */
+  public static int unpackJ(long ijOrientation) {
+    return (int) ((ijOrientation >>> IJ_BITS) & IJ_MASK);
+  }
+
+  /** The orientation of a value returned by {@link #toIJOrientation}. */
+  public static int unpackOrientation(long ijOrientation) {
+    return (int) (ijOrientation >>> (2 * IJ_BITS));
+  }
+
+  /**
+   * Stores the four cells adjacent across the cell's edges in the S, E, N and W
+   * directions into neighbors[0..3].
+   */
+  public static void getEdgeNeighbors(long id, long[] neighbors) {
+    int level = level(id);
+    int size = 1 << (MAX_LEVEL - level);
+    int face = face(id);
+    long ij = toIJOrientation(id);
+    int i = unpackI(ij);
+    int j = unpackJ(ij);
+
+    neighbors[0] = parent(fromFaceIJSame(face, i, j - size, j - size >= 0), level);
+    neighbors[1] = parent(fromFaceIJSame(face, i + size, j, i + size < MAX_SIZE), level);
+    neighbors[2] = parent(fromFaceIJSame(face, i, j + size, j + size < MAX_SIZE), level);
+    neighbors[3] = parent(fromFaceIJSame(face, i - size, j, i - size >= 0), level);
+  }
+
+  /**
+   * Return the i- or j-index of the leaf cell containing the given s- or
+   * t-value.
+   */
+  static int stToIJ(double s) {
+    final int m = MAX_SIZE / 2; // scaling multiplier
+    return (int) Math.max(0, Math.min(2 * m - 1, Math.round(m * s + (m - 0.5))));
+  }
+
+  private static void initLookupCell(int level, int i, int j,
+      int origOrientation, int pos, int orientation) {
+    if (level == LOOKUP_BITS) {
+      int ij = (i << LOOKUP_BITS) + j;
+      LOOKUP_POS[(ij << 2) + origOrientation] = (pos << 2) + orientation;
+      LOOKUP_IJ[(pos << 2) + origOrientation] = (ij << 2) + orientation;
+    } else {
+      level++;
+      i <<= 1;
+      j <<= 1;
+      pos <<= 2;
+      // Initialize each sub-cell recursively.
+      for (int subPos = 0; subPos < 4; subPos++) {
+        int ij = S2.posToIJ(orientation, subPos);
+        int orientationMask = S2.posToOrientation(subPos);
+        initLookupCell(level, i + (ij >>> 1), j + (ij & 1), origOrientation,
+            pos + subPos, orientation ^ orientationMask);
+      }
+    }
+  }
+}
@@ -119,8 +119,9 @@ public strictfp class S2CellUnion implements S2Region, Iterable<S2CellId> {
 
     output.clear();
     output.ensureCapacity(size());
-    for (S2CellId id : this) {
-      int level = id.level();
+    for (S2CellId cell : this) {
+      long id = cell.id();
+      int level = S2CellIds.level(id);
       int newLevel = Math.max(minLevel, level);
       if (levelMod > 1) {
         // Round up so that (new_level - min_level) is a multiple of level_mod.
@@ -129,11 +130,11 @@ public strictfp class S2CellUnion implements S2Region, Iterable<S2CellId> {
         newLevel = Math.min(S2CellId.MAX_LEVEL, newLevel);
       }
       if (newLevel == level) {
-        output.add(id);
+        output.add(cell);
       } else {
-        S2CellId end = id.childEnd(newLevel);
-        for (id = id.childBegin(newLevel); !id.equals(end); id = id.next()) {
-          output.add(id);
+        long end = S2CellIds.childEnd(id, newLevel);
+        for (id = S2CellIds.childBegin(id, newLevel); id != end; id = S2CellIds.next(id)) {
+          output.add(new S2CellId(id));
         }
       }
     }
@@ -169,10 +170,10 @@ public strictfp class S2CellUnion implements S2Region, Iterable<S2CellId> {
     if (pos < 0) {
       pos = -pos - 1;
     }
-    if (pos < cellIds.size() && cellIds.get(pos).rangeMin().lessOrEquals(id)) {
+    if (pos < cellIds.size() && S2CellIds.lessOrEquals(S2CellIds.rangeMin(cellIds.get(pos).id()), id.id())) {
       return true;
     }
-    return pos != 0 && cellIds.get(pos - 1).rangeMax().greaterOrEquals(id);
+    return pos != 0 && S2CellIds.lessOrEquals(id.id(), S2CellIds.rangeMax(cellIds.get(pos - 1).id()));
   }
 
   /**
@@ -189,10 +190,12 @@ public strictfp class S2CellUnion implements S2Region, Iterable<S2CellId> {
     }
 
 
-    if (pos < cellIds.size() && cellIds.get(pos).rangeMin().lessOrEquals(id.rangeMax())) {
+    if (pos < cellIds.size()
+        && S2CellIds.lessOrEquals(S2CellIds.rangeMin(cellIds.get(pos).id()), S2CellIds.rangeMax(id.id()))) {
       return true;
     }
-    return pos != 0 && cellIds.get(pos - 1).rangeMax().greaterOrEquals(id.rangeMin());
+    return pos != 0
+        && S2CellIds.lessOrEquals(S2CellIds.rangeMin(id.id()), S2CellIds.rangeMax(cellIds.get(pos - 1).id()));
   }
 
   public boolean contains(S2CellUnion that) {
@@ -567,12 +570,12 @@ public strictfp class S2CellUnion implements S2Region, Iterable<S2CellId> {
     for (S2CellId id : this) {
       int size = output.size();
       // Check whether this cell is contained by the previous cell.
-      if (!output.isEmpty() && output.get(size - 1).contains(id)) {
+      if (!output.isEmpty() && S2CellIds.contains(output.get(size - 1).id(), id.id())) {
         continue;
       }
 
       // Discard any previous cells contained by this cell.
-      while (!output.isEmpty() && id.contains(output.get(output.size() - 1))) {
+      while (!output.isEmpty() && S2CellIds.contains(id.id(), output.get(output.size() - 1).id())) {
         output.remove(output.size() - 1);
       }
 
@@ -591,12 +594,12 @@ public strictfp class S2CellUnion implements S2Region, Iterable<S2CellId> {
         // mask that blocks out the two bits that encode the child position of
         // "id" with respect to its parent, then check that the other three
         // children all agree with "mask.
-        long mask = id.lowestOnBit() << 1;
+        long mask = S2CellIds.lowestOnBit(id.id()) << 1;
         mask = ~(mask + (mask << 1));
         long idMasked = (id.id() & mask);
         if ((output.get(size - 3).id() & mask) != idMasked
             || (output.get(size - 2).id() & mask) != idMasked
-            || (output.get(size - 1).id() & mask) != idMasked || id.isFace()) {
+            || (output.get(size - 1).id() & mask) != idMasked || S2CellIds.isFace(id.id())) {
           break;
         }
 
@@ -604,7 +607,7 @@ public strictfp class S2CellUnion implements S2Region, Iterable<S2CellId> {
         output.remove(size - 1);
         output.remove(size - 2);
         output.remove(size - 3);
-        id = id.parent();
+        id = new S2CellId(S2CellIds.parent(id.id()));
       }
       output.add(id);
     }
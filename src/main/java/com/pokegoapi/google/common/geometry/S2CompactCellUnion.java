@@ -0,0 +1,425 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.pokegoapi.google.common.geometry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An immutable, normalized cell union backed by a sorted long[] of cell ids.
+ * It supports the same queries as {@link S2CellUnion} but stores 8 bytes per
+ * cell instead of one object per cell, so unions of tens of thousands of cells
+ * stay compact and binary searches do not chase pointers.
+ *
+ * Unions are created with {@link #fromIds(long[])}, which normalizes and then
+ * uses the given array without copying it.
+ */
+public final strictfp class S2CompactCellUnion implements S2Region {
+
+  private static final S2CompactCellUnion EMPTY = new S2CompactCellUnion(new long[0], 0);
+
+  private final long[] ids;
+  private final int size;
+
+  private S2CompactCellUnion(long[] ids, int size) {
+    this.ids = ids;
+    this.size = size;
+  }
+
+  /** Returns the empty union. */
+  public static S2CompactCellUnion empty() {
+    return EMPTY;
+  }
+
+  /**
+   * Normalizes the given cell ids in place and returns a union backed by the
+   * array. The array must not be modified afterwards.
+   */
+  public static S2CompactCellUnion fromIds(long[] ids) {
+    return fromIds(ids, ids.length);
+  }
+
+  /**
+   * Normalizes the first "length" cell ids of the array in place and returns a
+   * union backed by the array. The array must not be modified afterwards.
+   */
+  public static S2CompactCellUnion fromIds(long[] ids, int length) {
+    sortUnsigned(ids, length);
+    return new S2CompactCellUnion(ids, normalizeSorted(ids, length));
+  }
+
+  /** Returns a union of the given cell ids. */
+  public static S2CompactCellUnion fromIds(List<Long> ids) {
+    long[] array = new long[ids.size()];
+    for (int i = 0; i < array.length; i++) {
+      array[i] = ids.get(i);
+    }
+    return fromIds(array);
+  }
+
+  /** Returns a union with the cells of a normalized {@link S2CellUnion}. */
+  public static S2CompactCellUnion fromCellUnion(S2CellUnion union) {
+    long[] array = new long[union.size()];
+    for (int i = 0; i < array.length; i++) {
+      array[i] = union.cellId(i).id();
+    }
+    return new S2CompactCellUnion(array, array.length);
+  }
+
+  /** Returns an {@link S2CellUnion} with the cells of this union. */
+  public S2CellUnion toCellUnion() {
+    ArrayList<S2CellId> cellIds = new ArrayList<S2CellId>(size);
+    for (int i = 0; i < size; i++) {
+      cellIds.add(new S2CellId(ids[i]));
+    }
+    S2CellUnion union = new S2CellUnion();
+    union.initRawCellIds(cellIds);
+    return union;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /** Returns the i-th cell id in increasing order. */
+  public long id(int i) {
+    if (i >= size) {
+      throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+    }
+    return ids[i];
+  }
+
+  /** Returns a copy of the cell ids in increasing order. */
+  public long[] toIdArray() {
+    return Arrays.copyOf(ids, size);
+  }
+
+  /**
+   * Return true if the union contains the given cell id. This is a fast
+   * operation (logarithmic in the size of the union).
+   */
+  public boolean contains(long id) {
+    int pos = lowerBound(ids, 0, size, id);
+    if (pos < size && S2CellIds.lessOrEquals(S2CellIds.rangeMin(ids[pos]), id)) {
+      return true;
+    }
+    return pos != 0 && S2CellIds.lessOrEquals(id, S2CellIds.rangeMax(ids[pos - 1]));
+  }
+
+  /**
+   * Return true if the union intersects the given cell id. This is a fast
+   * operation (logarithmic in the size of the union).
+   */
+  public boolean intersects(long id) {
+    int pos = lowerBound(ids, 0, size, id);
+    if (pos < size && S2CellIds.lessOrEquals(S2CellIds.rangeMin(ids[pos]), S2CellIds.rangeMax(id))) {
+      return true;
+    }
+    return pos != 0 && S2CellIds.lessOrEquals(S2CellIds.rangeMin(id), S2CellIds.rangeMax(ids[pos - 1]));
+  }
+
+  public boolean contains(S2CellId id) {
+    return contains(id.id());
+  }
+
+  public boolean intersects(S2CellId id) {
+    return intersects(id.id());
+  }
+
+  /** The point does not need to be normalized. */
+  public boolean contains(S2Point p) {
+    return contains(S2CellIds.fromPoint(p));
+  }
+
+  @Override
+  public boolean contains(S2Cell cell) {
+    return contains(cell.id().id());
+  }
+
+  @Override
+  public boolean mayIntersect(S2Cell cell) {
+    return intersects(cell.id().id());
+  }
+
+  /** Return true if this union contains every cell of the given union. */
+  public boolean contains(S2CompactCellUnion that) {
+    // Both unions are sorted, so the search for the next cell of "that" can
+    // start where the previous one ended.
+    int pos = 0;
+    for (int i = 0; i < that.size; i++) {
+      long id = that.ids[i];
+      pos = lowerBound(ids, pos, size, id);
+      boolean contained = (pos < size && S2CellIds.lessOrEquals(S2CellIds.rangeMin(ids[pos]), id))
+          || (pos != 0 && S2CellIds.lessOrEquals(id, S2CellIds.rangeMax(ids[pos - 1])));
+      if (!contained) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Return true if this union intersects the given union. */
+  public boolean intersects(S2CompactCellUnion that) {
+    int i = 0;
+    int j = 0;
+    while (i < size && j < that.size) {
+      long a = ids[i];
+      long b = that.ids[j];
+      if (S2CellIds.lessOrEquals(S2CellIds.rangeMin(b), S2CellIds.rangeMax(a))
+          && S2CellIds.lessOrEquals(S2CellIds.rangeMin(a), S2CellIds.rangeMax(b))) {
+        return true;
+      }
+      // Advance the cell that ends first.
+      if (S2CellIds.lessThan(S2CellIds.rangeMax(a), S2CellIds.rangeMax(b))) {
+        i++;
+      } else {
+        j++;
+      }
+    }
+    return false;
+  }
+
+  /** Returns the union of this and the given union. */
+  public S2CompactCellUnion union(S2CompactCellUnion that) {
+    if (that.size == 0) {
+      return this;
+    }
+    if (size == 0) {
+      return that;
+    }
+    long[] merged = new long[size + that.size];
+    int i = 0;
+    int j = 0;
+    int k = 0;
+    while (i < size && j < that.size) {
+      merged[k++] = S2CellIds.lessThan(that.ids[j], ids[i]) ? that.ids[j++] : ids[i++];
+    }
+    while (i < size) {
+      merged[k++] = ids[i++];
+    }
+    while (j < that.size) {
+      merged[k++] = that.ids[j++];
+    }
+    return new S2CompactCellUnion(merged, normalizeSorted(merged, k));
+  }
+
+  /** Returns the part of this union within the given cell. */
+  public S2CompactCellUnion intersection(long id) {
+    if (contains(id)) {
+      return new S2CompactCellUnion(new long[] {id}, 1);
+    }
+    int from = lowerBound(ids, 0, size, S2CellIds.rangeMin(id));
+    int to = lowerBound(ids, from, size, S2CellIds.rangeMax(id));
+    if (to < size && ids[to] == S2CellIds.rangeMax(id)) {
+      to++;
+    }
+    return from == to ? EMPTY : new S2CompactCellUnion(Arrays.copyOfRange(ids, from, to), to - from);
+  }
+
+  /** Returns the intersection of this and the given union. */
+  public S2CompactCellUnion intersection(S2CompactCellUnion that) {
+    // Same algorithm as S2CellUnion.getIntersection, which uses binary search
+    // to skip over sections of both inputs.
+    long[] x = ids;
+    long[] y = that.ids;
+    int xSize = size;
+    int ySize = that.size;
+    long[] result = new long[Math.min(xSize + ySize, 16)];
+    int k = 0;
+    int i = 0;
+    int j = 0;
+    while (i < xSize && j < ySize) {
+      long imin = S2CellIds.rangeMin(x[i]);
+      long jmin = S2CellIds.rangeMin(y[j]);
+      long next;
+      if (S2CellIds.lessThan(jmin, imin)) {
+        // Either y[j] contains x[i] or the two cells are disjoint.
+        if (S2CellIds.lessOrEquals(x[i], S2CellIds.rangeMax(y[j]))) {
+          next = x[i++];
+        } else {
+          // Advance "j" to the first cell possibly contained by x[i].
+          j = lowerBound(y, j + 1, ySize, imin);
+          // The previous cell y[j - 1] may now contain x[i].
+          if (S2CellIds.lessOrEquals(x[i], S2CellIds.rangeMax(y[j - 1]))) {
+            --j;
+          }
+          continue;
+        }
+      } else if (S2CellIds.lessThan(imin, jmin)) {
+        // Identical to the code above with "i" and "j" reversed.
+        if (S2CellIds.lessOrEquals(y[j], S2CellIds.rangeMax(x[i]))) {
+          next = y[j++];
+        } else {
+          i = lowerBound(x, i + 1, xSize, jmin);
+          if (S2CellIds.lessOrEquals(y[j], S2CellIds.rangeMax(x[i - 1]))) {
+            --i;
+          }
+          continue;
+        }
+      } else {
+        // "i" and "j" have the same range_min(), so one contains the other.
+        next = S2CellIds.lessThan(x[i], y[j]) ? x[i++] : y[j++];
+      }
+      if (k == result.length) {
+        result = Arrays.copyOf(result, Math.min(xSize + ySize, k * 2));
+      }
+      result[k++] = next;
+    }
+    return k == 0 ? EMPTY : new S2CompactCellUnion(result, k);
+  }
+
+  /** The number of leaf cells covered by the union. */
+  public long leafCellsCovered() {
+    long numLeaves = 0;
+    for (int i = 0; i < size; i++) {
+      int invertedLevel = S2CellId.MAX_LEVEL - S2CellIds.level(ids[i]);
+      numLeaves += (1L << (invertedLevel << 1));
+    }
+    return numLeaves;
+  }
+
+  @Override
+  public S2Cap getCapBound() {
+    // See S2CellUnion.getCapBound().
+    if (size == 0) {
+      return S2Cap.empty();
+    }
+    S2Point centroid = new S2Point(0, 0, 0);
+    for (int i = 0; i < size; i++) {
+      double area = S2Cell.averageArea(S2CellIds.level(ids[i]));
+      centroid = S2Point.add(centroid, S2Point.mul(new S2CellId(ids[i]).toPoint(), area));
+    }
+    if (centroid.equals(new S2Point(0, 0, 0))) {
+      centroid = new S2Point(1, 0, 0);
+    } else {
+      centroid = S2Point.normalize(centroid);
+    }
+    S2Cap cap = S2Cap.fromAxisHeight(centroid, 0);
+    for (int i = 0; i < size; i++) {
+      cap = cap.addCap(new S2Cell(new S2CellId(ids[i])).getCapBound());
+    }
+    return cap;
+  }
+
+  @Override
+  public S2LatLngRect getRectBound() {
+    S2LatLngRect bound = S2LatLngRect.empty();
+    for (int i = 0; i < size; i++) {
+      bound = bound.union(new S2Cell(new S2CellId(ids[i])).getRectBound());
+    }
+    return bound;
+  }
+
+  @Override
+  public boolean equals(Object that) {
+    if (!(that instanceof S2CompactCellUnion)) {
+      return false;
+    }
+    S2CompactCellUnion union = (S2CompactCellUnion) that;
+    if (size != union.size) {
+      return false;
+    }
+    for (int i = 0; i < size; i++) {
+      if (ids[i] != union.ids[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    int value = 17;
+    for (int i = 0; i < size; i++) {
+      value = 37 * value + (int) ((ids[i] >>> 32) + ids[i]);
+    }
+    return value;
+  }
+
+  @Override
+  public String toString() {
+    return "S2CompactCellUnion(size=" + size + ")";
+  }
+
+  /**
+   * Returns the first index in [from, to) whose id is not less than the key,
+   * comparing ids as unsigned values.
+   */
+  static int lowerBound(long[] ids, int from, int to, long key) {
+    int low = from;
+    int high = to;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (S2CellIds.lessThan(ids[mid], key)) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /** Sorts the first "length" ids in unsigned order, in place. */
+  static void sortUnsigned(long[] ids, int length) {
+    for (int i = 0; i < length; i++) {
+      ids[i] += Long.MIN_VALUE;
+    }
+    Arrays.sort(ids, 0, length);
+    for (int i = 0; i < length; i++) {
+      ids[i] -= Long.MIN_VALUE;
+    }
+  }
+
+  /**
+   * Normalizes sorted ids in place, as {@link S2CellUnion#normalize()} does,
+   * and returns the number of remaining ids.
+   */
+  static int normalizeSorted(long[] ids, int length) {
+    // The output is a prefix of the array that never grows past the input
+    // position, so the array can be compacted in place.
+    int out = 0;
+    for (int in = 0; in < length; in++) {
+      long id = ids[in];
+      // Check whether this cell is contained by the previous cell.
+      if (out > 0 && S2CellIds.contains(ids[out - 1], id)) {
+        continue;
+      }
+      // Discard any previous cells contained by this cell.
+      while (out > 0 && S2CellIds.contains(id, ids[out - 1])) {
+        --out;
+      }
+      // Check whether the last 3 elements of the output plus "id" can be
+      // collapsed into a single parent cell.
+      while (out >= 3) {
+        if ((ids[out - 3] ^ ids[out - 2] ^ ids[out - 1]) != id) {
+          break;
+        }
+        long mask = S2CellIds.lowestOnBit(id) << 1;
+        mask = ~(mask + (mask << 1));
+        long idMasked = id & mask;
+        if ((ids[out - 3] & mask) != idMasked || (ids[out - 2] & mask) != idMasked
+            || (ids[out - 1] & mask) != idMasked || S2CellIds.isFace(id)) {
+          break;
+        }
+        // Replace four children by their parent cell.
+        out -= 3;
+        id = S2CellIds.parent(id);
+      }
+      ids[out++] = id;
+    }
+    return out;
+  }
+}
@@ -58,13 +58,12 @@ public strictfp class S2LatLng {
   public static S1Angle latitude(S2Point p) {
     // We use atan2 rather than asin because the input vector is not necessarily
     // unit length, and atan2 is much more accurate than asin near the poles.
-    return S1Angle.radians(
-        Math.atan2(p.get(2), Math.sqrt(p.get(0) * p.get(0) + p.get(1) * p.get(1))));
+    return S1Angle.radians(S2Points.latRadians(p.x, p.y, p.z));
   }
 
   public static S1Angle longitude(S2Point p) {
     // Note that atan2(0, 0) is defined to be zero.
-    return S1Angle.radians(Math.atan2(p.get(1), p.get(0)));
+    return S1Angle.radians(S2Points.lngRadians(p.x, p.y));
   }
 
   /** This is internal to avoid ambiguity about which units are expected. */
@@ -98,7 +97,7 @@ public strictfp class S2LatLng {
    * TODO(dbeaumont): Make this a static factory method (fromPoint() ?).
    */
   public S2LatLng(S2Point p) {
-    this(Math.atan2(p.z, Math.sqrt(p.x * p.x + p.y * p.y)), Math.atan2(p.y, p.x));
+    this(S2Points.latRadians(p.x, p.y, p.z), S2Points.lngRadians(p.x, p.y));
     // The latitude and longitude are already normalized. We use atan2 to
     // compute the latitude because the input vector is not necessarily unit
     // length, and atan2 is much more accurate than asin near the poles.
@@ -187,14 +186,8 @@ public strictfp class S2LatLng {
     // distance that way (which gives about 15 digits of accuracy for all
     // distances).
 
-    double lat1 = lat().radians();
-    double lat2 = o.lat().radians();
-    double lng1 = lng().radians();
-    double lng2 = o.lng().radians();
-    double dlat = Math.sin(0.5 * (lat2 - lat1));
-    double dlng = Math.sin(0.5 * (lng2 - lng1));
-    double x = dlat * dlat + dlng * dlng * Math.cos(lat1) * Math.cos(lat2);
-    return S1Angle.radians(2 * Math.atan2(Math.sqrt(x), Math.sqrt(Math.max(0.0, 1.0 - x))));
+    return S1Angle.radians(
+        S2Points.distanceRadians(latRadians, lngRadians, o.latRadians, o.lngRadians));
     // Return the distance (measured along the surface of the sphere) to the
     // given S2LatLng. This is mathematically equivalent to:
     //
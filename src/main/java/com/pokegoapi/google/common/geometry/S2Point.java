@@ -45,16 +45,16 @@ public strictfp class S2Point implements Comparable<S2Point> {
   }
 
   public double norm2() {
-    return x * x + y * y + z * z;
+    return S2Points.norm2(x, y, z);
   }
 
   public double norm() {
-    return Math.sqrt(norm2());
+    return S2Points.norm(x, y, z);
   }
 
   public static S2Point crossProd(final S2Point p1, final S2Point p2) {
-    return new S2Point(
-        p1.y * p2.z - p1.z * p2.y, p1.z * p2.x - p1.x * p2.z, p1.x * p2.y - p1.y * p2.x);
+    return new S2Point(S2Points.crossProdX(p1.y, p1.z, p2.y, p2.z),
+        S2Points.crossProdY(p1.x, p1.z, p2.x, p2.z), S2Points.crossProdZ(p1.x, p1.y, p2.x, p2.y));
   }
 
   public static S2Point add(final S2Point p1, final S2Point p2) {
@@ -66,7 +66,7 @@ public strictfp class S2Point implements Comparable<S2Point> {
   }
 
   public double dotProd(S2Point that) {
-    return this.x * that.x + this.y * that.y + this.z * that.z;
+    return S2Points.dotProd(x, y, z, that.x, that.y, that.z);
   }
 
   public static S2Point mul(final S2Point p, double m) {
@@ -93,20 +93,7 @@ public strictfp class S2Point implements Comparable<S2Point> {
 
   /** Return the index of the largest component fabs */
   public int largestAbsComponent() {
-    S2Point temp = fabs(this);
-    if (temp.x > temp.y) {
-      if (temp.x > temp.z) {
-        return 0;
-      } else {
-        return 2;
-      }
-    } else {
-      if (temp.y > temp.z) {
-        return 1;
-      } else {
-        return 2;
-      }
-    }
+    return S2Points.largestAbsComponent(x, y, z);
   }
 
   public static S2Point fabs(S2Point p) {
@@ -114,11 +101,7 @@ public strictfp class S2Point implements Comparable<S2Point> {
   }
 
   public static S2Point normalize(S2Point p) {
-    double norm = p.norm();
-    if (norm != 0) {
-      norm = 1.0 / norm;
-    }
-    return S2Point.mul(p, norm);
+    return S2Point.mul(p, S2Points.normalizeFactor(p.norm()));
   }
 
   public double get(int axis) {
@@ -127,7 +110,7 @@ public strictfp class S2Point implements Comparable<S2Point> {
 
   /** Return the angle between two vectors in radians */
   public double angle(S2Point va) {
-    return Math.atan2(crossProd(this, va).norm(), this.dotProd(va));
+    return S2Points.angle(x, y, z, va.x, va.y, va.z);
   }
 
   /**
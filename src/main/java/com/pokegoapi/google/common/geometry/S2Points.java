@@ -0,0 +1,281 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.pokegoapi.google.common.geometry;
+
+/**
+ * Static versions of the {@link S2Point}, {@link S2LatLng} and
+ * {@link S2Projections} math on raw doubles, so hot loops do not allocate a
+ * new point for every intermediate result. Vectors are passed as their
+ * (x, y, z) components; kernels with a vector result either return a single
+ * component or store the components into out[offset..offset + 2].
+ *
+ * The existing classes delegate to these kernels, and every kernel performs
+ * the same operations in the same order, so results are bit for bit the same.
+ */
+public final strictfp class S2Points {
+
+  private S2Points() {
+  }
+
+  public static double dotProd(double ax, double ay, double az, double bx, double by, double bz) {
+    return ax * bx + ay * by + az * bz;
+  }
+
+  public static double norm2(double x, double y, double z) {
+    return x * x + y * y + z * z;
+  }
+
+  public static double norm(double x, double y, double z) {
+    return Math.sqrt(norm2(x, y, z));
+  }
+
+  /** The squared distance between a and b, the norm2() of (a - b). */
+  public static double distance2(
+      double ax, double ay, double az, double bx, double by, double bz) {
+    return norm2(ax - bx, ay - by, az - bz);
+  }
+
+  /** The x-component of the cross product of a and b. */
+  public static double crossProdX(double ay, double az, double by, double bz) {
+    return ay * bz - az * by;
+  }
+
+  /** The y-component of the cross product of a and b. */
+  public static double crossProdY(double ax, double az, double bx, double bz) {
+    return az * bx - ax * bz;
+  }
+
+  /** The z-component of the cross product of a and b. */
+  public static double crossProdZ(double ax, double ay, double bx, double by) {
+    return ax * by - ay * bx;
+  }
+
+  /** Stores the cross product of a and b into out[offset..offset + 2]. */
+  public static void crossProd(double ax, double ay, double az, double bx, double by, double bz,
+      double[] out, int offset) {
+    out[offset] = crossProdX(ay, az, by, bz);
+    out[offset + 1] = crossProdY(ax, az, bx, bz);
+    out[offset + 2] = crossProdZ(ax, ay, bx, by);
+  }
+
+  /**
+   * The factor that normalizes a vector of the given norm, or 0 for the zero
+   * vector, as {@link S2Point#normalize} uses it.
+   */
+  public static double normalizeFactor(double norm) {
+    return norm != 0 ? 1.0 / norm : norm;
+  }
+
+  /** Stores the vector scaled to unit length into out[offset..offset + 2]. */
+  public static void normalize(double x, double y, double z, double[] out, int offset) {
+    double m = normalizeFactor(norm(x, y, z));
+    out[offset] = m * x;
+    out[offset + 1] = m * y;
+    out[offset + 2] = m * z;
+  }
+
+  /** Return the angle between two vectors in radians. */
+  public static double angle(double ax, double ay, double az, double bx, double by, double bz) {
+    return Math.atan2(
+        norm(crossProdX(ay, az, by, bz), crossProdY(ax, az, bx, bz), crossProdZ(ax, ay, bx, by)),
+        dotProd(ax, ay, az, bx, by, bz));
+  }
+
+  /** Return the index of the component with the largest absolute value. */
+  public static int largestAbsComponent(double x, double y, double z) {
+    double ax = Math.abs(x);
+    double ay = Math.abs(y);
+    double az = Math.abs(z);
+    if (ax > ay) {
+      return ax > az ? 0 : 2;
+    } else {
+      return ay > az ? 1 : 2;
+    }
+  }
+
+  /** Return the latitude in radians of a vector that need not be unit length. */
+  public static double latRadians(double x, double y, double z) {
+    // We use atan2 rather than asin because the input vector is not necessarily
+    // unit length, and atan2 is much more accurate than asin near the poles.
+    return Math.atan2(z, Math.sqrt(x * x + y * y));
+  }
+
+  /** Return the longitude in radians of a vector. */
+  public static double lngRadians(double x, double y) {
+    // Note that atan2(0, 0) is defined to be zero.
+    return Math.atan2(y, x);
+  }
+
+  /** Stores the unit vector of a latitude and longitude in radians into out. */
+  public static void fromLatLngRadians(
+      double latRadians, double lngRadians, double[] out, int offset) {
+    double cosphi = Math.cos(latRadians);
+    out[offset] = Math.cos(lngRadians) * cosphi;
+    out[offset + 1] = Math.sin(lngRadians) * cosphi;
+    out[offset + 2] = Math.sin(latRadians);
+  }
+
+  /**
+   * Return the angle in radians between two latitude/longitude pairs given in
+   * radians, using the haversine formula as {@link S2LatLng#getDistance} does.
+   */
+  public static double distanceRadians(double lat1, double lng1, double lat2, double lng2) {
+    double dlat = Math.sin(0.5 * (lat2 - lat1));
+    double dlng = Math.sin(0.5 * (lng2 - lng1));
+    double x = dlat * dlat + dlng * dlng * Math.cos(lat1) * Math.cos(lat2);
+    return 2 * Math.atan2(Math.sqrt(x), Math.sqrt(Math.max(0.0, 1.0 - x)));
+  }
+
+  /** Return the cube face (0..5) that the vector points to. */
+  public static int xyzToFace(double x, double y, double z) {
+    int face = largestAbsComponent(x, y, z);
+    double w = face == 0 ? x : (face == 1 ? y : z);
+    if (w < 0) {
+      face += 3;
+    }
+    return face;
+  }
+
+  /**
+   * Return the u-coordinate of the vector on the given face. The vector must
+   * point to that face, see {@link #xyzToFace}.
+   */
+  public static double validFaceXyzToU(int face, double x, double y, double z) {
+    switch (face) {
+      case 0:
+        return y / x;
+      case 1:
+        return -x / y;
+      case 2:
+        return -x / z;
+      case 3:
+        return z / x;
+      case 4:
+        return z / y;
+      default:
+        return -y / z;
+    }
+  }
+
+  /**
+   * Return the v-coordinate of the vector on the given face. The vector must
+   * point to that face, see {@link #xyzToFace}.
+   */
+  public static double validFaceXyzToV(int face, double x, double y, double z) {
+    switch (face) {
+      case 0:
+        return z / x;
+      case 1:
+        return z / y;
+      case 2:
+        return -y / z;
+      case 3:
+        return y / x;
+      case 4:
+        return -x / y;
+      default:
+        return -x / z;
+    }
+  }
+
+  /**
+   * Stores the (not unit length) vector of the (u, v) coordinates on the given
+   * face into out[offset..offset + 2].
+   */
+  public static void faceUvToXyz(int face, double u, double v, double[] out, int offset) {
+    switch (face) {
+      case 0:
+        set(out, offset, 1, u, v);
+        break;
+      case 1:
+        set(out, offset, -u, 1, v);
+        break;
+      case 2:
+        set(out, offset, -u, -v, 1);
+        break;
+      case 3:
+        set(out, offset, -1, -v, -u);
+        break;
+      case 4:
+        set(out, offset, v, -1, -u);
+        break;
+      default:
+        set(out, offset, v, u, -1);
+        break;
+    }
+  }
+
+  /**
+   * Stores the (not unit length) normal of the plane through the u = constant
+   * line on the given face into out[offset..offset + 2], see
+   * {@link S2Projections#getUNorm}.
+   */
+  public static void faceUNorm(int face, double u, double[] out, int offset) {
+    switch (face) {
+      case 0:
+        set(out, offset, u, -1, 0);
+        break;
+      case 1:
+        set(out, offset, 1, u, 0);
+        break;
+      case 2:
+        set(out, offset, 1, 0, u);
+        break;
+      case 3:
+        set(out, offset, -u, 0, 1);
+        break;
+      case 4:
+        set(out, offset, 0, -u, 1);
+        break;
+      default:
+        set(out, offset, 0, -1, -u);
+        break;
+    }
+  }
+
+  /**
+   * Stores the (not unit length) normal of the plane through the v = constant
+   * line on the given face into out[offset..offset + 2], see
+   * {@link S2Projections#getVNorm}.
+   */
+  public static void faceVNorm(int face, double v, double[] out, int offset) {
+    switch (face) {
+      case 0:
+        set(out, offset, -v, 0, 1);
+        break;
+      case 1:
+        set(out, offset, 0, -v, 1);
+        break;
+      case 2:
+        set(out, offset, 0, -1, -v);
+        break;
+      case 3:
+        set(out, offset, v, -1, 0);
+        break;
+      case 4:
+        set(out, offset, 1, v, 0);
+        break;
+      default:
+        set(out, offset, 1, 0, v);
+        break;
+    }
+  }
+
+  private static void set(double[] out, int offset, double x, double y, double z) {
+    out[offset] = x;
+    out[offset + 1] = y;
+    out[offset + 2] = z;
+  }
+}
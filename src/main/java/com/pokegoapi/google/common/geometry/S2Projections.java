@@ -286,43 +286,12 @@ public final strictfp class S2Projections {
 
   public static R2Vector validFaceXyzToUv(int face, S2Point p) {
     // assert (p.dotProd(faceUvToXyz(face, 0, 0)) > 0);
-    double pu;
-    double pv;
-    switch (face) {
-      case 0:
-        pu = p.y / p.x;
-        pv = p.z / p.x;
-        break;
-      case 1:
-        pu = -p.x / p.y;
-        pv = p.z / p.y;
-        break;
-      case 2:
-        pu = -p.x / p.z;
-        pv = -p.y / p.z;
-        break;
-      case 3:
-        pu = p.z / p.x;
-        pv = p.y / p.x;
-        break;
-      case 4:
-        pu = p.z / p.y;
-        pv = -p.x / p.y;
-        break;
-      default:
-        pu = -p.y / p.z;
-        pv = -p.x / p.z;
-        break;
-    }
-    return new R2Vector(pu, pv);
+    return new R2Vector(S2Points.validFaceXyzToU(face, p.x, p.y, p.z),
+        S2Points.validFaceXyzToV(face, p.x, p.y, p.z));
   }
 
   public static int xyzToFace(S2Point p) {
-    int face = p.largestAbsComponent();
-    if (p.get(face) < 0) {
-      face += 3;
-    }
-    return face;
+    return S2Points.xyzToFace(p.x, p.y, p.z);
   }
 
   public static R2Vector faceXyzToUv(int face, S2Point p) {
@@ -16,9 +16,12 @@ package com.pokegoapi.google.common.geometry;
 
 
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Arrays;
 import java.util.HashSet;
-import java.util.PriorityQueue;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * An S2RegionCoverer is a class that allows arbitrary regions to be
@@ -47,6 +50,14 @@ import java.util.PriorityQueue;
  * lot of time subdividing cells all the way to leaf level to try to find
  * contained cells.
  *
+ *  A coverer is meant to be reused: candidates and scratch cells are recycled
+ * between calls, and with {@link #setCacheSize(int)} the coverings of recently
+ * seen regions are kept, so covering the same region again costs a lookup.
+ *
+ *  With {@link #setForkJoinPool(ForkJoinPool)} the cells below the coarse
+ * candidates are expanded concurrently, which pays off for large regions with
+ * a high max_cells(). The coverings are identical to the sequential ones.
+ *
  *  This class is thread-unsafe. Simultaneous calls to any of the getCovering
  * methods will conflict and produce unpredictable results.
  *
@@ -60,6 +71,9 @@ public final strictfp class S2RegionCoverer {
    */
   public static final int DEFAULT_MAX_CELLS = 8;
 
+  /** Number of candidates expanded by a single fork/join task. */
+  private static final int PARALLEL_BATCH_SIZE = 16;
+
   private static final S2Cell[] FACE_CELLS = new S2Cell[6];
   static {
     for (int face = 0; face < 6; ++face) {
@@ -94,42 +108,114 @@ public final strictfp class S2RegionCoverer {
 
 
   static class Candidate {
-    private S2Cell cell;
+    private final S2Cell cell = new S2Cell();
     private boolean isTerminal; // Cell should not be expanded further.
     private int numChildren; // Number of children that intersect the region.
     private Candidate[] children; // Actual size may be 0, 4, 16, or 64
     // elements.
+    private boolean isExpanded; // The children have been computed.
+    private int numTerminals; // Number of children that are terminal.
+    private boolean isPrepared; // The children were considered for parallel expansion.
   }
 
-  static class QueueEntry {
-    private int id;
-    private Candidate candidate;
+  /**
+   * Expands a range of candidates on a fork/join pool. Each leaf task uses its
+   * own worker coverer, so that the candidates it creates and its scratch cells
+   * are not shared with other threads.
+   */
+  private static final class ExpandTask extends RecursiveAction {
+    private final S2RegionCoverer coverer;
+    private final Candidate[] candidates;
+    private final int from;
+    private final int to;
+
+    ExpandTask(S2RegionCoverer coverer, Candidate[] candidates, int from, int to) {
+      this.coverer = coverer;
+      this.candidates = candidates;
+      this.from = from;
+      this.to = to;
+    }
 
-    public QueueEntry(int id, Candidate candidate) {
-      this.id = id;
-      this.candidate = candidate;
+    @Override
+    protected void compute() {
+      if (to - from <= PARALLEL_BATCH_SIZE) {
+        S2RegionCoverer worker = coverer.newWorker();
+        for (int i = from; i < to; ++i) {
+          worker.expand(candidates[i]);
+        }
+        return;
+      }
+      int mid = (from + to) >>> 1;
+      invokeAll(new ExpandTask(coverer, candidates, from, mid),
+          new ExpandTask(coverer, candidates, mid, to));
     }
   }
 
-  /**
-   * We define our own comparison function on QueueEntries in order to make the
-   * results deterministic. Using the default less<QueueEntry>, entries of equal
-   * priority would be sorted according to the memory address of the candidate.
-   */
-  static class QueueEntriesComparator implements Comparator<QueueEntry> {
+  /** Key of the covering cache, made of the region and the covering parameters. */
+  private static final class CoveringKey {
+    private final S2Region region;
+    private final int minLevel;
+    private final int maxLevel;
+    private final int levelMod;
+    private final int maxCells;
+    private final boolean interior;
+
+    CoveringKey(S2Region region, int minLevel, int maxLevel, int levelMod, int maxCells,
+        boolean interior) {
+      this.region = region;
+      this.minLevel = minLevel;
+      this.maxLevel = maxLevel;
+      this.levelMod = levelMod;
+      this.maxCells = maxCells;
+      this.interior = interior;
+    }
+
     @Override
-    public int compare(S2RegionCoverer.QueueEntry x, S2RegionCoverer.QueueEntry y) {
-      return x.id < y.id ? 1 : (x.id > y.id ? -1 : 0);
+    public boolean equals(Object that) {
+      if (!(that instanceof CoveringKey)) {
+        return false;
+      }
+      CoveringKey key = (CoveringKey) that;
+      return minLevel == key.minLevel && maxLevel == key.maxLevel && levelMod == key.levelMod
+          && maxCells == key.maxCells && interior == key.interior && region.equals(key.region);
     }
-  }
 
+    @Override
+    public int hashCode() {
+      int value = 17;
+      value = 37 * value + region.hashCode();
+      value = 37 * value + minLevel;
+      value = 37 * value + maxLevel;
+      value = 37 * value + levelMod;
+      value = 37 * value + maxCells;
+      return 37 * value + (interior ? 1 : 0);
+    }
+  }
 
   /**
-   * We keep the candidates in a priority queue. We specify a vector to hold the
-   * queue entries since for some reason priority_queue<> uses a deque by
-   * default.
+   * We keep the candidates in a priority queue, stored as a binary heap in two
+   * parallel arrays so that no entry objects are allocated. Higher priorities
+   * are returned first. The sift operations are the ones of
+   * java.util.PriorityQueue, which makes the order of candidates with equal
+   * priority deterministic.
    */
-  private PriorityQueue<QueueEntry> candidateQueue;
+  private int[] queuePriorities = new int[16];
+  private Candidate[] queueCandidates = new Candidate[16];
+  private int queueSize;
+
+  /** Candidates that are no longer referenced, reused by newCandidate(). */
+  private Candidate[] candidatePool = new Candidate[16];
+  private int candidatePoolSize;
+
+  /** Scratch cells used by expandChildren(), four for each expanded level. */
+  private final S2Cell[][] childCells = new S2Cell[3][4];
+
+  /** Recently computed coverings, or null if the cache is disabled. */
+  private LinkedHashMap<CoveringKey, ArrayList<S2CellId>> coveringCache;
+  private int cacheSize;
+
+  /** Pool used to expand candidates concurrently, or null. */
+  private ForkJoinPool forkJoinPool;
 
   /**
    * Default constructor, sets all fields to default values.
@@ -141,9 +227,11 @@ public final strictfp class S2RegionCoverer {
     maxCells = DEFAULT_MAX_CELLS;
     this.region = null;
     result = new ArrayList<S2CellId>();
-    // TODO(kirilll?): 10 is a completely random number, work out a better
-    // estimate
-    candidateQueue = new PriorityQueue<QueueEntry>(10, new QueueEntriesComparator());
+    for (int i = 0; i < childCells.length; ++i) {
+      for (int j = 0; j < 4; ++j) {
+        childCells[i][j] = new S2Cell();
+      }
+    }
   }
 
   // Set the minimum and maximum cell level to be used. The default is to use
@@ -239,6 +327,62 @@ public final strictfp class S2RegionCoverer {
     this.maxCells = maxCells;
   }
 
+  /**
+   * Sets the number of coverings kept by this coverer (default 0, which
+   * disables the cache). Coverings are looked up by region equality and the
+   * covering parameters, and the least recently used covering is evicted
+   * first. Regions must not be modified after they have been covered.
+   */
+  public void setCacheSize(final int cacheSize) {
+    this.cacheSize = Math.max(0, cacheSize);
+    if (this.cacheSize == 0) {
+      coveringCache = null;
+      return;
+    }
+    LinkedHashMap<CoveringKey, ArrayList<S2CellId>> cache =
+        new LinkedHashMap<CoveringKey, ArrayList<S2CellId>>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<CoveringKey, ArrayList<S2CellId>> eldest) {
+            return size() > cacheSize;
+          }
+        };
+    if (coveringCache != null) {
+      cache.putAll(coveringCache);
+    }
+    coveringCache = cache;
+  }
+
+  public int cacheSize() {
+    return cacheSize;
+  }
+
+  /**
+   * Sets the pool used to expand candidates concurrently, or null (the
+   * default) to compute coverings on the calling thread only. The region must
+   * support concurrent calls to contains(S2Cell) and mayIntersect(S2Cell),
+   * which is the case for S2Cap, S2LatLngRect and S2CellUnion.
+   *
+   *  The search itself is unchanged: whenever the next candidate to process
+   * has children that were not expanded yet, the children of all queued
+   * candidates are expanded in parallel, and the queue is then processed in
+   * the usual order. The covering is therefore identical to the sequential
+   * one, including its use of the max_cells() budget.
+   */
+  public void setForkJoinPool(ForkJoinPool forkJoinPool) {
+    this.forkJoinPool = forkJoinPool;
+  }
+
+  public ForkJoinPool forkJoinPool() {
+    return forkJoinPool;
+  }
+
+  /** Removes all coverings from the cache. */
+  public void clearCache() {
+    if (coveringCache != null) {
+      coveringCache.clear();
+    }
+  }
+
   /**
    * Computes a list of cell ids that covers the given region and satisfies the
    * various restrictions specified above.
@@ -287,8 +431,7 @@ public final strictfp class S2RegionCoverer {
 
   public void getCovering(S2Region region, S2CellUnion covering) {
     interiorCovering = false;
-    getCoveringInternal(region);
-    covering.initSwap(result);
+    getCachedCovering(region, covering);
   }
 
   /**
@@ -303,8 +446,30 @@ public final strictfp class S2RegionCoverer {
 
   public void getInteriorCovering(S2Region region, S2CellUnion covering) {
     interiorCovering = true;
-    getCoveringInternal(region);
-    covering.initSwap(result);
+    getCachedCovering(region, covering);
+  }
+
+  /**
+   * Stores the covering of the region in "covering", using the cache when it
+   * is enabled.
+   */
+  private void getCachedCovering(S2Region region, S2CellUnion covering) {
+    if (coveringCache == null) {
+      getCoveringInternal(region);
+      covering.initSwap(result);
+      return;
+    }
+    CoveringKey key =
+        new CoveringKey(region, minLevel, maxLevel, levelMod, maxCells, interiorCovering);
+    ArrayList<S2CellId> cellIds = coveringCache.get(key);
+    if (cellIds == null) {
+      getCoveringInternal(region);
+      covering.initSwap(result);
+      // S2CellIds are immutable, so sharing them between coverings is safe.
+      coveringCache.put(key, new ArrayList<S2CellId>(covering.cellIds()));
+    } else {
+      covering.initRawCellIds(new ArrayList<S2CellId>(cellIds));
+    }
   }
 
   /**
@@ -313,7 +478,7 @@ public final strictfp class S2RegionCoverer {
    */
   public static void getSimpleCovering(
       S2Region region, S2Point start, int level, ArrayList<S2CellId> output) {
-    floodFill(region, S2CellId.fromPoint(start).parent(level), output);
+    floodFill(region, S2CellIds.parent(S2CellIds.fromPoint(start), level), output);
   }
 
   /**
@@ -340,16 +505,90 @@ public final strictfp class S2RegionCoverer {
         }
       }
     }
-    Candidate candidate = new Candidate();
-    candidate.cell = cell;
+    Candidate candidate =
+        candidatePoolSize > 0 ? candidatePool[--candidatePoolSize] : new Candidate();
+    candidate.cell.set(cell);
     candidate.isTerminal = isTerminal;
-    if (!isTerminal) {
+    candidate.numChildren = 0;
+    candidate.isExpanded = false;
+    candidate.numTerminals = 0;
+    candidate.isPrepared = false;
+    if (!isTerminal
+        && (candidate.children == null || candidate.children.length < 1 << maxChildrenShift())) {
       candidate.children = new Candidate[1 << maxChildrenShift()];
     }
     candidatesCreatedCounter++;
     return candidate;
   }
 
+  /** Returns a candidate that is no longer referenced to the pool. */
+  private void recycle(Candidate candidate) {
+    if (candidatePoolSize == candidatePool.length) {
+      candidatePool = Arrays.copyOf(candidatePool, candidatePoolSize * 2);
+    }
+    candidatePool[candidatePoolSize++] = candidate;
+  }
+
+  /** Returns a candidate and all of its children to the pool. */
+  private void recycleWithChildren(Candidate candidate) {
+    for (int i = 0; i < candidate.numChildren; ++i) {
+      recycle(candidate.children[i]);
+    }
+    recycle(candidate);
+  }
+
+  /** Adds a candidate to the queue, as PriorityQueue.offer() does. */
+  private void queueAdd(int priority, Candidate candidate) {
+    if (queueSize == queuePriorities.length) {
+      queuePriorities = Arrays.copyOf(queuePriorities, queueSize * 2);
+      queueCandidates = Arrays.copyOf(queueCandidates, queueSize * 2);
+    }
+    // Sift up.
+    int k = queueSize++;
+    while (k > 0) {
+      int parent = (k - 1) >>> 1;
+      if (priority <= queuePriorities[parent]) {
+        break;
+      }
+      queuePriorities[k] = queuePriorities[parent];
+      queueCandidates[k] = queueCandidates[parent];
+      k = parent;
+    }
+    queuePriorities[k] = priority;
+    queueCandidates[k] = candidate;
+  }
+
+  /** Removes the candidate with the highest priority, as PriorityQueue.poll() does. */
+  private Candidate queuePoll() {
+    Candidate head = queueCandidates[0];
+    int size = --queueSize;
+    int priority = queuePriorities[size];
+    Candidate candidate = queueCandidates[size];
+    queueCandidates[size] = null;
+    if (size == 0) {
+      return head;
+    }
+    // Sift down the last entry from the root.
+    int k = 0;
+    int half = size >>> 1;
+    while (k < half) {
+      int child = 2 * k + 1;
+      int right = child + 1;
+      if (right < size && queuePriorities[child] < queuePriorities[right]) {
+        child = right;
+      }
+      if (priority >= queuePriorities[child]) {
+        break;
+      }
+      queuePriorities[k] = queuePriorities[child];
+      queueCandidates[k] = queueCandidates[child];
+      k = child;
+    }
+    queuePriorities[k] = priority;
+    queueCandidates[k] = candidate;
+    return head;
+  }
+
   /** Return the log base 2 of the maximum number of children of a candidate. */
   private int maxChildrenShift() {
     return 2 * levelMod;
@@ -367,23 +606,26 @@ public final strictfp class S2RegionCoverer {
 
     if (candidate.isTerminal) {
       result.add(candidate.cell.id());
+      recycle(candidate);
       return;
     }
-    // assert (candidate.numChildren == 0);
-
-    // Expand one level at a time until we hit min_level_ to ensure that
-    // we don't skip over it.
-    int numLevels = (candidate.cell.level() < minLevel) ? 1 : levelMod;
-    int numTerminals = expandChildren(candidate, candidate.cell, numLevels);
+    if (!candidate.isExpanded) {
+      expand(candidate);
+    }
+    int numTerminals = candidate.numTerminals;
 
     if (candidate.numChildren == 0) {
-      // Do nothing
+      recycle(candidate);
     } else if (!interiorCovering && numTerminals == 1 << maxChildrenShift()
         && candidate.cell.level() >= minLevel) {
       // Optimization: add the parent cell rather than all of its children.
       // We can't do this for interior coverings, since the children just
       // intersect the region, but may not be contained by it - we need to
       // subdivide them further.
+      for (int i = 0; i < candidate.numChildren; ++i) {
+        recycle(candidate.children[i]);
+      }
+      candidate.numChildren = 0;
       candidate.isTerminal = true;
       addCandidate(candidate);
 
@@ -396,11 +638,74 @@ public final strictfp class S2RegionCoverer {
       // number of children that cannot be refined any further.
       int priority = -((((candidate.cell.level() << maxChildrenShift()) + candidate.numChildren)
           << maxChildrenShift()) + numTerminals);
-      candidateQueue.add(new QueueEntry(priority, candidate));
+      queueAdd(priority, candidate);
       // logger.info("Push: " + candidate.cell.id() + " (" + priority + ") ");
     }
   }
 
+  /** Computes the children of a non-terminal candidate. */
+  private void expand(Candidate candidate) {
+    // assert (candidate.numChildren == 0);
+
+    // Expand one level at a time until we hit min_level_ to ensure that
+    // we don't skip over it.
+    int numLevels = (candidate.cell.level() < minLevel) ? 1 : levelMod;
+    candidate.numTerminals = expandChildren(candidate, candidate.cell, numLevels);
+    candidate.isExpanded = true;
+  }
+
+  /** Returns a coverer with the same parameters, used by a single fork/join task. */
+  private S2RegionCoverer newWorker() {
+    S2RegionCoverer worker = new S2RegionCoverer();
+    worker.minLevel = minLevel;
+    worker.maxLevel = maxLevel;
+    worker.levelMod = levelMod;
+    worker.maxCells = maxCells;
+    worker.interiorCovering = interiorCovering;
+    worker.region = region;
+    return worker;
+  }
+
+  /**
+   * Expands the children of the queued candidates on the fork/join pool, so
+   * that addCandidate() finds them already expanded. Children are computed
+   * the same way on any thread, so this does not change the covering.
+   */
+  private void expandQueueInParallel() {
+    // Candidates that are not expanded because of the max_cells() budget
+    // would waste the work done on their children. If the budget may be
+    // reached, only the candidates that are always expanded are used.
+    long bound = result.size() + queueSize;
+    for (int i = 0; i < queueSize; ++i) {
+      bound += queueCandidates[i].numChildren;
+    }
+    boolean withinBudget = bound <= maxCells;
+
+    ArrayList<Candidate> pending = new ArrayList<Candidate>();
+    for (int i = 0; i < queueSize; ++i) {
+      Candidate candidate = queueCandidates[i];
+      if (candidate.isPrepared) {
+        continue;
+      }
+      candidate.isPrepared = true;
+      if (!withinBudget && candidate.cell.level() >= minLevel && candidate.numChildren != 1) {
+        continue;
+      }
+      for (int j = 0; j < candidate.numChildren; ++j) {
+        Candidate child = candidate.children[j];
+        if (!child.isTerminal && !child.isExpanded) {
+          pending.add(child);
+        }
+      }
+    }
+    if (pending.size() < 2 * PARALLEL_BATCH_SIZE) {
+      // Not worth the overhead, addCandidate() expands them when needed.
+      return;
+    }
+    Candidate[] candidates = pending.toArray(new Candidate[pending.size()]);
+    forkJoinPool.invoke(new ExpandTask(this, candidates, 0, candidates.length));
+  }
+
   /**
    * Populate the children of "candidate" by expanding the given number of
    * levels from the given cell. Returns the number of children that were marked
@@ -408,20 +713,19 @@ public final strictfp class S2RegionCoverer {
    */
   private int expandChildren(Candidate candidate, S2Cell cell, int numLevels) {
     numLevels--;
-    S2Cell[] childCells = new S2Cell[4];
-    for (int i = 0; i < 4; ++i) {
-      childCells[i] = new S2Cell();
-    }
-    cell.subdivide(childCells);
+    // Each recursion level uses its own row of scratch cells; newCandidate()
+    // copies the cells it keeps.
+    S2Cell[] children = childCells[numLevels];
+    cell.subdivide(children);
     int numTerminals = 0;
     for (int i = 0; i < 4; ++i) {
       if (numLevels > 0) {
-        if (region.mayIntersect(childCells[i])) {
-          numTerminals += expandChildren(candidate, childCells[i], numLevels);
+        if (region.mayIntersect(children[i])) {
+          numTerminals += expandChildren(candidate, children[i], numLevels);
         }
         continue;
       }
-      Candidate child = newCandidate(childCells[i]);
+      Candidate child = newCandidate(children[i]);
       if (child != null) {
         candidate.children[candidate.numChildren++] = child;
         if (child.isTerminal) {
@@ -484,31 +788,41 @@ public final strictfp class S2RegionCoverer {
     // children first), and then by the number of fully contained children
     // (fewest children first).
 
-    //Preconditions.checkState(candidateQueue.isEmpty() && result.isEmpty());
-    if (!(candidateQueue.isEmpty() && result.isEmpty())) throw new IllegalStateException();
+    //Preconditions.checkState(queueSize == 0 && result.isEmpty());
+    if (!(queueSize == 0 && result.isEmpty())) throw new IllegalStateException();
     this.region = region;
     candidatesCreatedCounter = 0;
 
     getInitialCandidates();
-    while (!candidateQueue.isEmpty() && (!interiorCovering || result.size() < maxCells)) {
-      Candidate candidate = candidateQueue.poll().candidate;
+    while (queueSize > 0 && (!interiorCovering || result.size() < maxCells)) {
+      if (forkJoinPool != null && !queueCandidates[0].isPrepared) {
+        expandQueueInParallel();
+      }
+      Candidate candidate = queuePoll();
       // logger.info("Pop: " + candidate.cell.id());
       if (candidate.cell.level() < minLevel || candidate.numChildren == 1
-          || result.size() + (interiorCovering ? 0 : candidateQueue.size()) + candidate.numChildren
+          || result.size() + (interiorCovering ? 0 : queueSize) + candidate.numChildren
               <= maxCells) {
         // Expand this candidate into its children.
         for (int i = 0; i < candidate.numChildren; ++i) {
           addCandidate(candidate.children[i]);
         }
+        recycle(candidate);
       } else if (interiorCovering) {
-        // Do nothing
+        recycleWithChildren(candidate);
       } else {
+        for (int i = 0; i < candidate.numChildren; ++i) {
+          recycle(candidate.children[i]);
+        }
+        candidate.numChildren = 0;
         candidate.isTerminal = true;
         addCandidate(candidate);
       }
     }
 
-    candidateQueue.clear();
+    while (queueSize > 0) {
+      recycleWithChildren(queuePoll());
+    }
     this.region = null;
   }
 
@@ -517,30 +831,33 @@ public final strictfp class S2RegionCoverer {
    * edge-connected cells at the same level that intersect "region". The output
    * cells are returned in arbitrary order.
    */
-  private static void floodFill(S2Region region, S2CellId start, ArrayList<S2CellId> output) {
-    HashSet<S2CellId> all = new HashSet<S2CellId>();
-    ArrayList<S2CellId> frontier = new ArrayList<S2CellId>();
+  private static void floodFill(S2Region region, long start, ArrayList<S2CellId> output) {
+    HashSet<Long> all = new HashSet<Long>();
+    long[] frontier = new long[16];
+    int frontierSize = 0;
+    long[] neighbors = new long[4];
     output.clear();
     all.add(start);
-    frontier.add(start);
-    while (!frontier.isEmpty()) {
-      S2CellId id = frontier.get(frontier.size() - 1);
-      frontier.remove(frontier.size() - 1);
-      if (!region.mayIntersect(new S2Cell(id))) {
+    frontier[frontierSize++] = start;
+    while (frontierSize > 0) {
+      long id = frontier[--frontierSize];
+      S2CellId cellId = new S2CellId(id);
+      if (!region.mayIntersect(new S2Cell(cellId))) {
         continue;
       }
-      output.add(id);
+      output.add(cellId);
 
-      S2CellId[] neighbors = new S2CellId[4];
-      id.getEdgeNeighbors(neighbors);
+      S2CellIds.getEdgeNeighbors(id, neighbors);
       for (int edge = 0; edge < 4; ++edge) {
-        S2CellId nbr = neighbors[edge];
-        boolean hasNbr = all.contains(nbr);
-        if (!all.contains(nbr)) {
-          frontier.add(nbr);
-          all.add(nbr);
+        long nbr = neighbors[edge];
+        if (all.add(nbr)) {
+          if (frontierSize == frontier.length) {
+            frontier = Arrays.copyOf(frontier, frontierSize * 2);
+          }
+          frontier[frontierSize++] = nbr;
         }
       }
     }
   }
+
 }
@@ -0,0 +1,152 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.pokegoapi.util;
+
+import com.google.protobuf.ProtocolMessageEnum;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Counters for the values of a protobuf enum, stored in an int array indexed by the enum number.
+ * Counts never go below zero. Updates are atomic and the sum of all counters is maintained incrementally,
+ * so reading a count or the total never boxes, hashes or iterates.
+ *
+ * @param <E> the protobuf enum
+ */
+public class EnumCounters<E extends Enum<E> & ProtocolMessageEnum> {
+	private final Class<E> type;
+	private final AtomicIntegerArray counts;
+	private final AtomicInteger total = new AtomicInteger();
+
+	/**
+	 * Creates counters, all zero, for every value of the enum.
+	 *
+	 * @param type the enum class
+	 */
+	public EnumCounters(Class<E> type) {
+		this.type = type;
+		this.counts = new AtomicIntegerArray(sizeOf(type));
+	}
+
+	/**
+	 * Gets the size of an array indexed by the numbers of a protobuf enum.
+	 *
+	 * @param type the enum class
+	 * @param <E> the enum
+	 * @return the highest enum number plus one
+	 */
+	public static <E extends Enum<E> & ProtocolMessageEnum> int sizeOf(Class<E> type) {
+		int size = 0;
+		for (E value : type.getEnumConstants()) {
+			// the number of UNRECOGNIZED is not defined
+			if (!"UNRECOGNIZED".equals(value.name())) {
+				size = Math.max(size, value.getNumber() + 1);
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Gets a count.
+	 *
+	 * @param key the enum value
+	 * @return the count
+	 */
+	public int get(E key) {
+		return counts.get(key.getNumber());
+	}
+
+	/**
+	 * Sets a count.
+	 *
+	 * @param key the enum value
+	 * @param count the new count, negative counts are stored as zero
+	 * @return the previous count
+	 */
+	public int set(E key, int count) {
+		int previous = counts.getAndSet(key.getNumber(), Math.max(0, count));
+		total.addAndGet(Math.max(0, count) - previous);
+		return previous;
+	}
+
+	/**
+	 * Adds to a count, the count does not go below zero.
+	 *
+	 * @param key the enum value
+	 * @param amount the amount to add, negative to remove
+	 * @return the new count
+	 */
+	public int add(E key, int amount) {
+		int index = key.getNumber();
+		while (true) {
+			int previous = counts.get(index);
+			int count = Math.max(0, previous + amount);
+			if (counts.compareAndSet(index, previous, count)) {
+				total.addAndGet(count - previous);
+				return count;
+			}
+		}
+	}
+
+	/**
+	 * Gets the sum of all counts.
+	 *
+	 * @return the total
+	 */
+	public int total() {
+		return total.get();
+	}
+
+	/**
+	 * Sets all counts to zero.
+	 */
+	public void clear() {
+		for (int i = 0; i < counts.length(); i++) {
+			total.addAndGet(-counts.getAndSet(i, 0));
+		}
+	}
+
+	/**
+	 * Copies the counts into an array indexed by enum number.
+	 *
+	 * @return the counts
+	 */
+	public int[] toArray() {
+		int[] array = new int[counts.length()];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = counts.get(i);
+		}
+		return array;
+	}
+
+	/**
+	 * Copies the non zero counts into a map.
+	 *
+	 * @return the counts
+	 */
+	public Map<E, Integer> toMap() {
+		Map<E, Integer> map = new EnumMap<>(type);
+		for (E value : type.getEnumConstants()) {
+			if (!"UNRECOGNIZED".equals(value.name()) && counts.get(value.getNumber()) > 0) {
+				map.put(value, counts.get(value.getNumber()));
+			}
+		}
+		return map;
+	}
+}
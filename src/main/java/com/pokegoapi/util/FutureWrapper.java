@@ -127,6 +127,43 @@ public abstract class FutureWrapper<T, R> implements PokemonFuture<R> {
 		return new Just<>(result);
 	}
 
+	/**
+	 * Creates a future that fails with the given exception.
+	 *
+	 * @param error a LoginFailedException or RemoteServerException, anything else fails as a RemoteServerException
+	 * @param <T>   Wrapped type
+	 * @param <R>   Result type
+	 * @return the failed future
+	 */
+	public static <T, R> FutureWrapper<T, R> failed(Exception error) {
+		return new Failed<>(error);
+	}
+
+	private static class Failed<T, R> extends FutureWrapper<T, R> {
+		private final Exception error;
+
+		Failed(Exception error) {
+			super(null);
+			this.error = error;
+		}
+
+		@Override
+		protected R handle(T ignore) throws RemoteServerException, LoginFailedException {
+			if (error instanceof LoginFailedException) {
+				throw (LoginFailedException) error;
+			}
+			if (error instanceof RemoteServerException) {
+				throw (RemoteServerException) error;
+			}
+			throw new RemoteServerException(error);
+		}
+
+		@Override
+		public boolean isDone() {
+			return true;
+		}
+	}
+
 	private static class Just<T, R> extends FutureWrapper<T, R> {
 		private final R result;
 
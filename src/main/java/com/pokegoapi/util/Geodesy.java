@@ -0,0 +1,178 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.pokegoapi.util;
+
+import com.pokegoapi.google.common.geometry.S2LatLng;
+
+/**
+ * Allocation free distance calculations on latitudes and longitudes in degrees, using the same spherical earth as
+ * {@link S2LatLng#getEarthDistance(S2LatLng)}.
+ *
+ * <p>{@link #equirectangular} projects both points onto a plane scaled by the cosine of the reference latitude. It
+ * needs no trigonometry when that cosine is precomputed. For distances up to {@value #APPROXIMATION_RANGE}m and
+ * latitudes within &plusmn;{@value #APPROXIMATION_MAX_LATITUDE}&deg; its relative error compared to
+ * {@link #haversine} stays below {@value #APPROXIMATION_ERROR}. {@link #isWithin} uses the approximation and only
+ * falls back to the haversine distance when the result is within that error of the radius, so its answers
+ * always equal the haversine comparison.</p>
+ */
+public final class Geodesy {
+	public static final double EARTH_RADIUS_METERS = S2LatLng.EARTH_RADIUS_METERS;
+	/**
+	 * Maximum distance in meters for which {@link #APPROXIMATION_ERROR} holds.
+	 */
+	public static final double APPROXIMATION_RANGE = 10000;
+	/**
+	 * Maximum absolute latitude in degrees for which {@link #APPROXIMATION_ERROR} holds.
+	 */
+	public static final double APPROXIMATION_MAX_LATITUDE = 80;
+	/**
+	 * Upper bound of the relative error of {@link #equirectangular} within the documented range.
+	 */
+	public static final double APPROXIMATION_ERROR = 0.002;
+
+	private static final double DEGREES_TO_RADIANS = Math.PI / 180;
+
+	private Geodesy() {
+	}
+
+	/**
+	 * Returns the cosine of a latitude, to be passed as reference to the approximations.
+	 *
+	 * @param latitude the latitude in degrees
+	 * @return the cosine of the latitude
+	 */
+	public static double cosLatitude(double latitude) {
+		return Math.cos(latitude * DEGREES_TO_RADIANS);
+	}
+
+	/**
+	 * Returns the great circle distance between two points. It agrees with
+	 * {@link S2LatLng#getEarthDistance(S2LatLng)} to within floating-point rounding.
+	 *
+	 * @param lat1 latitude of the first point in degrees
+	 * @param lng1 longitude of the first point in degrees
+	 * @param lat2 latitude of the second point in degrees
+	 * @param lng2 longitude of the second point in degrees
+	 * @return the distance in meters
+	 */
+	public static double haversine(double lat1, double lng1, double lat2, double lng2) {
+		double phi1 = lat1 * DEGREES_TO_RADIANS;
+		double phi2 = lat2 * DEGREES_TO_RADIANS;
+		double dlat = Math.sin(0.5 * (phi2 - phi1));
+		double dlng = Math.sin(0.5 * (lng2 - lng1) * DEGREES_TO_RADIANS);
+		double x = dlat * dlat + dlng * dlng * Math.cos(phi1) * Math.cos(phi2);
+		return 2 * Math.atan2(Math.sqrt(x), Math.sqrt(Math.max(0.0, 1.0 - x))) * EARTH_RADIUS_METERS;
+	}
+
+	/**
+	 * Returns the approximate distance between a reference point and another point.
+	 *
+	 * @param lat1 latitude of the reference point in degrees
+	 * @param lng1 longitude of the reference point in degrees
+	 * @param cosLat1 the cosine of the reference latitude, see {@link #cosLatitude(double)}
+	 * @param lat2 latitude of the other point in degrees
+	 * @param lng2 longitude of the other point in degrees
+	 * @return the distance in meters
+	 */
+	public static double equirectangular(double lat1, double lng1, double cosLat1, double lat2, double lng2) {
+		return Math.sqrt(squaredAngle(lat1, lng1, cosLat1, lat2, lng2)) * EARTH_RADIUS_METERS;
+	}
+
+	/**
+	 * Returns if the distance between a reference point and another point is less than the given radius.
+	 *
+	 * @param lat1 latitude of the reference point in degrees
+	 * @param lng1 longitude of the reference point in degrees
+	 * @param cosLat1 the cosine of the reference latitude, see {@link #cosLatitude(double)}
+	 * @param lat2 latitude of the other point in degrees
+	 * @param lng2 longitude of the other point in degrees
+	 * @param radius the radius in meters
+	 * @return true if the haversine distance is less than the radius
+	 */
+	public static boolean isWithin(double lat1, double lng1, double cosLat1, double lat2, double lng2,
+			double radius) {
+		if (radius <= APPROXIMATION_RANGE && Math.abs(lat1) <= APPROXIMATION_MAX_LATITUDE) {
+			// points further away than the approximation range are outside the radius anyway
+			double angle = radius / EARTH_RADIUS_METERS;
+			double squared = squaredAngle(lat1, lng1, cosLat1, lat2, lng2);
+			double lower = angle * (1 - APPROXIMATION_ERROR);
+			double upper = angle * (1 + APPROXIMATION_ERROR);
+			if (squared < lower * lower) {
+				return true;
+			}
+			if (squared > upper * upper) {
+				return false;
+			}
+		}
+		return haversine(lat1, lng1, lat2, lng2) < radius;
+	}
+
+	/**
+	 * Computes the approximate distances from a reference point to many points.
+	 *
+	 * @param lat latitude of the reference point in degrees
+	 * @param lng longitude of the reference point in degrees
+	 * @param latitudes latitudes of the points in degrees
+	 * @param longitudes longitudes of the points in degrees
+	 * @param distances receives the distance in meters of every point
+	 */
+	public static void equirectangular(double lat, double lng, double[] latitudes, double[] longitudes,
+			double[] distances) {
+		double cosLat = cosLatitude(lat);
+		for (int i = 0; i < latitudes.length; i++) {
+			distances[i] = Math.sqrt(squaredAngle(lat, lng, cosLat, latitudes[i], longitudes[i])) * EARTH_RADIUS_METERS;
+		}
+	}
+
+	/**
+	 * Checks for many points whether they are less than the given radius away from a reference point.
+	 *
+	 * @param lat latitude of the reference point in degrees
+	 * @param lng longitude of the reference point in degrees
+	 * @param latitudes latitudes of the points in degrees
+	 * @param longitudes longitudes of the points in degrees
+	 * @param radius the radius in meters
+	 * @param within receives for every point if it is within the radius
+	 * @return the number of points within the radius
+	 */
+	public static int isWithin(double lat, double lng, double[] latitudes, double[] longitudes, double radius,
+			boolean[] within) {
+		double cosLat = cosLatitude(lat);
+		int count = 0;
+		for (int i = 0; i < latitudes.length; i++) {
+			within[i] = isWithin(lat, lng, cosLat, latitudes[i], longitudes[i], radius);
+			if (within[i]) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the squared angular distance on the plane scaled by the cosine of the reference latitude.
+	 */
+	private static double squaredAngle(double lat1, double lng1, double cosLat1, double lat2, double lng2) {
+		double dlng = lng2 - lng1;
+		if (dlng > 180) {
+			dlng -= 360;
+		} else if (dlng < -180) {
+			dlng += 360;
+		}
+		double x = dlng * DEGREES_TO_RADIANS * cosLat1;
+		double y = (lat2 - lat1) * DEGREES_TO_RADIANS;
+		return x * x + y * y;
+	}
+}
@@ -0,0 +1,218 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.pokegoapi.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hash map from primitive long keys to non null values, using open addressing with linear probing.
+ * Unlike a {@code HashMap<Long, V>} it does not box keys or allocate an entry per mapping.
+ * This class is not thread safe.
+ *
+ * @param <V> the type of the values
+ */
+public class LongHashMap<V> {
+	private static final int MIN_CAPACITY = 8;
+
+	private long[] keys;
+	private V[] values;
+	private int mask;
+	private int size;
+
+	/**
+	 * Creates an empty map.
+	 */
+	public LongHashMap() {
+		this(MIN_CAPACITY);
+	}
+
+	/**
+	 * Creates an empty map that holds the given number of mappings without resizing.
+	 *
+	 * @param expectedSize the expected number of mappings
+	 */
+	public LongHashMap(int expectedSize) {
+		allocate(capacityFor(expectedSize));
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns the value mapped to the key.
+	 *
+	 * @param key the key
+	 * @return the value, or null if the key is not mapped
+	 */
+	public V get(long key) {
+		int index = indexOf(key);
+		return index < 0 ? null : values[index];
+	}
+
+	public boolean containsKey(long key) {
+		return indexOf(key) >= 0;
+	}
+
+	/**
+	 * Maps the key to the value.
+	 *
+	 * @param key   the key
+	 * @param value the value, must not be null
+	 * @return the value previously mapped to the key, or null
+	 */
+	public V put(long key, V value) {
+		if (value == null) {
+			throw new IllegalArgumentException("Null values are not supported");
+		}
+		int index = slot(key);
+		while (values[index] != null) {
+			if (keys[index] == key) {
+				V previous = values[index];
+				values[index] = value;
+				return previous;
+			}
+			index = (index + 1) & mask;
+		}
+		keys[index] = key;
+		values[index] = value;
+		// keep the load factor at or below one half so probe sequences stay short
+		if (++size > (mask + 1) >> 1) {
+			resize((mask + 1) << 1);
+		}
+		return null;
+	}
+
+	/**
+	 * Removes the mapping of the key.
+	 *
+	 * @param key the key
+	 * @return the removed value, or null if the key was not mapped
+	 */
+	public V remove(long key) {
+		int index = indexOf(key);
+		if (index < 0) {
+			return null;
+		}
+		V removed = values[index];
+		size--;
+		// shift back the following entries of the probe sequence instead of leaving a tombstone
+		int gap = index;
+		int next = (gap + 1) & mask;
+		while (values[next] != null) {
+			int home = slot(keys[next]);
+			if (((next - home) & mask) >= ((next - gap) & mask)) {
+				keys[gap] = keys[next];
+				values[gap] = values[next];
+				gap = next;
+			}
+			next = (next + 1) & mask;
+		}
+		values[gap] = null;
+		return removed;
+	}
+
+	/**
+	 * Removes all mappings.
+	 */
+	public void clear() {
+		Arrays.fill(values, null);
+		size = 0;
+	}
+
+	/**
+	 * Returns the values in no particular order.
+	 *
+	 * @return a new list with the values
+	 */
+	public List<V> values() {
+		List<V> list = new ArrayList<>(size);
+		for (V value : values) {
+			if (value != null) {
+				list.add(value);
+			}
+		}
+		return list;
+	}
+
+	/**
+	 * Returns the keys in no particular order.
+	 *
+	 * @return a new array with the keys
+	 */
+	public long[] keys() {
+		long[] array = new long[size];
+		int count = 0;
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] != null) {
+				array[count++] = keys[i];
+			}
+		}
+		return array;
+	}
+
+	private int indexOf(long key) {
+		int index = slot(key);
+		while (values[index] != null) {
+			if (keys[index] == key) {
+				return index;
+			}
+			index = (index + 1) & mask;
+		}
+		return -1;
+	}
+
+	private int slot(long key) {
+		long hash = key * 0x9E3779B97F4A7C15L;
+		return (int) (hash ^ (hash >>> 32)) & mask;
+	}
+
+	private static int capacityFor(int expectedSize) {
+		int capacity = MIN_CAPACITY;
+		while (capacity >> 1 < expectedSize) {
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		values = (V[]) new Object[capacity];
+		mask = capacity - 1;
+	}
+
+	private void resize(int capacity) {
+		long[] oldKeys = keys;
+		V[] oldValues = values;
+		allocate(capacity);
+		for (int i = 0; i < oldValues.length; i++) {
+			if (oldValues[i] != null) {
+				int index = slot(oldKeys[i]);
+				while (values[index] != null) {
+					index = (index + 1) & mask;
+				}
+				keys[index] = oldKeys[i];
+				values[index] = oldValues[i];
+			}
+		}
+	}
+}
@@ -0,0 +1,200 @@
+/*
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.pokegoapi.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hashed timing wheel that keeps items until their deadline has passed.
+ * Scheduling and cancelling are O(1), expiring costs O(1) per expired item plus one bucket per elapsed tick.
+ * Deadlines further away than one revolution simply stay in their bucket until the wheel comes around again.
+ *
+ * @param <T> the type of the scheduled items
+ */
+public class TimingWheel<T> {
+	private final Time time;
+	private final long tickMs;
+	private final int mask;
+	private final Timeout<T>[] buckets;
+	private long currentTick;
+	private int size;
+
+	/**
+	 * Creates a wheel with one second ticks and 512 buckets, enough to cover a pokemon spawn in two revolutions.
+	 *
+	 * @param time the time source driving the wheel
+	 */
+	public TimingWheel(Time time) {
+		this(time, 1000, 512);
+	}
+
+	/**
+	 * Creates a new wheel.
+	 *
+	 * @param time          the time source driving the wheel
+	 * @param tickMs        duration of one tick in milliseconds
+	 * @param ticksPerWheel number of buckets, rounded up to a power of two
+	 */
+	@SuppressWarnings("unchecked")
+	public TimingWheel(Time time, long tickMs, int ticksPerWheel) {
+		if (tickMs <= 0) {
+			throw new IllegalArgumentException("tickMs must be positive");
+		}
+		if (ticksPerWheel <= 0 || ticksPerWheel > (1 << 30)) {
+			throw new IllegalArgumentException("ticksPerWheel must be between 1 and 2^30");
+		}
+		int wheelSize = Integer.highestOneBit(ticksPerWheel);
+		if (wheelSize < ticksPerWheel) {
+			wheelSize <<= 1;
+		}
+		this.time = time;
+		this.tickMs = tickMs;
+		this.mask = wheelSize - 1;
+		this.buckets = new Timeout[wheelSize];
+		this.currentTick = time.currentTimeMillis() / tickMs;
+	}
+
+	/**
+	 * Schedules an item to expire at the given time.
+	 *
+	 * @param item       the item
+	 * @param deadlineMs the time in milliseconds at which the item expires
+	 * @return a handle that can be used to cancel the timeout
+	 */
+	public synchronized Timeout<T> schedule(T item, long deadlineMs) {
+		// never put anything into a bucket that was already passed in this revolution
+		long tick = Math.max(deadlineMs / tickMs, currentTick);
+		Timeout<T> timeout = new Timeout<>(this, item, deadlineMs, tick);
+		link(timeout);
+		return timeout;
+	}
+
+	/**
+	 * Cancels a scheduled timeout. Does nothing if it already expired or was cancelled.
+	 *
+	 * @param timeout the timeout to cancel
+	 * @return true if the timeout was still pending
+	 */
+	public synchronized boolean cancel(Timeout<T> timeout) {
+		if (timeout.wheel != this || !timeout.pending) {
+			return false;
+		}
+		unlink(timeout);
+		return true;
+	}
+
+	/**
+	 * Advances the wheel to the current time and removes every item whose deadline has passed.
+	 *
+	 * @return the expired items, in no particular order
+	 */
+	public synchronized List<T> expire() {
+		long now = time.currentTimeMillis();
+		long nowTick = now / tickMs;
+		List<T> expired = new ArrayList<>();
+		// after a full revolution every bucket has to be visited exactly once
+		long firstTick = Math.max(currentTick, nowTick - mask);
+		for (long tick = firstTick; tick <= nowTick; tick++) {
+			Timeout<T> timeout = buckets[(int) (tick & mask)];
+			while (timeout != null) {
+				Timeout<T> next = timeout.next;
+				if (timeout.tick < nowTick || (timeout.tick == nowTick && timeout.deadlineMs <= now)) {
+					unlink(timeout);
+					expired.add(timeout.item);
+				}
+				timeout = next;
+			}
+		}
+		currentTick = nowTick;
+		return expired;
+	}
+
+	/**
+	 * Returns the number of pending items.
+	 *
+	 * @return the number of items that neither expired nor were cancelled
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	private void link(Timeout<T> timeout) {
+		int index = (int) (timeout.tick & mask);
+		Timeout<T> head = buckets[index];
+		timeout.next = head;
+		if (head != null) {
+			head.prev = timeout;
+		}
+		buckets[index] = timeout;
+		timeout.pending = true;
+		size++;
+	}
+
+	private void unlink(Timeout<T> timeout) {
+		if (timeout.prev != null) {
+			timeout.prev.next = timeout.next;
+		} else {
+			buckets[(int) (timeout.tick & mask)] = timeout.next;
+		}
+		if (timeout.next != null) {
+			timeout.next.prev = timeout.prev;
+		}
+		timeout.prev = null;
+		timeout.next = null;
+		timeout.pending = false;
+		size--;
+	}
+
+	/**
+	 * Handle of an item scheduled in a {@link TimingWheel}.
+	 *
+	 * @param <T> the type of the scheduled item
+	 */
+	public static final class Timeout<T> {
+		private final TimingWheel<T> wheel;
+		private final T item;
+		private final long deadlineMs;
+		private final long tick;
+		private Timeout<T> prev;
+		private Timeout<T> next;
+		private boolean pending;
+
+		private Timeout(TimingWheel<T> wheel, T item, long deadlineMs, long tick) {
+			this.wheel = wheel;
+			this.item = item;
+			this.deadlineMs = deadlineMs;
+			this.tick = tick;
+		}
+
+		public T getItem() {
+			return item;
+		}
+
+		public long getDeadlineMs() {
+			return deadlineMs;
+		}
+
+		/**
+		 * Cancels this timeout.
+		 *
+		 * @return true if the timeout was still pending
+		 */
+		public boolean cancel() {
+			return wheel.cancel(this);
+		}
+	}
+}